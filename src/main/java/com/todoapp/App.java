@@ -1,5 +1,9 @@
 package com.todoapp;
 
+import com.todoapp.controller.MainController;
+import com.todoapp.repository.RepositoryConfig;
+import com.todoapp.service.TodoService;
+import com.todoapp.util.LaunchTimer;
 import io.github.palexdev.materialfx.css.themes.MFXThemeManager;
 import io.github.palexdev.materialfx.css.themes.Themes;
 import javafx.application.Application;
@@ -9,15 +13,28 @@ import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.lang.System.Logger.Level;
 import java.util.Objects;
+import java.util.logging.ConsoleHandler;
 
 public class App extends Application {
+    private static final System.Logger LOG = System.getLogger(App.class.getName());
+    // Held so java.util.logging can't drop the logger, and its level with it
+    private static java.util.logging.Logger timingLogger;
+
+    private MainController controller;
 
     @Override
     public void start(Stage primaryStage) throws IOException {
         // Load FXML
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/todoapp/view/main.fxml"));
+        RepositoryConfig config = RepositoryConfig.fromOptions(getParameters().getNamed());
+        if (Boolean.parseBoolean(getParameters().getNamed().getOrDefault("log-timings", "false"))) {
+            enableTimingLogs();
+        }
+        loader.setControllerFactory(type -> new MainController(new TodoService(config)));
         Parent root = loader.load();
+        controller = loader.getController();
 
         // Create scene
         Scene scene = new Scene(root, 800, 700);
@@ -38,6 +55,34 @@ public class App extends Application {
 
         // Show stage
         primaryStage.show();
+
+        // Logged once the first pulse has laid out the scene, i.e. when the first frame is drawn
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                long millis = LaunchTimer.millisSinceLaunch();
+                LOG.log(Level.DEBUG, () -> String.format("First frame %d ms after launch", millis));
+            }
+        });
+    }
+
+    // Timings are logged at DEBUG, which java.util.logging hides unless FINE is enabled
+    private static void enableTimingLogs() {
+        ConsoleHandler handler = new ConsoleHandler();
+        handler.setLevel(java.util.logging.Level.FINE);
+        timingLogger = java.util.logging.Logger.getLogger("com.todoapp");
+        timingLogger.setLevel(java.util.logging.Level.FINE);
+        timingLogger.setUseParentHandlers(false);
+        timingLogger.addHandler(handler);
+    }
+
+    @Override
+    public void stop() {
+        // Release the database connection cleanly on exit
+        if (controller != null) {
+            controller.shutdown();
+        }
     }
 
     public static void main(String[] args) {
@@ -1,34 +1,56 @@
 package com.todoapp.controller;
 
 import com.todoapp.model.Todo;
+import com.todoapp.repository.TodoEvent;
+import com.todoapp.repository.TodoSubscription;
+import com.todoapp.service.AsyncTodoService;
+import com.todoapp.service.DueStateClassifier;
+import com.todoapp.service.DueStateClassifier.DueState;
+import com.todoapp.service.IncrementalSearch;
+import com.todoapp.service.ReminderScheduler;
 import com.todoapp.service.TodoService;
+import com.todoapp.util.LaunchTimer;
 import io.github.palexdev.materialfx.controls.*;
 import javafx.animation.FadeTransition;
-import javafx.collections.FXCollections;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.*;
+import javafx.scene.effect.InnerShadow;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.util.Duration;
+import org.controlsfx.control.Notifications;
 import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
 import org.kordamp.ikonli.javafx.FontIcon;
 
 import java.net.URL;
+import java.lang.System.Logger.Level;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 import static com.todoapp.util.AppColors.*;
 
 public class MainController implements Initializable {
+    private static final System.Logger LOG = System.getLogger(MainController.class.getName());
 
     @FXML private BorderPane rootPane;
     @FXML private VBox mainContainer;
@@ -39,16 +61,69 @@ public class MainController implements Initializable {
     @FXML private Label statsLabel;
     @FXML private MFXTextField newTodoField;
     @FXML private MFXButton addButton;
-
-    private final TodoService todoService = new TodoService();
-    private final ObservableList<Todo> todos = FXCollections.observableArrayList();
+    @FXML private MFXTextField searchField;
+    @FXML private MFXButton clearCompletedButton;
+    @FXML private HBox bulkBar;
+    @FXML private Label selectionLabel;
+    @FXML private MFXButton markDoneButton;
+    @FXML private MFXButton markPendingButton;
+    @FXML private MFXButton moveButton;
+    @FXML private MFXButton postponeButton;
+    @FXML private MFXButton deleteSelectedButton;
+    @FXML private MFXButton clearSelectionButton;
+
+    private final TodoService todoService;
+    // Writes go through here so a slow save never blocks the FX thread; reads come from the cache
+    private final AsyncTodoService asyncService;
+    // Row shown for each todo id
+    private final Map<String, HBox> todoItems = new HashMap<>();
+    // Ids picked with a shortcut- or shift-click, in the order they were picked; the bulk bar acts on them
+    private final Set<String> selectedIds = new LinkedHashSet<>();
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd MMM yyyy");
     private final DateTimeFormatter dayFormatter = DateTimeFormatter.ofPattern("EEEE");
+    private StackPane scrollContent;
+    private VBox todosContainer;
+    // Shown in place of todosContainer while the search field has text
+    private VBox searchResultsContainer;
+    private Label emptyLabel;
+    private TodoSubscription subscription;
+    private ReminderScheduler reminders;
+    private DueStateClassifier dueStates;
+    private IncrementalSearch search;
+    // Sequence number of the last change shown, and the version startup loading finished at (-1 until then)
+    private long shownVersion;
+    private long loadedVersion = -1;
+    private boolean loadLogged = false;
+
+    public MainController() {
+        this(new TodoService());
+    }
+
+    public MainController(TodoService todoService) {
+        this.todoService = todoService;
+        this.asyncService = new AsyncTodoService(todoService, Platform::runLater);
+    }
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         setupUI();
-        loadTodos();
+        renderTodos();
+        // Rows already loaded arrive as one BULK event, the rest of startup and every later change after it
+        subscription = todoService.subscribe(Platform::runLater, this::applyEvents);
+        shownVersion = subscription.getDeliveredSeq();
+        reminders = new ReminderScheduler(todoService, Platform::runLater, this::showReminder);
+        // Keeps the overdue and due-today counts right as due times and midnight pass
+        dueStates = new DueStateClassifier(todoService, Platform::runLater, changes -> updateStats());
+        // Debounced and run off the FX thread; only results for the latest text come back
+        search = new IncrementalSearch(todoService, Platform::runLater, this::showSearchResults);
+        searchField.textProperty().addListener((obs, oldText, newText) -> search.search(newText));
+        todoService.whenLoaded().thenRun(() -> {
+            long version = todoService.getVersion();
+            Platform.runLater(() -> {
+                loadedVersion = version;
+                logIfFullyShown();
+            });
+        });
         updateDateDisplay();
         updateStats();
     }
@@ -83,6 +158,15 @@ public class MainController implements Initializable {
         // Override MaterialFX focus color
         newTodoField.getStyleClass().add("custom-mfx-text-field");
 
+        searchField.setFloatingText("Search todos");
+        searchField.setPrefWidth(470);
+        searchField.setStyle("-mfx-background-color: " + toHex(INPUT_BACKGROUND) + ";" +
+                "-mfx-border-color: " + toHex(INPUT_BORDER) + ";" +
+                "-mfx-border-radius: 4;" +
+                "-fx-prompt-text-fill: " + toHex(SECONDARY_TEXT) + ";" +
+                "-fx-text-fill: " + toHex(PRIMARY_TEXT) + ";");
+        searchField.getStyleClass().add("custom-mfx-text-field");
+
         // Configure MaterialFX button
         addButton.setText("ADD");
         addButton.setStyle(
@@ -116,6 +200,24 @@ public class MainController implements Initializable {
                         "-mfx-background-radius: 4;" +
                         "-mfx-depth-level: LEVEL2;")
         );
+
+        // Bulk actions; each is a single write, so the list updates once for the whole set
+        for (MFXButton button : List.of(clearCompletedButton, markDoneButton, markPendingButton,
+                moveButton, postponeButton, deleteSelectedButton, clearSelectionButton)) {
+            button.setStyle("-mfx-background-color: " + toHex(ELEVATED_SURFACE) + ";" +
+                    "-mfx-text-fill: " + toHex(PRIMARY_TEXT) + ";" +
+                    "-mfx-background-radius: 4;");
+            button.setRippleAnimateBackground(false);
+        }
+        selectionLabel.setStyle("-fx-text-fill: " + toHex(PRIMARY_TEXT) + "; -fx-font-size: 13px;");
+        clearCompletedButton.setOnAction(e -> handleDeleteCompleted());
+        markDoneButton.setOnAction(e -> runOnSelection(ids -> asyncService.setDone(ids, true), "Could not update todos"));
+        markPendingButton.setOnAction(e -> runOnSelection(ids -> asyncService.setDone(ids, false), "Could not update todos"));
+        postponeButton.setOnAction(e -> runOnSelection(
+                ids -> asyncService.shiftDueDates(ids, java.time.Duration.ofDays(1)), "Could not move due dates"));
+        moveButton.setOnAction(e -> handleMoveSelection());
+        deleteSelectedButton.setOnAction(e -> handleDeleteSelection());
+        clearSelectionButton.setOnAction(e -> clearSelection());
     }
 
     private void updateDateDisplay() {
@@ -133,33 +235,166 @@ public class MainController implements Initializable {
                 "-fx-font-size: 12px; -fx-font-weight: bold; -fx-letter-spacing: 2px;");
     }
 
-    private void loadTodos() {
-        todos.setAll(todoService.getAllTodos());
-        renderTodos();
+    // Applies changes row by row rather than rebuilding the list
+    private void applyEvents(List<TodoEvent> events) {
+        for (TodoEvent event : events) {
+            switch (event.getType()) {
+                case BULK -> event.getTodos().forEach(this::showTodo);
+                case CREATED, UPDATED -> showTodo(event.getTodo());
+                case DELETED -> hideTodo(event.getTodoId());
+            }
+        }
+        ObservableList<Node> children = todosContainer.getChildren();
+        if (todoItems.isEmpty() && !children.contains(emptyLabel)) {
+            children.add(emptyLabel);
+        } else if (!todoItems.isEmpty()) {
+            children.remove(emptyLabel);
+        }
+        shownVersion = events.get(events.size() - 1).getSeq();
+        logIfFullyShown();
+        updateStats();
+        // Results on screen may include a todo that just changed
+        if (!searchField.getText().isBlank()) search.search(searchField.getText());
+    }
+
+    private void showSearchResults(IncrementalSearch.Results results) {
+        if (results.query().isBlank()) {
+            scrollContent.getChildren().setAll(todosContainer);
+            return;
+        }
+        List<Node> rows = new ArrayList<>();
+        for (Todo todo : results.todos()) {
+            rows.add(createTodoItem(todo));
+        }
+        if (rows.isEmpty()) {
+            Label noMatches = new Label("No todos match '" + results.query().trim() + "'");
+            noMatches.setFont(Font.font("System", FontWeight.NORMAL, 14));
+            noMatches.setTextFill(DISABLED_TEXT);
+            noMatches.setPadding(new Insets(20));
+            rows.add(noMatches);
+        }
+        searchResultsContainer.getChildren().setAll(rows);
+        scrollContent.getChildren().setAll(searchResultsContainer);
+        scrollPane.setVvalue(0);
+    }
+
+    private void showTodo(Todo todo) {
+        HBox item = createTodoItem(todo);
+        HBox existing = todoItems.put(todo.getId(), item);
+        ObservableList<Node> children = todosContainer.getChildren();
+        if (existing != null) {
+            children.set(children.indexOf(existing), item);
+        } else {
+            children.add(item);
+        }
+    }
+
+    private void hideTodo(String todoId) {
+        HBox existing = todoItems.remove(todoId);
+        if (existing != null) todosContainer.getChildren().remove(existing);
+        if (selectedIds.remove(todoId)) updateSelection();
+    }
+
+    private void toggleSelection(String todoId) {
+        if (!selectedIds.remove(todoId)) selectedIds.add(todoId);
+        updateSelection();
+    }
+
+    private void clearSelection() {
+        selectedIds.clear();
+        updateSelection();
+    }
+
+    // Marks the selected rows in both the list and any search results, and shows the bulk bar while there are any
+    private void updateSelection() {
+        for (VBox rows : List.of(todosContainer, searchResultsContainer)) {
+            for (Node row : rows.getChildren()) {
+                if (row.getUserData() instanceof String todoId) markSelected(row, selectedIds.contains(todoId));
+            }
+        }
+        boolean any = !selectedIds.isEmpty();
+        selectionLabel.setText(selectedIds.size() + " selected");
+        bulkBar.setVisible(any);
+        bulkBar.setManaged(any);
+    }
+
+    private void markSelected(Node row, boolean selected) {
+        row.setEffect(selected ? new InnerShadow(8, PRIMARY_ACTION) : null);
+    }
+
+    // Hands the selected ids to a bulk call and clears the selection; the rows change when its events arrive
+    private void runOnSelection(Function<List<String>, CompletableFuture<?>> action, String failureTitle) {
+        if (selectedIds.isEmpty()) return;
+        List<String> ids = List.copyOf(selectedIds);
+        clearSelection();
+        action.apply(ids).exceptionally(e -> showFailure(failureTitle, e));
+    }
+
+    private void handleMoveSelection() {
+        if (selectedIds.isEmpty()) return;
+        TextInputDialog dialog = new TextInputDialog("General");
+        dialog.setTitle("Move Todos");
+        dialog.setHeaderText("Move " + selectedIds.size() + " todos to category:");
+        dialog.getDialogPane().setStyle("-fx-background-color: " + toHex(SURFACE) + ";");
+        dialog.showAndWait()
+                .filter(category -> !category.isBlank())
+                .ifPresent(category -> runOnSelection(
+                        ids -> asyncService.moveToCategory(ids, category), "Could not move todos"));
+    }
+
+    private void handleDeleteSelection() {
+        if (selectedIds.isEmpty()) return;
+        if (confirm("Delete Todos", "Delete " + selectedIds.size() + " selected todos?")) {
+            runOnSelection(asyncService::deleteTodos, "Could not delete todos");
+        }
+    }
+
+    private void handleDeleteCompleted() {
+        int completed = todoService.getCompletedTodoCount();
+        if (completed == 0) return;
+        if (confirm("Clear Completed", "Delete all " + completed + " completed todos?")) {
+            asyncService.deleteCompleted().exceptionally(e -> showFailure("Could not delete todos", e));
+        }
+    }
+
+    private boolean confirm(String title, String header) {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle(title);
+        alert.setHeaderText(header);
+        alert.setContentText("This action cannot be undone.");
+        alert.getDialogPane().setStyle("-fx-background-color: " + toHex(SURFACE) + ";");
+        alert.getButtonTypes().setAll(ButtonType.OK, ButtonType.CANCEL);
+        return alert.showAndWait().filter(ButtonType.OK::equals).isPresent();
+    }
+
+    private void logIfFullyShown() {
+        if (loadLogged || loadedVersion < 0) return;
+        if (Math.max(shownVersion, subscription.getDeliveredSeq()) >= loadedVersion) {
+            loadLogged = true;
+            int shown = todoItems.size();
+            long millis = LaunchTimer.millisSinceLaunch();
+            LOG.log(Level.DEBUG, () -> String.format("Showing all %d todos %d ms after launch", shown, millis));
+        }
     }
 
     private void renderTodos() {
-        VBox todosContainer = new VBox(8);
+        todosContainer = new VBox(8);
         todosContainer.setPadding(new Insets(20)); // Add padding here
 
+        searchResultsContainer = new VBox(8);
+        searchResultsContainer.setPadding(new Insets(20));
+
         // Create an outer container with padding
-        StackPane scrollContent = new StackPane();
+        scrollContent = new StackPane();
         scrollContent.setPadding(new Insets(20));
         scrollContent.getChildren().add(todosContainer);
 
-        if (todos.isEmpty()) {
-            Label emptyLabel = new Label("No todos yet. Add one above!");
-            emptyLabel.setFont(Font.font("System", FontWeight.NORMAL, 14));
-            emptyLabel.setTextFill(DISABLED_TEXT);
-            emptyLabel.setPadding(new Insets(20));
-            emptyLabel.setAlignment(Pos.CENTER);
-            todosContainer.getChildren().add(emptyLabel);
-        } else {
-            for (Todo todo : todos) {
-                HBox todoItem = createTodoItem(todo);
-                todosContainer.getChildren().add(todoItem);
-            }
-        }
+        emptyLabel = new Label("No todos yet. Add one above!");
+        emptyLabel.setFont(Font.font("System", FontWeight.NORMAL, 14));
+        emptyLabel.setTextFill(DISABLED_TEXT);
+        emptyLabel.setPadding(new Insets(20));
+        emptyLabel.setAlignment(Pos.CENTER);
+        todosContainer.getChildren().add(emptyLabel);
 
         // Replace the content in scroll pane with padded container
         scrollPane.setContent(scrollContent);
@@ -170,6 +405,16 @@ public class MainController implements Initializable {
         container.setPadding(new Insets(12, 16, 12, 12));
         container.setAlignment(Pos.CENTER_LEFT);
         container.setMaxWidth(Double.MAX_VALUE);
+        container.setUserData(todo.getId());
+        if (selectedIds.contains(todo.getId())) markSelected(container, true);
+
+        // Shortcut- or shift-click adds the row to the selection, or takes it out
+        container.setOnMouseClicked(e -> {
+            if (e.isShortcutDown() || e.isShiftDown()) {
+                toggleSelection(todo.getId());
+                e.consume();
+            }
+        });
 
         // Set base style
         container.setStyle("-fx-background-color: " + toHex(DEFAULT_ITEM_BG) + "; " +
@@ -216,9 +461,9 @@ public class MainController implements Initializable {
                 "-mfx-secondary-color: " + toHex(SECONDARY_ACTION) + ";");
 
         checkBox.selectedProperty().addListener((obs, oldVal, newVal) -> {
-            todoService.toggleTodoDone(todo.getId());
+            // The row is restyled now; the saved todo replaces it, and the stats update, when the change event arrives
+            asyncService.toggleTodoDone(todo.getId()).exceptionally(e -> showFailure("Could not update todo", e));
             updateTodoItemStyle(container, todo, newVal);
-            updateStats();
 
             // Animation
             FadeTransition ft = new FadeTransition(Duration.millis(200), container);
@@ -380,19 +625,14 @@ public class MainController implements Initializable {
     private void handleAddTodo() {
         String title = newTodoField.getText().trim();
         if (!title.isEmpty()) {
-            try {
-                todoService.createTodo(title);
-                newTodoField.clear();
+            asyncService.createTodo(title).thenAccept(todo -> {
+                // Only clear what was submitted, in case more was typed meanwhile
+                if (newTodoField.getText().trim().equals(title)) newTodoField.clear();
                 newTodoField.requestFocus();
-                loadTodos();
-                updateStats();
 
                 // Scroll to top (new items are added at top)
                 scrollPane.setVvalue(0);
-
-            } catch (IllegalArgumentException e) {
-                showAlert("Error", e.getMessage(), Alert.AlertType.ERROR);
-            }
+            }).exceptionally(e -> showFailure("Error", e));
         }
     }
 
@@ -446,11 +686,8 @@ public class MainController implements Initializable {
                         ? datePicker.getValue().atStartOfDay()
                         : null;
 
-                todoService.updateTodo(todo.getId(), titleField.getText(),
-                        todo.getCategory(), newTime);
-
-                loadTodos();
-                updateStats();
+                asyncService.updateTodo(todo.getId(), titleField.getText(), todo.getCategory(), newTime)
+                        .exceptionally(e -> showFailure("Could not save todo", e));
                 return todo;
             }
             return null;
@@ -478,23 +715,53 @@ public class MainController implements Initializable {
             FadeTransition ft = new FadeTransition(Duration.millis(200), container);
             ft.setFromValue(1.0);
             ft.setToValue(0.0);
-            ft.setOnFinished(e -> {
-                boolean deleted = todoService.deleteTodo(todo.getId());
-                if (deleted) {
-                    loadTodos();
-                    updateStats();
-                }
-            });
+            ft.setOnFinished(e -> asyncService.deleteTodo(todo.getId())
+                    .exceptionally(error -> {
+                        container.setOpacity(1.0);
+                        return showFailure("Could not delete todo", error);
+                    }));
             ft.play();
         }
     }
 
     private void updateStats() {
-        statsLabel.setText(todoService.getStatsText());
+        String text = todoService.getStatsText();
+        if (dueStates != null) {
+            int overdue = dueStates.getCount(DueState.OVERDUE);
+            int today = dueStates.getCount(DueState.TODAY);
+            if (overdue > 0) text += " • " + overdue + " overdue";
+            if (today > 0) text += " • " + today + " due today";
+        }
+        statsLabel.setText(text);
         statsLabel.setStyle("-fx-text-fill: " + toHex(SECONDARY_TEXT) + "; " +
                 "-fx-font-size: 13px;");
     }
 
+    private void showReminder(Todo todo) {
+        Notifications.create()
+                .title("Due now")
+                .text(todo.getTitle())
+                .hideAfter(Duration.seconds(10))
+                .showInformation();
+    }
+
+    public void shutdown() {
+        if (search != null) search.close();
+        if (dueStates != null) dueStates.close();
+        if (reminders != null) reminders.close();
+        if (subscription != null) subscription.close();
+        // Lets writes already under way finish before the repository closes
+        asyncService.close();
+        todoService.close();
+    }
+
+    // For exceptionally on a future from asyncService, which completes on the FX thread
+    private <T> T showFailure(String title, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        showAlert(title, cause.getMessage(), Alert.AlertType.ERROR);
+        return null;
+    }
+
     private void showAlert(String title, String message, Alert.AlertType type) {
         Alert alert = new Alert(type);
         alert.setTitle(title);
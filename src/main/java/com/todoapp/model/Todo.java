@@ -1,31 +1,53 @@
 package com.todoapp.model;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.UUID;
 
-public class Todo {
-    private final String id;
-    private String title;
-    private boolean done;
-    private LocalDateTime time;
+/**
+ * Immutable todo value. Edits go through the withX methods, which return a
+ * new copy with a fresh updatedAt, so a Todo handed out by the repository can
+ * be shared freely between threads and UI rows.
+ *
+ * <p>The version counts saves: 0 for a todo that has never been saved, then
+ * one more with each save. Edited copies keep the version they were made
+ * from, and a save is refused if the stored todo has moved past it.
+ */
+public final class Todo {
+    private final TodoId id;
+    private final String title;
+    private final boolean done;
+    private final LocalDateTime time;
     private final LocalDateTime createdAt;
-    private LocalDateTime updatedAt;
-    private String category;
+    private final LocalDateTime updatedAt;
+    private final String category;
+    private final int version;
 
     public Todo(String title) {
         if (title == null || title.trim().isEmpty()) {
             throw new IllegalArgumentException("Todo title cannot be empty");
         }
-        this.id = UUID.randomUUID().toString();
+        this.id = TodoId.newTimeOrdered();
         this.title = title.trim();
         this.done = false;
+        this.time = null;
         this.createdAt = LocalDateTime.now();
         this.updatedAt = this.createdAt;
         this.category = "General";
+        this.version = 0;
     }
 
     public Todo(String id, String title, boolean done, LocalDateTime time, 
                 LocalDateTime createdAt, LocalDateTime updatedAt, String category) {
+        this(TodoId.of(id), title, done, time, createdAt, updatedAt, category);
+    }
+
+    public Todo(TodoId id, String title, boolean done, LocalDateTime time, 
+                LocalDateTime createdAt, LocalDateTime updatedAt, String category) {
+        this(id, title, done, time, createdAt, updatedAt, category, 0);
+    }
+
+    public Todo(TodoId id, String title, boolean done, LocalDateTime time, 
+                LocalDateTime createdAt, LocalDateTime updatedAt, String category, int version) {
         this.id = id;
         this.title = title;
         this.done = done;
@@ -33,55 +55,66 @@ public class Todo {
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
         this.category = category;
+        this.version = version;
     }
 
     // Getters
-    public String getId() { return id; }
+    public String getId() { return id.toString(); }
+    public TodoId getKey() { return id; }
     public String getTitle() { return title; }
     public boolean isDone() { return done; }
     public LocalDateTime getTime() { return time; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public String getCategory() { return category; }
+    public int getVersion() { return version; }
 
-    // Setters
-    public void setTitle(String title) {
+    // Copy-on-write edits
+    public Todo withTitle(String title) {
         if (title == null || title.trim().isEmpty()) {
             throw new IllegalArgumentException("Todo title cannot be empty");
         }
-        this.title = title.trim();
-        this.updatedAt = LocalDateTime.now();
+        return new Todo(id, title.trim(), done, time, createdAt, LocalDateTime.now(), category, version);
     }
 
-    public void setDone(boolean done) {
-        this.done = done;
-        this.updatedAt = LocalDateTime.now();
+    public Todo withDone(boolean done) {
+        return new Todo(id, title, done, time, createdAt, LocalDateTime.now(), category, version);
     }
 
-    public void setTime(LocalDateTime time) {
-        this.time = time;
-        this.updatedAt = LocalDateTime.now();
+    public Todo withTime(LocalDateTime time) {
+        return new Todo(id, title, done, time, createdAt, LocalDateTime.now(), category, version);
     }
     
-    public void setCategory(String category) {
-        this.category = category;
-        this.updatedAt = LocalDateTime.now();
+    public Todo withCategory(String category) {
+        return new Todo(id, title, done, time, createdAt, LocalDateTime.now(), category, version);
+    }
+
+    // Same todo as stored at the given version; for repositories, so updatedAt is left alone
+    public Todo withVersion(int version) {
+        return new Todo(id, title, done, time, createdAt, updatedAt, category, version);
     }
 
-    public void toggleDone() {
-        this.done = !this.done;
-        this.updatedAt = LocalDateTime.now();
+    public Todo toggledDone() {
+        return withDone(!done);
     }
 
     public boolean isOverdue() {
+        return isOverdue(LocalDateTime.now());
+    }
+
+    // Read the clock once and pass it in when checking many todos
+    public boolean isOverdue(LocalDateTime now) {
         if (time == null || done) return false;
-        return time.isBefore(LocalDateTime.now());
+        return time.isBefore(now);
     }
 
     public boolean isDueToday() {
+        return isDueToday(LocalDate.now());
+    }
+
+    public boolean isDueToday(LocalDate today) {
         if (time == null) return false;
-        LocalDateTime now = LocalDateTime.now();
-        return time.toLocalDate().equals(now.toLocalDate());
+        return time.toLocalDate().equals(today);
     }
 
     public boolean hasDueDate() {
@@ -0,0 +1,137 @@
+package com.todoapp.model;
+
+import com.todoapp.util.BinaryCollation;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Compact todo id: a UUID held as two longs and stored as a 16-byte BLOB.
+ * Ids that aren't canonical lowercase UUID strings (e.g. rows imported from
+ * elsewhere) keep their text, which is also how they are stored.
+ *
+ * <p>Ids order the way SQLite orders the id column: text ids first, by
+ * their UTF-8 bytes, then UUIDs by their unsigned value, which is also the
+ * order of their strings.
+ */
+public final class TodoId implements Comparable<TodoId> {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static long lastMillis = 0;
+    private static int sequence = 0;
+
+    private final long high;
+    private final long low;
+    // Null for UUIDs
+    private final String text;
+
+    private TodoId(long high, long low, String text) {
+        this.high = high;
+        this.low = low;
+        this.text = text;
+    }
+
+    /**
+     * A new time-ordered UUIDv7: 48 bits of Unix milliseconds, then a 12-bit
+     * sequence that keeps ids from the same millisecond in creation order, then
+     * 62 random bits. New rows land at the right edge of the primary key index.
+     */
+    public static TodoId newTimeOrdered() {
+        long millis;
+        int seq;
+        synchronized (TodoId.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                // Start low in the sequence space so a burst in one millisecond rarely overflows it
+                sequence = RANDOM.nextInt(1 << 10);
+            } else if (++sequence > 0xFFF) {
+                // Sequence exhausted (or the clock went back): borrow the next millisecond
+                lastMillis++;
+                sequence = 0;
+            }
+            millis = lastMillis;
+            seq = sequence;
+        }
+        long high = (millis << 16) | 0x7000L | seq;
+        long low = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new TodoId(high, low, null);
+    }
+
+    public static TodoId of(String id) {
+        if (id.length() != 36) return new TodoId(0, id.hashCode(), id);
+        long high = 0, low = 0;
+        int nibbles = 0;
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return new TodoId(0, id.hashCode(), id);
+                continue;
+            }
+            int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+            if (digit < 0) return new TodoId(0, id.hashCode(), id);
+            if (nibbles++ < 16) high = (high << 4) | digit;
+            else low = (low << 4) | digit;
+        }
+        return new TodoId(high, low, null);
+    }
+
+    public static TodoId of(long high, long low) {
+        return new TodoId(high, low, null);
+    }
+
+    public static TodoId fromBytes(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("A binary todo id must be 16 bytes, got " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new TodoId(buffer.getLong(), buffer.getLong(), null);
+    }
+
+    public boolean isUuid() {
+        return text == null;
+    }
+
+    // For ids that aren't UUIDs these are only a hash of the text
+    public long getHigh() { return high; }
+    public long getLow() { return low; }
+
+    public byte[] toBytes() {
+        if (text != null) {
+            throw new IllegalStateException("Id " + text + " is not a UUID");
+        }
+        return ByteBuffer.allocate(16).putLong(high).putLong(low).array();
+    }
+
+    @Override
+    public int compareTo(TodoId other) {
+        if (text != null || other.text != null) {
+            if (text == null) return 1;
+            if (other.text == null) return -1;
+            return BinaryCollation.compare(text, other.text);
+        }
+        int cmp = Long.compareUnsigned(high, other.high);
+        return cmp != 0 ? cmp : Long.compareUnsigned(low, other.low);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TodoId other)) return false;
+        return high == other.high && low == other.low
+                && (text == null ? other.text == null : text.equals(other.text));
+    }
+
+    @Override
+    public int hashCode() {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    @Override
+    public String toString() {
+        return text != null ? text : new UUID(high, low).toString();
+    }
+}
@@ -0,0 +1,43 @@
+package com.todoapp.model;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the todo counters, all taken at the same instant.
+ */
+public final class TodoStats {
+    public static final TodoStats EMPTY = new TodoStats(0, 0, 0, Map.of(), LocalDateTime.MIN);
+
+    private final int total;
+    private final int completed;
+    private final int overdue;
+    private final Map<String, Integer> categoryCounts;
+    private final LocalDateTime asOf;
+
+    public TodoStats(int total, int completed, int overdue, Map<String, Integer> categoryCounts, LocalDateTime asOf) {
+        this.total = total;
+        this.completed = completed;
+        this.overdue = overdue;
+        this.categoryCounts = Collections.unmodifiableMap(new LinkedHashMap<>(categoryCounts));
+        this.asOf = asOf;
+    }
+
+    public int getTotal() { return total; }
+    public int getCompleted() { return completed; }
+    public int getPending() { return total - completed; }
+    public int getOverdue() { return overdue; }
+    public Map<String, Integer> getCategoryCounts() { return categoryCounts; }
+    public LocalDateTime getAsOf() { return asOf; }
+
+    public int getCategoryCount(String category) {
+        return categoryCounts.getOrDefault(category, 0);
+    }
+
+    public double getCompletionPercentage() {
+        if (total == 0) return 0.0;
+        return (completed * 100.0) / total;
+    }
+}
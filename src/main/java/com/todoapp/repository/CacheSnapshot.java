@@ -0,0 +1,121 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary copy of the todo cache, kept next to the database so startup can
+ * map it instead of decoding every row from SQLite. A 32-byte header holds
+ * the id of the database it was taken from, the {@code todo_changes}
+ * sequence number the copy is current up to, the record count and a
+ * checksum; the todos follow in cache order as {@link LogRecords} put
+ * records, each with its own checksum.
+ */
+final class CacheSnapshot {
+    // "TODOSNP" then the format version; 2 added todo versions to the records
+    private static final long MAGIC = 0x544F444F534E5002L;
+    private static final int HEADER_SIZE = 32;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final long databaseId;
+    private final long changeSeq;
+    private final List<Todo> todos;
+
+    private CacheSnapshot(long databaseId, long changeSeq, List<Todo> todos) {
+        this.databaseId = databaseId;
+        this.changeSeq = changeSeq;
+        this.todos = todos;
+    }
+
+    long getDatabaseId() { return databaseId; }
+    long getChangeSeq() { return changeSeq; }
+    List<Todo> getTodos() { return todos; }
+
+    // Null if there is no snapshot or it can't be trusted; either way the caller does a full load
+    static CacheSnapshot read(Path path) {
+        if (!Files.exists(path)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("unexpected size " + size);
+            }
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (file.getLong(0) != MAGIC || file.getInt(28) != headerChecksum(file)) {
+                throw new IOException("bad header");
+            }
+            long databaseId = file.getLong(8);
+            long changeSeq = file.getLong(16);
+            int count = file.getInt(24);
+            List<Todo> todos = new ArrayList<>(count);
+            int pos = HEADER_SIZE;
+            for (int i = 0; i < count; i++) {
+                int length = LogRecords.check(file, pos);
+                if (length <= 0 || LogRecords.isTombstone(file, pos)) {
+                    throw new IOException("bad record at offset " + pos);
+                }
+                todos.add(LogRecords.read(file, pos));
+                pos += length;
+            }
+            if (pos != size) {
+                throw new IOException("trailing bytes after record " + count);
+            }
+            return new CacheSnapshot(databaseId, changeSeq, todos);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring cache snapshot " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Written to a temporary file and renamed over the old snapshot, so readers never see a partial one
+    static void write(Path path, long databaseId, long changeSeq, List<Todo> todos) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+            buffer.putLong(MAGIC).putLong(databaseId).putLong(changeSeq).putInt(todos.size());
+            buffer.putInt(headerChecksum(buffer));
+            for (Todo todo : todos) {
+                byte[] record = LogRecords.put(todo);
+                if (record.length > buffer.remaining()) {
+                    drain(out, buffer);
+                }
+                if (record.length > buffer.remaining()) {
+                    writeFully(out, ByteBuffer.wrap(record));
+                } else {
+                    buffer.put(record);
+                }
+            }
+            drain(out, buffer);
+            out.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static int headerChecksum(ByteBuffer header) {
+        CRC32C crc = new CRC32C();
+        crc.update(header.slice(0, 28));
+        return (int) crc.getValue();
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writeFully(out, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
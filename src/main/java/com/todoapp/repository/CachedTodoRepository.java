@@ -0,0 +1,254 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import com.todoapp.model.TodoStats;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read side shared by the repositories that hold every row in a
+ * {@link TodoCache}: lookups, counters, paging and change tracking are all
+ * answered from memory. Subclasses persist writes and must apply each one to
+ * the cache in the same order they apply it to their storage.
+ *
+ * <p>Subclasses may fill the cache in chunks after the constructor returns.
+ * They add rows with {@link TodoCache#putAllAbsent}, call
+ * {@link #finishLoading} once every row is in, and call {@link #awaitLoaded}
+ * before a write so a row read at startup can never replace a newer one.
+ */
+abstract class CachedTodoRepository implements TodoRepository {
+    // Reads never lock; see TodoCache
+    protected final TodoCache cache;
+    protected final int searchLimit;
+
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    private final QueryResultCache queryResults = new QueryResultCache();
+
+    protected CachedTodoRepository(RepositoryConfig config) {
+        cache = new TodoCache(config.getCacheLayout());
+        searchLimit = config.getSearchLimit();
+    }
+
+    protected void finishLoading() {
+        loaded.complete(null);
+        initializeDefaultData();
+    }
+
+    protected void awaitLoaded() {
+        loaded.join();
+    }
+
+    // The copy to store for a save, one version on from the cached one. Throws if the todo was made from an
+    // older copy than the cache holds. Callers hold their write lock so nothing moves in between.
+    protected Todo nextVersion(Todo todo) {
+        Todo current = cache.get(todo.getKey());
+        int version = current != null ? current.getVersion() : 0;
+        if (todo.getVersion() != version) {
+            throw new TodoConflictException(todo, current);
+        }
+        return todo.withVersion(version + 1);
+    }
+
+    // The copies to store for a bulk update, each one version on from the cached todo it was made from.
+    // Callers hold their write lock.
+    protected List<Todo> nextVersions(Collection<String> todoIds, UnaryOperator<Todo> change) {
+        Objects.requireNonNull(change);
+        List<Todo> saved = new ArrayList<>();
+        for (Todo current : cachedTodos(todoIds)) {
+            Todo changed = change.apply(current);
+            if (changed == current) continue;
+            if (!changed.getKey().equals(current.getKey())) {
+                throw new IllegalArgumentException("A bulk update must not change a todo's id");
+            }
+            saved.add(nextVersion(changed));
+        }
+        return saved;
+    }
+
+    // The cached todos among the ids, each once, in the order given
+    protected List<Todo> cachedTodos(Collection<String> todoIds) {
+        Set<TodoId> ids = new LinkedHashSet<>();
+        for (String todoId : todoIds) ids.add(TodoId.of(todoId));
+        List<Todo> todos = new ArrayList<>(ids.size());
+        for (TodoId id : ids) {
+            Todo todo = cache.get(id);
+            if (todo != null) todos.add(todo);
+        }
+        return todos;
+    }
+
+    @Override
+    public CompletableFuture<Void> whenLoaded() {
+        return loaded.copy();
+    }
+
+    @Override
+    public TodoSubscription subscribe(long fromSeq, Executor executor, Consumer<List<TodoEvent>> listener) {
+        return cache.subscribe(fromSeq, executor, listener);
+    }
+
+    @Override
+    public TodoSubscription subscribe(Executor executor, Consumer<List<TodoEvent>> listener) {
+        return cache.subscribe(executor, listener);
+    }
+
+    @Override
+    public List<Todo> getAllTodos() {
+        return cache.values();
+    }
+
+    @Override
+    public Optional<Todo> getTodo(String todoId) {
+        TodoId id = TodoId.of(todoId);
+        Todo todo = cache.get(id);
+        if (todo == null && !loaded.isDone()) {
+            // It may be further down than the rows loaded so far
+            awaitLoaded();
+            todo = cache.get(id);
+        }
+        return Optional.ofNullable(todo);
+    }
+
+    @Override
+    public List<Todo> searchTodos(String query) {
+        return searchTodos(query, searchLimit);
+    }
+
+    // From an in-memory trigram index, whatever the backend
+    @Override
+    public List<Todo> fuzzySearch(String query, int limit) {
+        if (query == null || query.isBlank() || limit <= 0) return List.of();
+        return cache.fuzzySearch(query, limit);
+    }
+
+    // Case-insensitive substring match on titles, in cache order
+    protected List<Todo> scanTitles(String query, int limit) {
+        String searchTerm = query.toLowerCase();
+        return cache.values().stream()
+                .filter(todo -> todo.getTitle().toLowerCase().contains(searchTerm))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<Todo> getTodosDueToday() {
+        // The whole day, including todos due earlier today
+        LocalDate today = LocalDate.now();
+        return cache.dueBetween(today.atStartOfDay(), today.plusDays(1).atStartOfDay());
+    }
+
+    @Override
+    public List<Todo> getOverdueTodos() {
+        return cache.overdue(LocalDateTime.now());
+    }
+
+    @Override
+    public List<Todo> getTodosByCategory(String category) {
+        return cache.byCategory(category);
+    }
+
+    @Override
+    public List<Todo> query(TodoQuery query) {
+        Objects.requireNonNull(query);
+        // Read before the query runs, so a write that lands meanwhile leaves the stored result stale
+        long version = cache.version();
+        List<Todo> results = queryResults.get(query, version);
+        if (results == null) {
+            results = List.copyOf(runQuery(query));
+            queryResults.put(query, version, results);
+        }
+        return results;
+    }
+
+    // Answered from the cache's indexes; backends that can do better in storage override this and planQuery
+    protected List<Todo> runQuery(TodoQuery query) {
+        return cache.query(query);
+    }
+
+    QueryPlan planQuery(TodoQuery query) {
+        return cache.plan(query);
+    }
+
+    @Override
+    public String explain(TodoQuery query) {
+        return planQuery(Objects.requireNonNull(query)).toString();
+    }
+
+    @Override
+    public int getTotalTodoCount() {
+        return cache.size();
+    }
+
+    @Override
+    public int getCompletedTodoCount() {
+        return cache.completedCount();
+    }
+
+    @Override
+    public TodoStats getStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public Page page(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter) {
+        checkPageArguments(cursor, limit, sortKey);
+        return cache.page(cursor, limit, sortKey, filter);
+    }
+
+    protected static void checkPageArguments(PageCursor cursor, int limit, SortKey sortKey) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        if (cursor != null && cursor.getSortKey() != sortKey) {
+            throw new IllegalArgumentException("Cursor was created for sort key " + cursor.getSortKey());
+        }
+    }
+
+    @Override
+    public List<String> getAllCategories() {
+        return cache.categories();
+    }
+
+    @Override
+    public long getVersion() {
+        return cache.version();
+    }
+
+    @Override
+    public ChangeSet getChangesSince(long version) {
+        return cache.changesSince(version);
+    }
+
+    // Repositories without an archive keep every todo in the working set
+    @Override
+    public int archiveCompleted(LocalDateTime completedBefore) {
+        return 0;
+    }
+
+    @Override
+    public Optional<Todo> restoreTodo(String todoId) {
+        return Optional.empty();
+    }
+
+    @Override
+    public TodoArchive getArchive() {
+        return EmptyArchive.INSTANCE;
+    }
+
+    // New stores start empty
+    @Override
+    public void initializeDefaultData() {
+    }
+}
@@ -0,0 +1,32 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import java.util.List;
+
+/**
+ * What changed between two repository versions: the current copy of every
+ * todo saved in between, and the ids of those deleted. A todo saved and then
+ * deleted shows up only as deleted.
+ */
+public final class ChangeSet {
+    private final long fromVersion;
+    private final long toVersion;
+    private final List<Todo> saved;
+    private final List<String> deletedIds;
+
+    ChangeSet(long fromVersion, long toVersion, List<Todo> saved, List<String> deletedIds) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.saved = List.copyOf(saved);
+        this.deletedIds = List.copyOf(deletedIds);
+    }
+
+    public long getFromVersion() { return fromVersion; }
+    public long getToVersion() { return toVersion; }
+    public List<Todo> getSaved() { return saved; }
+    public List<String> getDeletedIds() { return deletedIds; }
+
+    public boolean isEmpty() {
+        return saved.isEmpty() && deletedIds.isEmpty();
+    }
+}
@@ -0,0 +1,572 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import com.todoapp.util.BinaryCollation;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Struct-of-arrays store for very large lists ({@code --cache-layout=compact}).
+ * Each row is a slot across primitive columns: {@link TodoId}s as two longs, timestamps
+ * as epoch micros, done as a bit, and the category as an id into an interned
+ * name table. Todo objects are only built when a row is read.
+ *
+ * <p>There are no secondary indexes; queries scan the columns, which stay
+ * cheap because each scan touches one or two packed arrays. Reads are
+ * optimistic: they run without locking and retry if a write overlapped them,
+ * falling back to a read lock only after repeated collisions.
+ */
+class CompactTodoStore implements TodoStore {
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NO_CATEGORY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+    // Sort columns of one row (slot is -1 for a cursor), compared the way TodoIndex orders todos
+    private record Position(int slot, long createdAt, long time, String category, long idHi, long idLo, String rawId) {}
+
+    // Same order as TodoId: text ids first, then UUIDs by unsigned value
+    private static final Comparator<Position> BY_ID = (a, b) -> {
+        if (a.rawId() != null || b.rawId() != null) {
+            if (a.rawId() == null) return 1;
+            if (b.rawId() == null) return -1;
+            return BinaryCollation.compare(a.rawId(), b.rawId());
+        }
+        int cmp = Long.compareUnsigned(a.idHi(), b.idHi());
+        return cmp != 0 ? cmp : Long.compareUnsigned(a.idLo(), b.idLo());
+    };
+    private static final Comparator<Position> NEWEST_FIRST =
+            Comparator.comparingLong(Position::createdAt).thenComparing(BY_ID).reversed();
+    private static final Comparator<Position> BY_TIME =
+            Comparator.comparing((Position p) -> p.time() == NO_TIME)
+                    .thenComparingLong(Position::time)
+                    .thenComparing(BY_ID);
+    private static final Comparator<Position> BY_CATEGORY =
+            Comparator.comparing(Position::category, Comparator.nullsFirst(BinaryCollation.ORDER))
+                    .thenComparing(NEWEST_FIRST);
+
+    private final StampedLock lock = new StampedLock();
+
+    // Slot order is insertion order; removed slots stay in place, cleared in live, until the next compaction
+    private long[] idHi = new long[INITIAL_CAPACITY];
+    private long[] idLo = new long[INITIAL_CAPACITY];
+    private String[] rawIds = new String[INITIAL_CAPACITY];
+    private String[] titles = new String[INITIAL_CAPACITY];
+    private long[] times = new long[INITIAL_CAPACITY];
+    private long[] createdAts = new long[INITIAL_CAPACITY];
+    private long[] updatedAts = new long[INITIAL_CAPACITY];
+    private int[] versions = new int[INITIAL_CAPACITY];
+    private int[] categoryIds = new int[INITIAL_CAPACITY];
+    private BitSet done = new BitSet();
+    private BitSet live = new BitSet();
+    private int end = 0;
+    private int size = 0;
+    private int completed = 0;
+
+    // Interned category names; a row's category id is a position in this table
+    private String[] categoryNames = new String[16];
+    private int[] categoryTally = new int[16];
+    private int categoryCount = 0;
+    private int uncategorized = 0;
+    // Only touched by writers
+    private final Map<String, Integer> categoryIdOf = new HashMap<>();
+
+    // Open addressing from id to slot + 1, with 0 marking an empty bucket
+    private int[] table = new int[2 * INITIAL_CAPACITY];
+
+    @Override
+    public Todo get(TodoId todoId) {
+        return read(() -> {
+            int slot = find(todoId);
+            return slot < 0 ? null : todoAt(slot);
+        });
+    }
+
+    @Override
+    public int size() {
+        return read(() -> size);
+    }
+
+    @Override
+    public List<Todo> values() {
+        return read(() -> {
+            List<Todo> todos = new ArrayList<>(size);
+            int limit = end;
+            for (int slot = live.nextSetBit(0); slot >= 0 && slot < limit; slot = live.nextSetBit(slot + 1)) {
+                todos.add(todoAt(slot));
+            }
+            return Collections.unmodifiableList(todos);
+        });
+    }
+
+    @Override
+    public Todo put(Todo todo) {
+        TodoId key = todo.getKey();
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(key);
+            Todo previous = null;
+            if (slot >= 0) {
+                previous = todoAt(slot);
+                untally(slot);
+            } else {
+                slot = append(key);
+            }
+            titles[slot] = todo.getTitle();
+            times[slot] = encode(todo.getTime());
+            createdAts[slot] = encode(todo.getCreatedAt());
+            updatedAts[slot] = encode(todo.getUpdatedAt());
+            versions[slot] = todo.getVersion();
+            categoryIds[slot] = intern(todo.getCategory());
+            done.set(slot, todo.isDone());
+            tally(slot);
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Todo remove(TodoId todoId) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(todoId);
+            if (slot < 0) return null;
+            Todo removed = todoAt(slot);
+            untally(slot);
+            unlinkFromTable(slot);
+            live.clear(slot);
+            done.clear(slot);
+            titles[slot] = null;
+            rawIds[slot] = null;
+            size--;
+            if (end - size > INITIAL_CAPACITY && end - size > end / 2) {
+                compact();
+            }
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int completedCount() {
+        return read(() -> completed);
+    }
+
+    @Override
+    public int overdueCount(LocalDateTime now) {
+        long cutoff = Timestamps.encode(now);
+        return read(() -> {
+            int count = 0;
+            int limit = end;
+            for (int slot = live.nextSetBit(0); slot >= 0 && slot < limit; slot = live.nextSetBit(slot + 1)) {
+                long time = times[slot];
+                if (time != NO_TIME && time < cutoff && !done.get(slot)) count++;
+            }
+            return count;
+        });
+    }
+
+    @Override
+    public LocalDateTime nextPendingDue(LocalDateTime instant) {
+        long from = Timestamps.encode(instant);
+        return read(() -> {
+            long next = Long.MAX_VALUE;
+            int limit = end;
+            for (int slot = live.nextSetBit(0); slot >= 0 && slot < limit; slot = live.nextSetBit(slot + 1)) {
+                long time = times[slot];
+                if (time >= from && time < next && !done.get(slot)) next = time;
+            }
+            return next == Long.MAX_VALUE ? null : Timestamps.decode(next);
+        });
+    }
+
+    @Override
+    public Map<String, Integer> categoryCounts() {
+        return read(() -> {
+            Map<String, Integer> sorted = new TreeMap<>();
+            int count = categoryCount;
+            for (int id = 0; id < count; id++) {
+                if (categoryTally[id] > 0) sorted.put(categoryNames[id], categoryTally[id]);
+            }
+            // Same order as the indexed store: no category first, then by name
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            if (uncategorized > 0) counts.put(null, uncategorized);
+            counts.putAll(sorted);
+            return counts;
+        });
+    }
+
+    @Override
+    public List<String> categories() {
+        return new ArrayList<>(categoryCounts().keySet());
+    }
+
+    @Override
+    public List<Todo> inCategory(String category) {
+        return read(() -> {
+            int id = categoryId(category);
+            if (id == NO_CATEGORY && category != null) return List.of();
+            List<Position> matches = new ArrayList<>();
+            int limit = end;
+            for (int slot = live.nextSetBit(0); slot >= 0 && slot < limit; slot = live.nextSetBit(slot + 1)) {
+                if (categoryIds[slot] == id) matches.add(position(slot));
+            }
+            return sortedTodos(matches, NEWEST_FIRST);
+        });
+    }
+
+    @Override
+    public List<Todo> dueBetween(LocalDateTime from, LocalDateTime to) {
+        long start = Timestamps.encode(from), stop = Timestamps.encode(to);
+        return read(() -> {
+            List<Position> matches = new ArrayList<>();
+            int limit = end;
+            for (int slot = live.nextSetBit(0); slot >= 0 && slot < limit; slot = live.nextSetBit(slot + 1)) {
+                long time = times[slot];
+                if (time != NO_TIME && time >= start && time < stop) matches.add(position(slot));
+            }
+            return sortedTodos(matches, BY_TIME);
+        });
+    }
+
+    @Override
+    public List<Todo> pendingDueBefore(LocalDateTime instant) {
+        long cutoff = Timestamps.encode(instant);
+        return read(() -> {
+            List<Position> matches = new ArrayList<>();
+            int limit = end;
+            for (int slot = live.nextSetBit(0); slot >= 0 && slot < limit; slot = live.nextSetBit(slot + 1)) {
+                long time = times[slot];
+                if (time != NO_TIME && time < cutoff && !done.get(slot)) matches.add(position(slot));
+            }
+            return sortedTodos(matches, BY_TIME);
+        });
+    }
+
+    // One scan that keeps the first limit + 1 rows after the cursor in a bounded heap
+    @Override
+    public Page page(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter) {
+        Comparator<Position> order = order(sortKey);
+        Position after = cursor != null ? position(cursor) : null;
+        return read(() -> {
+            int wantedCategory = filter.getCategory() != null ? categoryId(filter.getCategory()) : NO_CATEGORY;
+            if (filter.getCategory() != null && wantedCategory == NO_CATEGORY) return new Page(List.of(), null);
+            Boolean wantedDone = filter.getDone();
+
+            PriorityQueue<Position> best = new PriorityQueue<>(order.reversed());
+            int scanLimit = end;
+            for (int slot = live.nextSetBit(0); slot >= 0 && slot < scanLimit; slot = live.nextSetBit(slot + 1)) {
+                if (filter.getCategory() != null && categoryIds[slot] != wantedCategory) continue;
+                if (wantedDone != null && done.get(slot) != wantedDone) continue;
+                Position candidate = position(slot);
+                if (after != null && order.compare(candidate, after) <= 0) continue;
+                if (best.size() > limit && order.compare(candidate, best.peek()) >= 0) continue;
+                best.add(candidate);
+                if (best.size() > limit + 1) best.poll();
+            }
+
+            boolean more = best.size() > limit;
+            List<Position> sorted = new ArrayList<>(best);
+            sorted.sort(order);
+            if (more) sorted.remove(sorted.size() - 1);
+            List<Todo> items = new ArrayList<>(sorted.size());
+            for (Position position : sorted) {
+                items.add(todoAt(position.slot()));
+            }
+            return new Page(items, more ? PageCursor.after(sortKey, items.get(items.size() - 1)) : null);
+        });
+    }
+
+    @Override
+    public QueryPlan plan(TodoQuery query) {
+        if (query.matchesNothing()) return QueryPlan.empty("no searchable text");
+        int rows = size();
+        return new QueryPlan(QueryPlan.Access.COLUMN_SCAN, "over " + rows + " rows", rows, false);
+    }
+
+    // One scan like page: the packed columns are checked first, and a row is only built when there is text to match
+    @Override
+    public List<Todo> query(TodoQuery query) {
+        if (query.matchesNothing()) return List.of();
+        Comparator<Position> order = order(query.effectiveSortKey());
+        int limit = query.getLimit();
+        long dueFrom = query.getDueFrom() != null ? encode(query.getDueFrom()) : Long.MIN_VALUE;
+        long dueTo = query.getDueTo() != null ? encode(query.getDueTo()) : Long.MAX_VALUE;
+        return read(() -> {
+            int wantedCategory = query.getCategory() != null ? categoryId(query.getCategory()) : NO_CATEGORY;
+            if (query.getCategory() != null && wantedCategory == NO_CATEGORY) return List.of();
+            Boolean wantedDone = query.getDone();
+
+            PriorityQueue<Position> best = new PriorityQueue<>(order.reversed());
+            int scanLimit = end;
+            for (int slot = live.nextSetBit(0); slot >= 0 && slot < scanLimit; slot = live.nextSetBit(slot + 1)) {
+                if (query.getCategory() != null && categoryIds[slot] != wantedCategory) continue;
+                if (wantedDone != null && done.get(slot) != wantedDone) continue;
+                if (query.hasDueRange()) {
+                    long time = times[slot];
+                    if (time == NO_TIME || time < dueFrom || time >= dueTo) continue;
+                }
+                Position candidate = position(slot);
+                if (limit > 0 && best.size() == limit && order.compare(candidate, best.peek()) >= 0) continue;
+                if (query.getText() != null && !query.matches(todoAt(slot))) continue;
+                best.add(candidate);
+                if (limit > 0 && best.size() > limit) best.poll();
+            }
+            return sortedTodos(new ArrayList<>(best), order);
+        });
+    }
+
+    private static Comparator<Position> order(SortKey sortKey) {
+        return switch (sortKey) {
+            case CREATED_AT -> NEWEST_FIRST;
+            case TIME -> BY_TIME;
+            case CATEGORY -> BY_CATEGORY;
+        };
+    }
+
+    // Runs the reader without locking and retries if a write overlapped it
+    private <T> T read(Supplier<T> reader) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) return result;
+            } catch (RuntimeException e) {
+                // A torn read can index past a column that was just replaced; only a clean read may throw
+                if (lock.validate(stamp)) throw e;
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Todo todoAt(int slot) {
+        int category = categoryIds[slot];
+        String raw = rawIds[slot];
+        TodoId id = raw != null ? TodoId.of(raw) : TodoId.of(idHi[slot], idLo[slot]);
+        return new Todo(id, titles[slot], done.get(slot),
+                decode(times[slot]), decode(createdAts[slot]), decode(updatedAts[slot]),
+                category == NO_CATEGORY ? null : categoryNames[category], versions[slot]);
+    }
+
+    private Position position(int slot) {
+        int category = categoryIds[slot];
+        return new Position(slot, createdAts[slot], times[slot],
+                category == NO_CATEGORY ? null : categoryNames[category], idHi[slot], idLo[slot], rawIds[slot]);
+    }
+
+    private static Position position(PageCursor cursor) {
+        TodoId id = cursor.getId();
+        return new Position(-1, encode(cursor.getCreatedAt()), encode(cursor.getTime()),
+                cursor.getCategory(), id.getHigh(), id.getLow(), id.isUuid() ? null : id.toString());
+    }
+
+    private List<Todo> sortedTodos(List<Position> positions, Comparator<Position> order) {
+        positions.sort(order);
+        List<Todo> todos = new ArrayList<>(positions.size());
+        for (Position position : positions) {
+            todos.add(todoAt(position.slot()));
+        }
+        return todos;
+    }
+
+    // Slot holding the id, or -1
+    private int find(TodoId key) {
+        int[] buckets = table;
+        int mask = buckets.length - 1;
+        int bucket = hash(key.getHigh(), key.getLow()) & mask;
+        for (int probes = 0; probes < buckets.length; probes++) {
+            int entry = buckets[bucket];
+            if (entry == 0) return -1;
+            int slot = entry - 1;
+            if (matches(slot, key)) return slot;
+            bucket = (bucket + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean matches(int slot, TodoId key) {
+        String raw = rawIds[slot];
+        if (!key.isUuid()) return key.toString().equals(raw);
+        return raw == null && idHi[slot] == key.getHigh() && idLo[slot] == key.getLow();
+    }
+
+    private int append(TodoId key) {
+        if (end == idHi.length) grow(idHi.length * 2);
+        if ((size + 1) * 2 > table.length) rehash(table.length * 2);
+        int slot = end++;
+        idHi[slot] = key.getHigh();
+        idLo[slot] = key.getLow();
+        rawIds[slot] = key.isUuid() ? null : key.toString();
+        insertIntoTable(table, slot, key.getHigh(), key.getLow());
+        live.set(slot);
+        size++;
+        return slot;
+    }
+
+    private static void insertIntoTable(int[] buckets, int slot, long hi, long lo) {
+        int mask = buckets.length - 1;
+        int bucket = hash(hi, lo) & mask;
+        while (buckets[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        buckets[bucket] = slot + 1;
+    }
+
+    // Backward-shift deletion, so probe chains stay unbroken without tombstones
+    private void unlinkFromTable(int slot) {
+        int mask = table.length - 1;
+        int hole = hash(idHi[slot], idLo[slot]) & mask;
+        while (table[hole] != slot + 1) {
+            hole = (hole + 1) & mask;
+        }
+        table[hole] = 0;
+        for (int next = (hole + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int moved = table[next] - 1;
+            int home = hash(idHi[moved], idLo[moved]) & mask;
+            boolean reachable = hole <= next ? home > hole && home <= next : home > hole || home <= next;
+            if (!reachable) {
+                table[hole] = table[next];
+                table[next] = 0;
+                hole = next;
+            }
+        }
+    }
+
+    private void grow(int capacity) {
+        idHi = Arrays.copyOf(idHi, capacity);
+        idLo = Arrays.copyOf(idLo, capacity);
+        rawIds = Arrays.copyOf(rawIds, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        times = Arrays.copyOf(times, capacity);
+        createdAts = Arrays.copyOf(createdAts, capacity);
+        updatedAts = Arrays.copyOf(updatedAts, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+    }
+
+    private void rehash(int buckets) {
+        int[] rebuilt = new int[buckets];
+        int limit = end;
+        for (int slot = live.nextSetBit(0); slot >= 0 && slot < limit; slot = live.nextSetBit(slot + 1)) {
+            insertIntoTable(rebuilt, slot, idHi[slot], idLo[slot]);
+        }
+        table = rebuilt;
+    }
+
+    // Squeezes out removed slots, keeping insertion order
+    private void compact() {
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, size)) * 2);
+        long[] newIdHi = new long[capacity], newIdLo = new long[capacity];
+        long[] newTimes = new long[capacity], newCreatedAts = new long[capacity], newUpdatedAts = new long[capacity];
+        String[] newRawIds = new String[capacity], newTitles = new String[capacity];
+        int[] newCategoryIds = new int[capacity], newVersions = new int[capacity];
+        BitSet newDone = new BitSet(capacity), newLive = new BitSet(capacity);
+
+        int target = 0;
+        for (int slot = live.nextSetBit(0); slot >= 0 && slot < end; slot = live.nextSetBit(slot + 1), target++) {
+            newIdHi[target] = idHi[slot];
+            newIdLo[target] = idLo[slot];
+            newRawIds[target] = rawIds[slot];
+            newTitles[target] = titles[slot];
+            newTimes[target] = times[slot];
+            newCreatedAts[target] = createdAts[slot];
+            newUpdatedAts[target] = updatedAts[slot];
+            newVersions[target] = versions[slot];
+            newCategoryIds[target] = categoryIds[slot];
+            newDone.set(target, done.get(slot));
+            newLive.set(target);
+        }
+
+        idHi = newIdHi;
+        idLo = newIdLo;
+        rawIds = newRawIds;
+        titles = newTitles;
+        times = newTimes;
+        createdAts = newCreatedAts;
+        updatedAts = newUpdatedAts;
+        versions = newVersions;
+        categoryIds = newCategoryIds;
+        done = newDone;
+        live = newLive;
+        end = target;
+        rehash(Math.max(2 * INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, size)) * 4));
+    }
+
+    private int intern(String category) {
+        if (category == null) return NO_CATEGORY;
+        Integer id = categoryIdOf.get(category);
+        if (id != null) return id;
+        if (categoryCount == categoryNames.length) {
+            categoryNames = Arrays.copyOf(categoryNames, categoryCount * 2);
+            categoryTally = Arrays.copyOf(categoryTally, categoryCount * 2);
+        }
+        categoryNames[categoryCount] = category;
+        categoryIdOf.put(category, categoryCount);
+        return categoryCount++;
+    }
+
+    // Readers can't use categoryIdOf, which writers mutate, so they scan the small name table
+    private int categoryId(String category) {
+        if (category == null) return NO_CATEGORY;
+        int count = categoryCount;
+        String[] names = categoryNames;
+        for (int id = 0; id < count && id < names.length; id++) {
+            if (category.equals(names[id])) return id;
+        }
+        return NO_CATEGORY;
+    }
+
+    private void tally(int slot) {
+        if (done.get(slot)) completed++;
+        int category = categoryIds[slot];
+        if (category == NO_CATEGORY) uncategorized++;
+        else categoryTally[category]++;
+    }
+
+    private void untally(int slot) {
+        if (done.get(slot)) completed--;
+        int category = categoryIds[slot];
+        if (category == NO_CATEGORY) uncategorized--;
+        else categoryTally[category]--;
+    }
+
+    private static int hash(long hi, long lo) {
+        long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static long encode(LocalDateTime value) {
+        return value != null ? Timestamps.encode(value) : NO_TIME;
+    }
+
+    private static LocalDateTime decode(long micros) {
+        return micros != NO_TIME ? Timestamps.decode(micros) : null;
+    }
+}
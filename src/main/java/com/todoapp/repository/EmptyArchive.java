@@ -0,0 +1,30 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import java.util.List;
+
+/**
+ * The archive of a repository that keeps every todo in the working set.
+ */
+final class EmptyArchive implements TodoArchive {
+    static final EmptyArchive INSTANCE = new EmptyArchive();
+
+    private EmptyArchive() {
+    }
+
+    @Override
+    public int count() {
+        return 0;
+    }
+
+    @Override
+    public Page page(PageCursor cursor, int limit) {
+        CachedTodoRepository.checkPageArguments(cursor, limit, SortKey.CREATED_AT);
+        return new Page(List.of(), null);
+    }
+
+    @Override
+    public List<Todo> search(String query, int limit) {
+        return List.of();
+    }
+}
@@ -0,0 +1,135 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.TodoId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * A listener plus the events it hasn't been handed yet. One batch is in
+ * flight at a time, so the listener sees events in order even on a
+ * multi-threaded executor. Events that arrive while it is busy are merged
+ * per todo, which keeps a slow listener's backlog bounded by the number of
+ * todos touched rather than the number of writes.
+ */
+final class EventSubscription implements TodoSubscription {
+    // A run of single-todo events keyed by id, or one BULK event; runs are split by bulks to keep order
+    private static final class Segment {
+        final Map<TodoId, TodoEvent> byId;
+        TodoEvent bulk;
+
+        Segment(TodoEvent bulk) {
+            this.byId = bulk == null ? new LinkedHashMap<>() : null;
+            this.bulk = bulk;
+        }
+    }
+
+    private final Executor executor;
+    private final Consumer<List<TodoEvent>> listener;
+    private final Consumer<EventSubscription> onClose;
+
+    // Guarded by this
+    private final Deque<Segment> pending = new ArrayDeque<>();
+    private long pendingSeq;
+    private boolean scheduled = false;
+
+    private volatile long deliveredSeq;
+    private volatile boolean closed = false;
+
+    EventSubscription(long fromSeq, Executor executor, Consumer<List<TodoEvent>> listener,
+                      Consumer<EventSubscription> onClose) {
+        this.executor = executor;
+        this.listener = listener;
+        this.onClose = onClose;
+        this.pendingSeq = fromSeq;
+        this.deliveredSeq = fromSeq;
+    }
+
+    // Called with the cache's write lock held, so events arrive in sequence order
+    synchronized void enqueue(TodoEvent event) {
+        pendingSeq = event.getSeq();
+        Segment last = pending.peekLast();
+        if (event.getType() == TodoEvent.Type.BULK) {
+            if (last != null && last.bulk != null) {
+                last.bulk = TodoEvent.merge(last.bulk, event);
+            } else {
+                pending.addLast(new Segment(event));
+            }
+            return;
+        }
+        if (last == null || last.byId == null) {
+            last = new Segment(null);
+            pending.addLast(last);
+        }
+        // Removed and re-added so the run stays in sequence order
+        TodoEvent earlier = last.byId.remove(event.getKey());
+        TodoEvent merged = earlier != null ? TodoEvent.merge(earlier, event) : event;
+        if (merged != null) last.byId.put(event.getKey(), merged);
+    }
+
+    // Called after the write lock is released, so an executor that runs tasks inline can't deadlock
+    void dispatch() {
+        synchronized (this) {
+            if (scheduled || closed || pending.isEmpty()) return;
+            scheduled = true;
+        }
+        submit();
+    }
+
+    private void submit() {
+        try {
+            executor.execute(this::deliver);
+        } catch (RejectedExecutionException e) {
+            System.err.println("Event executor rejected delivery, closing subscription: " + e.getMessage());
+            close();
+        }
+    }
+
+    private void deliver() {
+        List<TodoEvent> batch = new ArrayList<>();
+        long seq;
+        synchronized (this) {
+            if (closed) return;
+            for (Segment segment : pending) {
+                if (segment.bulk != null) batch.add(segment.bulk);
+                else batch.addAll(segment.byId.values());
+            }
+            pending.clear();
+            seq = pendingSeq;
+        }
+        try {
+            if (!batch.isEmpty()) listener.accept(batch);
+        } catch (RuntimeException e) {
+            System.err.println("Todo event listener failed: " + e.getMessage());
+        }
+        deliveredSeq = seq;
+        // Whatever arrived meanwhile goes out as the next batch, rather than looping and hogging the executor
+        boolean more;
+        synchronized (this) {
+            more = !closed && !pending.isEmpty();
+            scheduled = more;
+        }
+        if (more) submit();
+    }
+
+    @Override
+    public long getDeliveredSeq() {
+        return deliveredSeq;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            pending.clear();
+        }
+        onClose.accept(this);
+    }
+}
@@ -0,0 +1,84 @@
+package com.todoapp.repository;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns free-form search input into an FTS5 MATCH expression. Quoted text is
+ * matched as an exact phrase; every other word matches as a prefix, so results
+ * update while typing. Every term is quoted, so FTS5 operators in user input
+ * are matched literally.
+ */
+final class FtsQuery {
+
+    private FtsQuery() {
+    }
+
+    // A word or quoted phrase from the input; prefix unless it was a closed phrase
+    record Term(String text, boolean prefix) {}
+
+    // Returns null when the input contains nothing searchable
+    static String build(String input) {
+        List<String> quoted = new ArrayList<>();
+        for (Term term : terms(input)) {
+            quoted.add('"' + term.text().replace("\"", "") + '"' + (term.prefix() ? "*" : ""));
+        }
+        return quoted.isEmpty() ? null : String.join(" ", quoted);
+    }
+
+    // The searchable terms in the input, in order
+    static List<Term> terms(String input) {
+        List<Term> terms = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        boolean inPhrase = false;
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '"') {
+                addTerm(terms, word.toString(), !inPhrase);
+                word.setLength(0);
+                inPhrase = !inPhrase;
+            } else if (Character.isWhitespace(c) && !inPhrase) {
+                addTerm(terms, word.toString(), true);
+                word.setLength(0);
+            } else {
+                word.append(c);
+            }
+        }
+
+        // An unterminated phrase is still being typed, so it matches as a prefix too
+        addTerm(terms, word.toString(), true);
+        return terms;
+    }
+
+    private static void addTerm(List<Term> terms, String raw, boolean prefix) {
+        String text = raw.replace("*", " ").trim();
+        if (text.isEmpty() || text.chars().noneMatch(Character::isLetterOrDigit)) return;
+        terms.add(new Term(text, prefix));
+    }
+
+    // Lower case without accents, words separated by single spaces, as the FTS tokenizer sees them
+    static String normalize(String value) {
+        String text = value.toLowerCase(Locale.ROOT);
+        if (!text.chars().allMatch(c -> c < 128)) {
+            text = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                out.append(c);
+                space = false;
+            } else if (!space) {
+                out.append(' ');
+                space = true;
+            }
+        }
+        int length = out.length();
+        if (length > 0 && out.charAt(length - 1) == ' ') out.setLength(length - 1);
+        return out.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The default store: Todo objects in concurrent maps keyed by {@link TodoId}, plus a {@link TodoIndex},
+ * so every lookup is an index probe. Insertion order is kept by giving each id
+ * a sequence number on first insert. Todos are immutable, so the full list is
+ * materialized at most once between writes and shared by every reader.
+ */
+class IndexedTodoStore implements TodoStore {
+    private record Entry(long seq, Todo todo) {}
+    private record Snapshot(long writeCount, List<Todo> todos) {}
+
+    private final Map<TodoId, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Todo> inOrder = new ConcurrentSkipListMap<>();
+    private final TodoIndex index = new TodoIndex();
+    private long nextSeq = 0;
+    private volatile long writeCount = 0;
+    private volatile Snapshot snapshot = new Snapshot(0, List.of());
+
+    @Override
+    public Todo get(TodoId todoId) {
+        Entry entry = byId.get(todoId);
+        return entry != null ? entry.todo() : null;
+    }
+
+    @Override
+    public int size() {
+        return byId.size();
+    }
+
+    @Override
+    public List<Todo> values() {
+        Snapshot current = snapshot;
+        long writes = writeCount;
+        if (current.writeCount() == writes) return current.todos();
+        // Reading the count first means the copy is at least as new as the count it is tagged with
+        current = new Snapshot(writes, List.copyOf(inOrder.values()));
+        snapshot = current;
+        return current.todos();
+    }
+
+    @Override
+    public Todo put(Todo todo) {
+        Entry existing = byId.get(todo.getKey());
+        long seq = existing != null ? existing.seq() : nextSeq++;
+        byId.put(todo.getKey(), new Entry(seq, todo));
+        inOrder.put(seq, todo);
+        Todo previous = existing != null ? existing.todo() : null;
+        index.update(previous, todo);
+        writeCount++;
+        return previous;
+    }
+
+    @Override
+    public Todo remove(TodoId todoId) {
+        Entry removed = byId.remove(todoId);
+        if (removed == null) return null;
+        inOrder.remove(removed.seq());
+        index.remove(removed.todo());
+        writeCount++;
+        return removed.todo();
+    }
+
+    @Override
+    public int completedCount() {
+        return index.completedCount();
+    }
+
+    @Override
+    public int overdueCount(LocalDateTime now) {
+        return index.overdueCount(now);
+    }
+
+    @Override
+    public LocalDateTime nextPendingDue(LocalDateTime instant) {
+        return index.nextPendingDue(instant);
+    }
+
+    @Override
+    public Map<String, Integer> categoryCounts() {
+        return index.categoryCounts();
+    }
+
+    @Override
+    public List<String> categories() {
+        return index.categories();
+    }
+
+    @Override
+    public List<Todo> inCategory(String category) {
+        return index.inCategory(category);
+    }
+
+    @Override
+    public List<Todo> dueBetween(LocalDateTime from, LocalDateTime to) {
+        return index.dueBetween(from, to);
+    }
+
+    @Override
+    public List<Todo> pendingDueBefore(LocalDateTime instant) {
+        return index.pendingDueBefore(instant);
+    }
+
+    @Override
+    public List<Todo> query(TodoQuery query) {
+        return index.query(query, size());
+    }
+
+    @Override
+    public QueryPlan plan(TodoQuery query) {
+        return index.plan(query, size());
+    }
+
+    @Override
+    public Page page(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter) {
+        List<Todo> items = new ArrayList<>(Math.min(limit, 256));
+        Iterator<Todo> todos = index.after(sortKey, cursor);
+        while (todos.hasNext()) {
+            Todo todo = todos.next();
+            if (!filter.matches(todo)) continue;
+            if (items.size() == limit) {
+                return new Page(items, PageCursor.after(sortKey, items.get(items.size() - 1)));
+            }
+            items.add(todo);
+        }
+        return new Page(items, null);
+    }
+}
@@ -0,0 +1,160 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary record layout of the todo log used by {@link LogTodoRepository}.
+ *
+ * <pre>
+ * record    := length:int  crc:int  payload          (length and CRC-32C cover the payload)
+ * payload   := kind:byte  idHigh:long  idLow:long  textIdLength:short  textId
+ *              [done:byte  time:long  createdAt:long  updatedAt:long
+ *               categoryLength:short  category  titleLength:int  title  version:int]   (puts only)
+ * </pre>
+ *
+ * Timestamps are epoch micros, with {@link Long#MIN_VALUE} for null. A
+ * length of -1 marks a null category, or an id that is a UUID and so has no
+ * text. A zero length word is the end of the log. Puts written before todos
+ * had versions end after the title and read as version 1.
+ */
+final class LogRecords {
+    static final int HEADER_SIZE = 8;
+    static final byte PUT = 1;
+    static final byte TOMBSTONE = 2;
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int ID_SIZE = 1 + 8 + 8 + 2;
+    private static final int FIXED_PUT_SIZE = ID_SIZE + 1 + 8 + 8 + 8 + 2 + 4 + 4;
+
+    private LogRecords() {
+    }
+
+    static byte[] put(Todo todo) {
+        byte[] textId = textId(todo.getKey());
+        byte[] title = todo.getTitle().getBytes(StandardCharsets.UTF_8);
+        byte[] category = todo.getCategory() != null ? todo.getCategory().getBytes(StandardCharsets.UTF_8) : null;
+        if (category != null && category.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Category is too long: " + category.length + " bytes");
+        }
+        int payload = FIXED_PUT_SIZE + length(textId) + title.length + length(category);
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + payload);
+        out.position(HEADER_SIZE);
+        writeId(out, PUT, todo.getKey(), textId);
+        out.put((byte) (todo.isDone() ? 1 : 0));
+        out.putLong(encode(todo.getTime()));
+        out.putLong(encode(todo.getCreatedAt()));
+        out.putLong(encode(todo.getUpdatedAt()));
+        out.putShort((short) (category != null ? category.length : -1));
+        if (category != null) out.put(category);
+        out.putInt(title.length);
+        out.put(title);
+        out.putInt(todo.getVersion());
+        return seal(out, payload);
+    }
+
+    static byte[] tombstone(TodoId id) {
+        byte[] textId = textId(id);
+        int payload = ID_SIZE + length(textId);
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + payload);
+        out.position(HEADER_SIZE);
+        writeId(out, TOMBSTONE, id, textId);
+        return seal(out, payload);
+    }
+
+    // Size of the record at offset including its header, 0 at the end of the log, or -1 if it is torn
+    static int check(ByteBuffer log, int offset) {
+        if (offset + HEADER_SIZE > log.limit()) return 0;
+        int payload = log.getInt(offset);
+        if (payload == 0) return 0;
+        if (payload < ID_SIZE || payload > log.limit() - offset - HEADER_SIZE) return -1;
+        CRC32C crc = new CRC32C();
+        crc.update(log.slice(offset + HEADER_SIZE, payload));
+        return (int) crc.getValue() == log.getInt(offset + 4) ? HEADER_SIZE + payload : -1;
+    }
+
+    static int size(ByteBuffer log, int offset) {
+        return HEADER_SIZE + log.getInt(offset);
+    }
+
+    static boolean isTombstone(ByteBuffer log, int offset) {
+        return log.get(offset + HEADER_SIZE) == TOMBSTONE;
+    }
+
+    static TodoId readId(ByteBuffer log, int offset) {
+        int pos = offset + HEADER_SIZE + 1;
+        long high = log.getLong(pos);
+        long low = log.getLong(pos + 8);
+        short textLength = log.getShort(pos + 16);
+        if (textLength < 0) return TodoId.of(high, low);
+        return TodoId.of(readString(log, pos + 18, textLength));
+    }
+
+    static Todo read(ByteBuffer log, int offset) {
+        TodoId id = readId(log, offset);
+        int pos = offset + HEADER_SIZE + ID_SIZE + Math.max(log.getShort(offset + HEADER_SIZE + 17), 0);
+        boolean done = log.get(pos) != 0;
+        LocalDateTime time = decode(log.getLong(pos + 1));
+        LocalDateTime createdAt = decode(log.getLong(pos + 9));
+        LocalDateTime updatedAt = decode(log.getLong(pos + 17));
+        pos += 25;
+        short categoryLength = log.getShort(pos);
+        pos += 2;
+        String category = categoryLength >= 0 ? readString(log, pos, categoryLength) : null;
+        pos += Math.max(categoryLength, 0);
+        int titleLength = log.getInt(pos);
+        String title = readString(log, pos + 4, titleLength);
+        pos += 4 + titleLength;
+        int end = offset + HEADER_SIZE + log.getInt(offset);
+        int version = pos + 4 <= end ? log.getInt(pos) : 1;
+        return new Todo(id, title, done, time, createdAt, updatedAt, category, version);
+    }
+
+    private static void writeId(ByteBuffer out, byte kind, TodoId id, byte[] textId) {
+        out.put(kind);
+        out.putLong(id.getHigh());
+        out.putLong(id.getLow());
+        out.putShort((short) (textId != null ? textId.length : -1));
+        if (textId != null) out.put(textId);
+    }
+
+    private static byte[] seal(ByteBuffer out, int payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(out.array(), HEADER_SIZE, payload);
+        out.putInt(0, payload);
+        out.putInt(4, (int) crc.getValue());
+        return out.array();
+    }
+
+    private static byte[] textId(TodoId id) {
+        if (id.isUuid()) return null;
+        byte[] text = id.toString().getBytes(StandardCharsets.UTF_8);
+        if (text.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Todo id is too long: " + text.length + " bytes");
+        }
+        return text;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    private static String readString(ByteBuffer log, int offset, int length) {
+        byte[] bytes = new byte[length];
+        log.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long encode(LocalDateTime value) {
+        return value != null ? Timestamps.encode(value) : NO_TIME;
+    }
+
+    private static LocalDateTime decode(long value) {
+        return value != NO_TIME ? Timestamps.decode(value) : null;
+    }
+}
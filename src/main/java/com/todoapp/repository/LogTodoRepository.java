@@ -0,0 +1,495 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Repository backed by an append-only, memory-mapped record log instead of
+ * SQLite; {@link LogRecords} describes the record layout. A save appends the
+ * whole todo and a delete appends a tombstone, and an offset index maps each
+ * live id to its latest record. Reads are served by the cache.
+ *
+ * <p>Once at least half of the log is superseded records and tombstones, a
+ * background thread copies the live records into a fresh file and swaps it
+ * in. On open the log is replayed up to the first record whose checksum
+ * fails, which after a crash can only be a torn final write; everything from
+ * there on is cleared.
+ *
+ * <p>With {@code --synchronous=FULL} (the durable profile) each write is
+ * forced to disk before it returns. Otherwise a write survives a crash of the
+ * process at once and a crash of the machine after the next checkpoint
+ * interval or {@link #flush()}. The log is not safe to share between
+ * processes, so opening takes an exclusive lock on a {@code .lock} file next
+ * to it and fails if another repository already holds it.
+ */
+public class LogTodoRepository extends CachedTodoRepository {
+    private static final System.Logger LOG = System.getLogger(LogTodoRepository.class.getName());
+    private static final String DEFAULT_PATH = "todos.log";
+    // "TODOLOG" then the format version
+    private static final long MAGIC = 0x544F444F4C4F4701L;
+    private static final int FILE_HEADER_SIZE = 16;
+    private static final int INITIAL_MAPPING_BYTES = 1 << 20;
+    private static final int MAX_LOG_BYTES = Integer.MAX_VALUE - 8;
+    private static final double COMPACTION_DEAD_RATIO = 0.5;
+    private static final int MIN_COMPACTION_BYTES = 1 << 20;
+
+    private final Path path;
+    private final Path compactionPath;
+    private final Path lockPath;
+    private final boolean syncEachWrite;
+    private final boolean syncPeriodically;
+    private final long syncIntervalNanos;
+
+    // Guards the file, the mapping and the offset index. The cache is written under it too, so it sees writes in log order.
+    private final Object writeLock = new Object();
+    private FileChannel lockChannel;
+    private FileChannel channel;
+    private MappedByteBuffer log;
+    private int tail;
+    // Id to the offset of its latest record
+    private Map<TodoId, Integer> offsets = new HashMap<>();
+    // Bytes taken by superseded records and tombstones
+    private long deadBytes;
+    private boolean unsynced;
+    private long lastSync = System.nanoTime();
+
+    private final ScheduledExecutorService maintenance;
+
+    public LogTodoRepository() {
+        this(RepositoryConfig.defaults());
+    }
+
+    public LogTodoRepository(RepositoryConfig config) {
+        this(Path.of(config.getDatabasePath() != null ? config.getDatabasePath() : DEFAULT_PATH), config);
+    }
+
+    public LogTodoRepository(Path path, RepositoryConfig config) {
+        super(config);
+        this.path = path;
+        this.compactionPath = path.resolveSibling(path.getFileName() + ".compact");
+        this.lockPath = path.resolveSibling(path.getFileName() + ".lock");
+        String synchronous = config.getStorage().getSynchronous();
+        syncEachWrite = synchronous.equals("FULL") || synchronous.equals("EXTRA");
+        syncPeriodically = !synchronous.equals("OFF");
+        syncIntervalNanos = TimeUnit.SECONDS.toNanos(config.getStorage().getCheckpointIntervalSeconds());
+        try {
+            open();
+            loadCache();
+        } catch (IOException e) {
+            closeQuietly(channel);
+            closeQuietly(lockChannel);
+            throw new RuntimeException("Failed to open todo log " + path, e);
+        }
+        finishLoading();
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "todo-log-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private void open() throws IOException {
+        // Compaction swaps in a new file, so the lock is taken on one that stays put. Taken first, so a
+        // second instance can't delete the first one's compaction file below.
+        lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another repository in this process
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException(path + " is already open in another repository or process");
+        }
+        // Left behind by a compaction that was interrupted before the swap
+        Files.deleteIfExists(compactionPath);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size > MAX_LOG_BYTES) {
+            throw new IOException("Todo log is larger than " + MAX_LOG_BYTES + " bytes");
+        }
+        log = map(channel, mappingSize(size));
+        if (log.getLong(0) == 0) {
+            log.putLong(0, MAGIC);
+            log.force();
+        } else if (log.getLong(0) != MAGIC) {
+            throw new IOException(path + " is not a todo log");
+        }
+    }
+
+    private void loadCache() {
+        int pos = FILE_HEADER_SIZE;
+        int size;
+        while ((size = LogRecords.check(log, pos)) > 0) {
+            TodoId id = LogRecords.readId(log, pos);
+            Integer previous;
+            if (LogRecords.isTombstone(log, pos)) {
+                previous = offsets.remove(id);
+                deadBytes += size;
+            } else {
+                previous = offsets.put(id, pos);
+            }
+            if (previous != null) deadBytes += LogRecords.size(log, previous);
+            pos += size;
+        }
+        tail = pos;
+        if (size < 0) {
+            System.err.printf("Discarding a torn record at offset %d of %s%n", pos, path);
+        }
+        if (clearFrom(pos)) log.force();
+
+        // Only the latest record of each id is decoded, in the order SqliteTodoRepository loads rows
+        List<Todo> loaded = new ArrayList<>(offsets.size());
+        for (int offset : offsets.values()) {
+            loaded.add(LogRecords.read(log, offset));
+        }
+        loaded.sort(Comparator.comparing(Todo::getCreatedAt).reversed());
+        cache.putAllAbsent(loaded);
+    }
+
+    // Zeroes everything after the last good record, so a shorter record written there later can't run into leftovers
+    private boolean clearFrom(int from) {
+        boolean cleared = false;
+        int limit = log.limit();
+        int pos = from;
+        for (; pos < limit && (pos & 7) != 0; pos++) {
+            if (log.get(pos) != 0) {
+                log.put(pos, (byte) 0);
+                cleared = true;
+            }
+        }
+        for (; pos + 8 <= limit; pos += 8) {
+            if (log.getLong(pos) != 0) {
+                log.putLong(pos, 0);
+                cleared = true;
+            }
+        }
+        return cleared;
+    }
+
+    @Override
+    public Todo saveTodo(Todo todo) {
+        synchronized (writeLock) {
+            Todo saved = nextVersion(todo);
+            try {
+                int offset = append(LogRecords.put(saved));
+                Integer previous = offsets.put(saved.getKey(), offset);
+                if (previous != null) deadBytes += LogRecords.size(log, previous);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save todo", e);
+            }
+            cache.put(saved);
+            return saved;
+        }
+    }
+
+    @Override
+    public boolean deleteTodo(String todoId) {
+        TodoId id = TodoId.of(todoId);
+        synchronized (writeLock) {
+            Integer previous = offsets.get(id);
+            if (previous == null) return false;
+            try {
+                byte[] record = LogRecords.tombstone(id);
+                append(record);
+                deadBytes += LogRecords.size(log, previous) + record.length;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to delete todo", e);
+            }
+            offsets.remove(id);
+            cache.remove(id);
+        }
+        return true;
+    }
+
+    // The batch's records go into the log as one write, so a failed write leaves none of them. A crash
+    // that tears the write keeps the records up to the tear, as replay stops at the first bad checksum.
+    @Override
+    public List<Todo> updateTodos(Collection<String> todoIds, UnaryOperator<Todo> change) {
+        synchronized (writeLock) {
+            List<Todo> saved = nextVersions(todoIds, change);
+            if (saved.isEmpty()) return saved;
+            List<byte[]> records = new ArrayList<>(saved.size());
+            for (Todo todo : saved) records.add(LogRecords.put(todo));
+            try {
+                int offset = append(concat(records));
+                for (int i = 0; i < saved.size(); i++) {
+                    Integer previous = offsets.put(saved.get(i).getKey(), offset);
+                    if (previous != null) deadBytes += LogRecords.size(log, previous);
+                    offset += records.get(i).length;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save todos", e);
+            }
+            cache.applyBatch(saved, List.of());
+            return saved;
+        }
+    }
+
+    @Override
+    public int deleteTodos(Collection<String> todoIds) {
+        synchronized (writeLock) {
+            List<TodoId> ids = new ArrayList<>();
+            List<byte[]> records = new ArrayList<>();
+            for (Todo todo : cachedTodos(todoIds)) {
+                ids.add(todo.getKey());
+                records.add(LogRecords.tombstone(todo.getKey()));
+            }
+            if (ids.isEmpty()) return 0;
+            try {
+                byte[] batch = concat(records);
+                append(batch);
+                deadBytes += batch.length;
+                for (TodoId id : ids) {
+                    Integer previous = offsets.remove(id);
+                    if (previous != null) deadBytes += LogRecords.size(log, previous);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to delete todos", e);
+            }
+            cache.applyBatch(List.of(), ids);
+            return ids.size();
+        }
+    }
+
+    private static byte[] concat(List<byte[]> records) {
+        int size = 0;
+        for (byte[] record : records) size += record.length;
+        ByteBuffer batch = ByteBuffer.allocate(size);
+        for (byte[] record : records) batch.put(record);
+        return batch.array();
+    }
+
+    // Caller holds writeLock; returns the offset the record was written at
+    private int append(byte[] record) throws IOException {
+        if (record.length > log.limit() - tail) {
+            long required = (long) tail + record.length;
+            if (required > MAX_LOG_BYTES) {
+                throw new IOException("Todo log is full (" + MAX_LOG_BYTES + " bytes)");
+            }
+            // Mapping past the end of the file grows it; the old mapping stays valid for readers that hold it
+            log = map(channel, mappingSize(required));
+        }
+        int offset = tail;
+        log.put(offset, record);
+        tail += record.length;
+        if (syncEachWrite) {
+            log.force(offset, record.length);
+        } else {
+            unsynced = true;
+        }
+        return offset;
+    }
+
+    @Override
+    public void flush() {
+        sync();
+    }
+
+    private void sync() {
+        MappedByteBuffer current;
+        synchronized (writeLock) {
+            if (!unsynced) return;
+            current = log;
+            unsynced = false;
+            lastSync = System.nanoTime();
+        }
+        // Outside the lock so writers aren't held up by the disk
+        current.force();
+    }
+
+    private void maintain() {
+        try {
+            if (syncPeriodically && System.nanoTime() - lastSync >= syncIntervalNanos) {
+                sync();
+            }
+            compactIfNeeded();
+        } catch (RuntimeException e) {
+            System.err.println("Todo log maintenance failed: " + e.getMessage());
+        }
+    }
+
+    private void compactIfNeeded() {
+        int size;
+        long dead;
+        synchronized (writeLock) {
+            size = tail;
+            dead = deadBytes;
+        }
+        if (size < MIN_COMPACTION_BYTES || dead < size * COMPACTION_DEAD_RATIO) return;
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("Todo log compaction failed: " + e.getMessage());
+            try {
+                Files.deleteIfExists(compactionPath);
+            } catch (IOException ignored) {
+                // Removed on the next open
+            }
+        }
+    }
+
+    // Copies the live records into a new file without blocking writers, then takes the lock
+    // only to copy what was appended meanwhile and to swap the files.
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        MappedByteBuffer source;
+        int copiedUpTo;
+        int[] liveOffsets;
+        synchronized (writeLock) {
+            source = log;
+            copiedUpTo = tail;
+            liveOffsets = offsets.values().stream().mapToInt(Integer::intValue).sorted().toArray();
+        }
+        int sizeBefore = copiedUpTo;
+
+        Map<TodoId, Integer> compacted = new HashMap<>();
+        FileChannel out = FileChannel.open(compactionPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean swapped = false;
+        try {
+            writeFully(out, ByteBuffer.allocate(FILE_HEADER_SIZE).putLong(0, MAGIC));
+            int position = FILE_HEADER_SIZE;
+            for (int offset : liveOffsets) {
+                int size = LogRecords.size(source, offset);
+                writeFully(out, source.slice(offset, size));
+                compacted.put(LogRecords.readId(source, offset), position);
+                position += size;
+            }
+
+            synchronized (writeLock) {
+                // Records appended since the snapshot go across unchanged, tombstones included
+                for (int pos = copiedUpTo; pos < tail; ) {
+                    int size = LogRecords.size(log, pos);
+                    TodoId id = LogRecords.readId(log, pos);
+                    if (LogRecords.isTombstone(log, pos)) {
+                        compacted.remove(id);
+                    } else {
+                        compacted.put(id, position + pos - copiedUpTo);
+                    }
+                    pos += size;
+                }
+                writeFully(out, log.slice(copiedUpTo, tail - copiedUpTo));
+                int newTail = position + tail - copiedUpTo;
+                out.force(true);
+                // Mapped before the rename, so a failure here leaves the current log in use
+                MappedByteBuffer compactedLog = map(out, mappingSize(newTail));
+
+                long liveBytes = 0;
+                for (int offset : offsets.values()) {
+                    liveBytes += LogRecords.size(log, offset);
+                }
+                Files.move(compactionPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                syncDirectory();
+
+                FileChannel previous = channel;
+                channel = out;
+                log = compactedLog;
+                tail = newTail;
+                offsets = compacted;
+                deadBytes = newTail - FILE_HEADER_SIZE - liveBytes;
+                swapped = true;
+                previous.close();
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                LOG.log(Level.DEBUG, () -> String.format("Compacted %s from %d to %d bytes in %d ms",
+                        path, sizeBefore, newTail, millis));
+            }
+        } finally {
+            if (!swapped) out.close();
+        }
+    }
+
+    // Makes the rename itself durable; not every platform can open a directory for this
+    private void syncDirectory() {
+        Path directory = path.toAbsolutePath().getParent();
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+            // The rename still happened; it just may not survive a power loss
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel file, int size) throws IOException {
+        return file.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    // Room for at least half as much again, in power-of-two steps so growth is amortized
+    private static int mappingSize(long required) {
+        long size = INITIAL_MAPPING_BYTES;
+        while (size < required + required / 2) {
+            size *= 2;
+        }
+        return (int) Math.min(size, MAX_LOG_BYTES);
+    }
+
+    @Override
+    public List<Todo> searchTodos(String query, int limit) {
+        if (query == null || query.trim().isEmpty() || limit <= 0) return List.of();
+        // No full-text index; the cache has every row
+        return scanTitles(query.trim(), limit);
+    }
+
+    @Override
+    public Page pageFromStore(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter) {
+        // The log has no ordered access path of its own; every live record is in the cache
+        return page(cursor, limit, sortKey, filter);
+    }
+
+    @Override
+    public void close() {
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writeLock) {
+            try {
+                log.force();
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close todo log: " + e.getMessage());
+            }
+            // Releases the lock
+            closeQuietly(lockChannel);
+        }
+    }
+
+    private static void closeQuietly(FileChannel file) {
+        if (file == null) return;
+        try {
+            file.close();
+        } catch (IOException ignored) {
+            // Nothing more to release
+        }
+    }
+}
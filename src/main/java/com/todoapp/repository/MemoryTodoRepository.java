@@ -0,0 +1,89 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Repository that lives entirely in the cache: a write is one cache update
+ * and nothing reaches the disk, so every todo is gone once it is closed. It
+ * is meant for load-testing the service layer without I/O. Search is a
+ * case-insensitive title scan.
+ */
+public class MemoryTodoRepository extends CachedTodoRepository {
+    // Makes the version check and the cache update one step
+    private final Object writeLock = new Object();
+
+    public MemoryTodoRepository() {
+        this(RepositoryConfig.defaults());
+    }
+
+    public MemoryTodoRepository(RepositoryConfig config) {
+        this(List.of(), config);
+    }
+
+    // Seeds the cache in one bulk insert rather than a save per todo
+    public MemoryTodoRepository(Collection<Todo> todos, RepositoryConfig config) {
+        super(config);
+        cache.putAllAbsent(todos);
+        finishLoading();
+    }
+
+    @Override
+    public Todo saveTodo(Todo todo) {
+        synchronized (writeLock) {
+            Todo saved = nextVersion(todo);
+            cache.put(saved);
+            return saved;
+        }
+    }
+
+    @Override
+    public boolean deleteTodo(String todoId) {
+        synchronized (writeLock) {
+            return cache.remove(TodoId.of(todoId));
+        }
+    }
+
+    @Override
+    public List<Todo> updateTodos(Collection<String> todoIds, UnaryOperator<Todo> change) {
+        synchronized (writeLock) {
+            List<Todo> saved = nextVersions(todoIds, change);
+            cache.applyBatch(saved, List.of());
+            return saved;
+        }
+    }
+
+    @Override
+    public int deleteTodos(Collection<String> todoIds) {
+        synchronized (writeLock) {
+            List<TodoId> ids = cachedTodos(todoIds).stream().map(Todo::getKey).toList();
+            cache.applyBatch(List.of(), ids);
+            return ids.size();
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Nothing to write
+    }
+
+    @Override
+    public List<Todo> searchTodos(String query, int limit) {
+        if (query == null || query.trim().isEmpty() || limit <= 0) return List.of();
+        return scanTitles(query.trim(), limit);
+    }
+
+    @Override
+    public Page pageFromStore(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter) {
+        // The cache is the store
+        return page(cursor, limit, sortKey, filter);
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,24 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import java.util.List;
+
+/**
+ * One page of todos and the cursor for the page after it (null on the last page).
+ */
+public final class Page {
+    private final List<Todo> items;
+    private final PageCursor nextCursor;
+
+    Page(List<Todo> items, PageCursor nextCursor) {
+        this.items = List.copyOf(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Todo> getItems() { return items; }
+    public PageCursor getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.time.LocalDateTime;
+
+/**
+ * Position after the last row of a page: the sort columns of that row plus
+ * its id. Pass it back to fetch the next page.
+ */
+public final class PageCursor {
+    private final SortKey sortKey;
+    private final String category;
+    private final LocalDateTime time;
+    private final LocalDateTime createdAt;
+    private final TodoId id;
+
+    private PageCursor(SortKey sortKey, String category, LocalDateTime time, LocalDateTime createdAt, TodoId id) {
+        this.sortKey = sortKey;
+        this.category = category;
+        this.time = time;
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    static PageCursor after(SortKey sortKey, Todo last) {
+        return new PageCursor(sortKey, last.getCategory(), last.getTime(), last.getCreatedAt(), last.getKey());
+    }
+
+    public SortKey getSortKey() { return sortKey; }
+    String getCategory() { return category; }
+    LocalDateTime getTime() { return time; }
+    LocalDateTime getCreatedAt() { return createdAt; }
+    TodoId getId() { return id; }
+}
@@ -0,0 +1,33 @@
+package com.todoapp.repository;
+
+/**
+ * How a {@link TodoQuery} is answered: where the candidate rows come from,
+ * about how many of them will be read, and whether they already arrive in
+ * the requested order, which lets a limit stop the read early. Candidates are
+ * always checked against the whole query.
+ */
+record QueryPlan(Access access, String detail, long estimatedRows, boolean ordered) {
+    enum Access {
+        // The cache's ordered set for the sort key, read from the start
+        SORTED_INDEX,
+        // The cache's set of one category's todos
+        CATEGORY_INDEX,
+        // A range of the cache's due-time index
+        DUE_INDEX,
+        // Every row of the compact store's columns
+        COLUMN_SCAN,
+        // The SQLite full-text index, with the rest of the query in the same statement
+        FTS,
+        // Nothing can match, so nothing is read
+        EMPTY
+    }
+
+    static QueryPlan empty(String reason) {
+        return new QueryPlan(Access.EMPTY, reason, 0, true);
+    }
+
+    @Override
+    public String toString() {
+        return access + " " + detail + " (~" + estimatedRows + " rows" + (ordered ? ", in order)" : ", then sorted)");
+    }
+}
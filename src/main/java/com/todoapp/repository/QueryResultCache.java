@@ -0,0 +1,46 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of the most recently used queries, each tagged with the cache
+ * version it was read at. Every write moves the version on, so a result is
+ * only served while nothing has changed since it was computed; there is no
+ * separate invalidation step for writers to forget.
+ */
+final class QueryResultCache {
+    private static final int CAPACITY = 64;
+    // Broad queries aren't kept, so a few of them can't pin copies of the whole list
+    private static final int MAX_ROWS = 10_000;
+
+    private record Entry(long version, List<Todo> todos) {}
+
+    // Access order, so the least recently used entry is the one pushed out
+    private final Map<TodoQuery, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TodoQuery, Entry> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    // Null unless the query was answered at this version
+    synchronized List<Todo> get(TodoQuery query, long version) {
+        Entry entry = entries.get(query);
+        if (entry == null) return null;
+        if (entry.version() != version) {
+            entries.remove(query);
+            return null;
+        }
+        return entry.todos();
+    }
+
+    // The caller read the version before running the query, so a write that overlapped it leaves the entry stale
+    synchronized void put(TodoQuery query, long version, List<Todo> todos) {
+        if (todos.size() <= MAX_ROWS) {
+            entries.put(query, new Entry(version, todos));
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.todoapp.repository;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Startup options for the repository layer. Built from the named
+ * command-line parameters, e.g. {@code --write-behind=true --flush-interval=250}.
+ */
+public final class RepositoryConfig {
+    // How the in-memory cache holds rows: Todo objects with indexes, or packed primitive columns
+    public enum CacheLayout { OBJECTS, COMPACT }
+    // Which repository TodoRepositories.open builds
+    public enum Backend { SQLITE, LOG, MEMORY }
+
+    private Backend backend = Backend.SQLITE;
+    // Null uses the backend's own file in the working directory; ":memory:" keeps a SQLite database in memory
+    private String databasePath;
+    private boolean writeBehind = false;
+    private long flushIntervalMillis = 250;
+    private int batchSize = 500;
+    private StorageSettings storage = StorageSettings.durable();
+    private int searchLimit = 100;
+    private CacheLayout cacheLayout = CacheLayout.OBJECTS;
+    // 0 writes the cache snapshot only on close
+    private long snapshotIntervalSeconds = 300;
+    // Rows loaded before the constructor returns; the rest load in the background. 0 loads everything up front.
+    private int firstPageSize = 50;
+    // How often to check for writes from other connections; 0 turns the check off
+    private long refreshIntervalMillis = 1000;
+    // Completed todos older than this move to the archive; 0 keeps them in the working set
+    private long archiveAfterDays = 30;
+
+    private RepositoryConfig() {
+    }
+
+    private RepositoryConfig(RepositoryConfig other) {
+        this.backend = other.backend;
+        this.databasePath = other.databasePath;
+        this.writeBehind = other.writeBehind;
+        this.flushIntervalMillis = other.flushIntervalMillis;
+        this.batchSize = other.batchSize;
+        this.storage = other.storage;
+        this.searchLimit = other.searchLimit;
+        this.cacheLayout = other.cacheLayout;
+        this.snapshotIntervalSeconds = other.snapshotIntervalSeconds;
+        this.firstPageSize = other.firstPageSize;
+        this.refreshIntervalMillis = other.refreshIntervalMillis;
+        this.archiveAfterDays = other.archiveAfterDays;
+    }
+
+    public static RepositoryConfig defaults() {
+        return new RepositoryConfig();
+    }
+
+    public static RepositoryConfig fromOptions(Map<String, String> options) {
+        RepositoryConfig config = new RepositoryConfig();
+        String backend = options.getOrDefault("backend", "sqlite").trim().toUpperCase(Locale.ROOT);
+        try {
+            config.backend = Backend.valueOf(backend);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown backend: " + options.get("backend"));
+        }
+        if (options.containsKey("db-path")) {
+            config.databasePath = checkPath(options.get("db-path"));
+        }
+        config.writeBehind = Boolean.parseBoolean(options.getOrDefault("write-behind", "false"));
+        config.flushIntervalMillis = parsePositiveLong(options, "flush-interval", config.flushIntervalMillis);
+        config.batchSize = (int) parsePositiveLong(options, "batch-size", config.batchSize);
+        config.storage = StorageSettings.fromOptions(options);
+        config.searchLimit = (int) parsePositiveLong(options, "search-limit", config.searchLimit);
+        String layout = options.getOrDefault("cache-layout", "objects").trim().toUpperCase(Locale.ROOT);
+        try {
+            config.cacheLayout = CacheLayout.valueOf(layout);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown cache layout: " + options.get("cache-layout"));
+        }
+        config.snapshotIntervalSeconds = parseLong(options, "snapshot-interval", config.snapshotIntervalSeconds, 0);
+        config.firstPageSize = (int) parseLong(options, "first-page-size", config.firstPageSize, 0);
+        config.refreshIntervalMillis = parseLong(options, "refresh-interval", config.refreshIntervalMillis, 0);
+        config.archiveAfterDays = parseLong(options, "archive-after", config.archiveAfterDays, 0);
+        return config;
+    }
+
+    public Backend getBackend() { return backend; }
+    public String getDatabasePath() { return databasePath; }
+    public boolean isWriteBehind() { return writeBehind; }
+    public long getFlushIntervalMillis() { return flushIntervalMillis; }
+    public int getBatchSize() { return batchSize; }
+    public StorageSettings getStorage() { return storage; }
+    public int getSearchLimit() { return searchLimit; }
+    public CacheLayout getCacheLayout() { return cacheLayout; }
+    public long getSnapshotIntervalSeconds() { return snapshotIntervalSeconds; }
+    public int getFirstPageSize() { return firstPageSize; }
+    public long getRefreshIntervalMillis() { return refreshIntervalMillis; }
+    public long getArchiveAfterDays() { return archiveAfterDays; }
+
+    public RepositoryConfig withBackend(Backend backend) {
+        RepositoryConfig copy = new RepositoryConfig(this);
+        copy.backend = backend;
+        return copy;
+    }
+
+    public RepositoryConfig withDatabasePath(String databasePath) {
+        RepositoryConfig copy = new RepositoryConfig(this);
+        copy.databasePath = checkPath(databasePath);
+        return copy;
+    }
+
+    public RepositoryConfig withWriteBehind(long flushIntervalMillis, int batchSize) {
+        if (flushIntervalMillis <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Flush interval and batch size must be positive");
+        }
+        RepositoryConfig copy = new RepositoryConfig(this);
+        copy.writeBehind = true;
+        copy.flushIntervalMillis = flushIntervalMillis;
+        copy.batchSize = batchSize;
+        return copy;
+    }
+
+    public RepositoryConfig withStorage(StorageSettings storage) {
+        RepositoryConfig copy = new RepositoryConfig(this);
+        copy.storage = storage;
+        return copy;
+    }
+
+    public RepositoryConfig withSearchLimit(int searchLimit) {
+        if (searchLimit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive");
+        }
+        RepositoryConfig copy = new RepositoryConfig(this);
+        copy.searchLimit = searchLimit;
+        return copy;
+    }
+
+    public RepositoryConfig withCacheLayout(CacheLayout cacheLayout) {
+        RepositoryConfig copy = new RepositoryConfig(this);
+        copy.cacheLayout = cacheLayout;
+        return copy;
+    }
+
+    public RepositoryConfig withSnapshotInterval(long snapshotIntervalSeconds) {
+        if (snapshotIntervalSeconds < 0) {
+            throw new IllegalArgumentException("Snapshot interval must not be negative");
+        }
+        RepositoryConfig copy = new RepositoryConfig(this);
+        copy.snapshotIntervalSeconds = snapshotIntervalSeconds;
+        return copy;
+    }
+
+    public RepositoryConfig withFirstPageSize(int firstPageSize) {
+        if (firstPageSize < 0) {
+            throw new IllegalArgumentException("First page size must not be negative");
+        }
+        RepositoryConfig copy = new RepositoryConfig(this);
+        copy.firstPageSize = firstPageSize;
+        return copy;
+    }
+
+    public RepositoryConfig withRefreshInterval(long refreshIntervalMillis) {
+        if (refreshIntervalMillis < 0) {
+            throw new IllegalArgumentException("Refresh interval must not be negative");
+        }
+        RepositoryConfig copy = new RepositoryConfig(this);
+        copy.refreshIntervalMillis = refreshIntervalMillis;
+        return copy;
+    }
+
+    public RepositoryConfig withArchiveAfter(long archiveAfterDays) {
+        if (archiveAfterDays < 0) {
+            throw new IllegalArgumentException("Archive age must not be negative");
+        }
+        RepositoryConfig copy = new RepositoryConfig(this);
+        copy.archiveAfterDays = archiveAfterDays;
+        return copy;
+    }
+
+    private static String checkPath(String path) {
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("Database path must not be blank");
+        }
+        return path.trim();
+    }
+
+    private static long parsePositiveLong(Map<String, String> options, String key, long defaultValue) {
+        return parseLong(options, key, defaultValue, 1);
+    }
+
+    private static long parseLong(Map<String, String> options, String key, long defaultValue, long min) {
+        String value = options.get(key);
+        if (value == null) return defaultValue;
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed < min) throw new NumberFormatException();
+            return parsed;
+        } catch (NumberFormatException e) {
+            String expected = min > 0 ? "a positive number" : "a non-negative number";
+            throw new IllegalArgumentException("Option --" + key + " must be " + expected + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned schema migrations, tracked in {@code PRAGMA user_version}.
+ *
+ * <p>Steps that change column types rebuild the table online. The old table
+ * is renamed to {@value #LEGACY_TABLE} and a fresh {@code todos} is created,
+ * which is O(1) however many rows there are. The rows are then copied across
+ * in small batches by {@link #backfillBatch} on a background thread. Until the
+ * legacy table is gone, readers must look in both tables and writers must
+ * delete the legacy copy of any row they write.
+ */
+final class SchemaMigrator {
+    // 1: ISO text timestamps, 2: INTEGER epoch-microsecond timestamps, 3: 16-byte BLOB ids,
+    // 4: a version column for optimistic concurrency
+    static final int CURRENT_VERSION = 4;
+    static final String LEGACY_TABLE = "todos_legacy";
+    static final String CHANGES_TABLE = "todo_changes";
+    static final String ARCHIVE_TABLE = "archived_todos";
+    static final String META_TABLE = "todo_meta";
+    static final String ARCHIVE_COUNT_KEY = "archived_count";
+
+    private SchemaMigrator() {
+    }
+
+    // Brings the schema to CURRENT_VERSION; returns true if rows are still waiting in the legacy table
+    static boolean migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            int version = userVersion(stmt);
+            if (version == 0 && tableExists(stmt, "todos")) {
+                // Databases created before versioning are at the first layout
+                version = 1;
+            }
+            if (version > CURRENT_VERSION) {
+                throw new SQLException("Database schema version " + version
+                        + " is newer than this application supports (" + CURRENT_VERSION + ")");
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                if (version == 0) {
+                    createSchema(stmt);
+                } else {
+                    for (int step = version + 1; step <= CURRENT_VERSION; step++) {
+                        applyStep(stmt, step);
+                    }
+                    createSchema(stmt);
+                }
+                stmt.execute("PRAGMA user_version = " + CURRENT_VERSION);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            return tableExists(stmt, LEGACY_TABLE);
+        }
+    }
+
+    private static void applyStep(Statement stmt, int version) throws SQLException {
+        switch (version) {
+            case 2, 3 -> moveToLegacyTable(stmt);
+            case 4 -> addVersionColumn(stmt);
+            default -> throw new SQLException("No migration to schema version " + version);
+        }
+    }
+
+    // Copies up to batchSize legacy rows into todos in one transaction; drops the legacy table once empty
+    static int backfillBatch(Connection conn, int batchSize) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement select = conn.prepareStatement(
+                     "SELECT rowid, " + TodoRows.LEGACY_COLUMNS + " FROM " + LEGACY_TABLE + " LIMIT ?");
+             PreparedStatement insert = conn.prepareStatement(
+                     "INSERT OR IGNORE INTO todos(" + TodoRows.COLUMNS + ") VALUES(?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement delete = conn.prepareStatement(
+                     "DELETE FROM " + LEGACY_TABLE + " WHERE rowid = ?")) {
+
+            select.setInt(1, batchSize);
+            List<Long> rowids = new ArrayList<>();
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    rowids.add(rs.getLong("rowid"));
+                    // A row already in todos was rewritten after the migration started and wins
+                    Todo todo = TodoRows.readLegacy(rs);
+                    TodoRows.bind(insert, todo);
+                    insert.addBatch();
+                }
+            }
+
+            if (rowids.isEmpty()) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("DROP TABLE " + LEGACY_TABLE);
+                }
+            } else {
+                insert.executeBatch();
+                for (long rowid : rowids) {
+                    delete.setLong(1, rowid);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+            }
+            conn.commit();
+            return rowids.size();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static void moveToLegacyTable(Statement stmt) throws SQLException {
+        // Already moved by an earlier step of this migration
+        if (!tableExists(stmt, "todos")) return;
+        // The search index, the triggers and the indexes are recreated for the new table
+        stmt.execute("DROP TRIGGER IF EXISTS todos_fts_insert");
+        stmt.execute("DROP TRIGGER IF EXISTS todos_fts_delete");
+        stmt.execute("DROP TRIGGER IF EXISTS todos_fts_update");
+        stmt.execute("DROP TABLE IF EXISTS todos_fts");
+        // Change triggers would follow the table through the rename
+        stmt.execute("DROP TRIGGER IF EXISTS todos_change_insert");
+        stmt.execute("DROP TRIGGER IF EXISTS todos_change_update");
+        stmt.execute("DROP TRIGGER IF EXISTS todos_change_delete");
+        stmt.execute("DROP TRIGGER IF EXISTS todos_version_bump");
+        List<String> indexes = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = 'todos' AND sql IS NOT NULL")) {
+            while (rs.next()) indexes.add(rs.getString(1));
+        }
+        for (String index : indexes) {
+            stmt.execute("DROP INDEX " + index);
+        }
+        if (tableExists(stmt, LEGACY_TABLE)) {
+            // An earlier rebuild (in this run or one that was interrupted) still has rows waiting.
+            // Fold todos into it, letting its rows win since they were written more recently.
+            stmt.execute("INSERT OR REPLACE INTO " + LEGACY_TABLE + "(" + TodoRows.LEGACY_COLUMNS + ") "
+                    + "SELECT " + TodoRows.LEGACY_COLUMNS + " FROM todos");
+            stmt.execute("DROP TABLE todos");
+        } else {
+            stmt.execute("ALTER TABLE todos RENAME TO " + LEGACY_TABLE);
+        }
+    }
+
+    // Adding a column with a constant default only rewrites the table definition, not the rows
+    private static void addVersionColumn(Statement stmt) throws SQLException {
+        // Not there if an earlier step of this migration moved it to the legacy table
+        if (!tableExists(stmt, "todos")) return;
+        stmt.execute("ALTER TABLE todos ADD COLUMN version INTEGER NOT NULL DEFAULT 1");
+    }
+
+    // Creates whatever part of the current schema is missing
+    private static void createSchema(Statement stmt) throws SQLException {
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS todos (
+                id BLOB PRIMARY KEY,
+                title TEXT NOT NULL,
+                done BOOLEAN NOT NULL DEFAULT 0,
+                time INTEGER,
+                created_at INTEGER NOT NULL,
+                updated_at INTEGER NOT NULL,
+                category TEXT DEFAULT 'General',
+                version INTEGER NOT NULL DEFAULT 1
+            )
+        """);
+        
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_todos_done ON todos(done)");
+        // Keyset pagination walks these in sort order, with id as the tiebreaker
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_todos_time ON todos(time, id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_todos_category ON todos(category, created_at, id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_todos_created ON todos(created_at, id)");
+        
+        // Writers that don't know about versions still move it, so their edits can't be silently overwritten
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS todos_version_bump AFTER UPDATE ON todos "
+                + "WHEN new.version = old.version BEGIN "
+                + "UPDATE todos SET version = old.version + 1 WHERE rowid = new.rowid; END");
+        
+        createSearchIndex(stmt);
+        createChangeLog(stmt);
+        createArchive(stmt);
+    }
+
+    // Every write to todos, from this process or any other, appends the id to todo_changes.
+    // AUTOINCREMENT keeps sequence numbers from being reused after the log is trimmed.
+    // A random database id tells files derived from this database apart from those of a recreated one.
+    private static void createChangeLog(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS " + META_TABLE + " (key TEXT PRIMARY KEY, value)");
+        stmt.execute("INSERT OR IGNORE INTO " + META_TABLE + " VALUES ('database_id', random())");
+        stmt.execute("CREATE TABLE IF NOT EXISTS " + CHANGES_TABLE + " (seq INTEGER PRIMARY KEY AUTOINCREMENT, id NOT NULL)");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS todos_change_insert AFTER INSERT ON todos BEGIN "
+                + "INSERT INTO " + CHANGES_TABLE + "(id) VALUES (new.id); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS todos_change_update AFTER UPDATE ON todos BEGIN "
+                + "INSERT INTO " + CHANGES_TABLE + "(id) VALUES (new.id); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS todos_change_delete AFTER DELETE ON todos BEGIN "
+                + "INSERT INTO " + CHANGES_TABLE + "(id) VALUES (old.id); END");
+    }
+
+    // Same columns as todos plus when the row was archived. Triggers keep an exact row count in todo_meta,
+    // so counting the archive never scans it. Upserts into it update in place and leave the count alone.
+    private static void createArchive(Statement stmt) throws SQLException {
+        stmt.execute("""
+            CREATE TABLE IF NOT EXISTS %s (
+                id BLOB PRIMARY KEY,
+                title TEXT NOT NULL,
+                done BOOLEAN NOT NULL DEFAULT 0,
+                time INTEGER,
+                created_at INTEGER NOT NULL,
+                updated_at INTEGER NOT NULL,
+                category TEXT DEFAULT 'General',
+                version INTEGER NOT NULL DEFAULT 1,
+                archived_at INTEGER NOT NULL
+            )
+        """.formatted(ARCHIVE_TABLE));
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_archived_created ON " + ARCHIVE_TABLE + "(created_at, id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_archived_updated ON " + ARCHIVE_TABLE + "(updated_at)");
+        stmt.execute("INSERT OR IGNORE INTO " + META_TABLE + " VALUES ('" + ARCHIVE_COUNT_KEY + "', "
+                + "(SELECT count(*) FROM " + ARCHIVE_TABLE + "))");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS archived_count_insert AFTER INSERT ON " + ARCHIVE_TABLE + " BEGIN "
+                + "UPDATE " + META_TABLE + " SET value = value + 1 WHERE key = '" + ARCHIVE_COUNT_KEY + "'; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS archived_count_delete AFTER DELETE ON " + ARCHIVE_TABLE + " BEGIN "
+                + "UPDATE " + META_TABLE + " SET value = value - 1 WHERE key = '" + ARCHIVE_COUNT_KEY + "'; END");
+    }
+
+    // FTS5 index over title and category, kept in sync with todos by triggers
+    private static void createSearchIndex(Statement stmt) throws SQLException {
+        boolean exists = tableExists(stmt, "todos_fts");
+        
+        stmt.execute("""
+            CREATE VIRTUAL TABLE IF NOT EXISTS todos_fts USING fts5(
+                title, category,
+                content = 'todos', content_rowid = 'rowid',
+                tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3'
+            )
+        """);
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS todos_fts_insert AFTER INSERT ON todos BEGIN
+                INSERT INTO todos_fts(rowid, title, category) VALUES (new.rowid, new.title, new.category);
+            END
+        """);
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS todos_fts_delete AFTER DELETE ON todos BEGIN
+                INSERT INTO todos_fts(todos_fts, rowid, title, category)
+                VALUES ('delete', old.rowid, old.title, old.category);
+            END
+        """);
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS todos_fts_update AFTER UPDATE OF title, category ON todos BEGIN
+                INSERT INTO todos_fts(todos_fts, rowid, title, category)
+                VALUES ('delete', old.rowid, old.title, old.category);
+                INSERT INTO todos_fts(rowid, title, category) VALUES (new.rowid, new.title, new.category);
+            END
+        """);
+        
+        // Tables that existed before the index need a one-off backfill
+        if (!exists) {
+            stmt.execute("INSERT INTO todos_fts(todos_fts) VALUES ('rebuild')");
+        }
+    }
+
+    static long databaseId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT value FROM " + META_TABLE + " WHERE key = 'database_id'")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static int userVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    static boolean tableExists(Statement stmt, String table) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+            return rs.next();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.todoapp.repository;
+
+/**
+ * Orderings supported by keyset pagination. Each one ends with the id as a
+ * tiebreaker, so every row has a unique position a cursor can resume from.
+ */
+public enum SortKey {
+    // Newest first, the order loadCache uses
+    CREATED_AT,
+    // Earliest due first; todos without a due date come last
+    TIME,
+    // Alphabetical by category, newest first within a category
+    CATEGORY
+}
@@ -0,0 +1,162 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@value SchemaMigrator#ARCHIVE_TABLE} table: todos moved out of
+ * {@code todos} by {@link SqliteTodoRepository#archiveCompleted}. The queries
+ * lock the connection themselves; {@link #moveCompleted} and {@link #take}
+ * expect the caller to hold it, since the cache has to change in the same step.
+ * The row count is read from the trigger-maintained counter in
+ * {@value SchemaMigrator#META_TABLE} after each change and kept in memory, so
+ * {@link #count()} never waits for the connection.
+ */
+final class SqliteArchive implements TodoArchive {
+    // One statement, so a row edited in between is either archived as it now is or not at all
+    private static final String MOVE_SQL = "DELETE FROM todos WHERE rowid IN "
+            + "(SELECT rowid FROM todos WHERE done = 1 AND updated_at < ? LIMIT ?) RETURNING " + TodoRows.COLUMNS;
+    // An id already archived (restored, then archived again by another connection) takes the newer copy
+    private static final String INSERT_SQL = "INSERT INTO " + SchemaMigrator.ARCHIVE_TABLE
+            + "(" + TodoRows.COLUMNS + ", archived_at) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT(id) DO UPDATE SET title = excluded.title, done = excluded.done, time = excluded.time, "
+            + "created_at = excluded.created_at, updated_at = excluded.updated_at, category = excluded.category, "
+            + "version = excluded.version, archived_at = excluded.archived_at";
+    private static final String TAKE_SQL = "DELETE FROM " + SchemaMigrator.ARCHIVE_TABLE
+            + " WHERE id = ? RETURNING " + TodoRows.COLUMNS;
+    private static final String COUNT_SQL = "SELECT value FROM " + SchemaMigrator.META_TABLE
+            + " WHERE key = '" + SchemaMigrator.ARCHIVE_COUNT_KEY + "'";
+    // Nothing indexes substrings, but walking updated_at backwards stops as soon as the limit is reached
+    private static final String SEARCH_SQL = "SELECT " + TodoRows.COLUMNS + " FROM " + SchemaMigrator.ARCHIVE_TABLE
+            + " WHERE title LIKE ? ESCAPE '\\' ORDER BY updated_at DESC LIMIT ?";
+
+    private final Connection connection;
+    private final AtomicInteger count = new AtomicInteger();
+
+    SqliteArchive(Connection connection) {
+        this.connection = connection;
+        reloadCount();
+    }
+
+    // Re-reads the stored counter after a commit that may have changed it. Caller holds the connection lock.
+    void reloadCount() {
+        try (PreparedStatement pstmt = connection.prepareStatement(COUNT_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            count.set(rs.next() ? rs.getInt(1) : 0);
+        } catch (SQLException e) {
+            // The archiving itself succeeded; only the displayed count is behind until the next change
+            System.err.println("Failed to count archived todos: " + e.getMessage());
+        }
+    }
+
+    // Moves up to limit todos completed before the cutoff, in one transaction, and returns them.
+    // Caller holds the connection lock.
+    List<Todo> moveCompleted(LocalDateTime completedBefore, int limit) throws SQLException {
+        List<Todo> moved = new ArrayList<>();
+        connection.setAutoCommit(false);
+        try (PreparedStatement move = connection.prepareStatement(MOVE_SQL);
+             PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+            move.setLong(1, Timestamps.encode(completedBefore));
+            move.setInt(2, limit);
+            try (ResultSet rs = move.executeQuery()) {
+                while (rs.next()) {
+                    moved.add(TodoRows.read(rs));
+                }
+            }
+            long archivedAt = Timestamps.encode(LocalDateTime.now());
+            for (Todo todo : moved) {
+                TodoRows.bind(insert, todo);
+                insert.setLong(9, archivedAt);
+                insert.addBatch();
+            }
+            if (!moved.isEmpty()) insert.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        if (!moved.isEmpty()) reloadCount();
+        return moved;
+    }
+
+    // Removes the todo from the archive and returns it, or null if it isn't there. Caller holds the
+    // connection lock and an open transaction.
+    Todo take(TodoId id) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(TAKE_SQL)) {
+            TodoRows.bindId(pstmt, 1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? TodoRows.read(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public int count() {
+        return count.get();
+    }
+
+    @Override
+    public Page page(PageCursor cursor, int limit) {
+        CachedTodoRepository.checkPageArguments(cursor, limit, SortKey.CREATED_AT);
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT " + TodoRows.COLUMNS + " FROM " + SchemaMigrator.ARCHIVE_TABLE);
+        if (cursor != null) {
+            sql.append(" WHERE ").append(SqliteTodoRepository.keysetCondition(cursor, params));
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        params.add(limit + 1);
+
+        List<Todo> items = new ArrayList<>(Math.min(limit, 256));
+        boolean more = false;
+        synchronized (connection) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    pstmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (items.size() == limit) {
+                            more = true;
+                            break;
+                        }
+                        items.add(TodoRows.read(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to page archived todos", e);
+            }
+        }
+        return SqliteTodoRepository.toPage(items, more, SortKey.CREATED_AT);
+    }
+
+    @Override
+    public List<Todo> search(String query, int limit) {
+        if (query == null || query.trim().isEmpty() || limit <= 0) return List.of();
+        String pattern = "%" + query.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        List<Todo> results = new ArrayList<>();
+        synchronized (connection) {
+            try (PreparedStatement pstmt = connection.prepareStatement(SEARCH_SQL)) {
+                pstmt.setString(1, pattern);
+                pstmt.setInt(2, limit);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        results.add(TodoRows.read(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to search archived todos", e);
+            }
+        }
+        return results;
+    }
+}
@@ -1,236 +1,1232 @@
 package com.todoapp.repository;
 
 import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.io.IOException;
+import java.lang.System.Logger.Level;
+import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
-public class SqliteTodoRepository implements TodoRepository {
-    private static final String DB_URL = "jdbc:sqlite:todos.db";
-    private final Map<String, Todo> todoCache = new LinkedHashMap<>();
+public class SqliteTodoRepository extends CachedTodoRepository {
+    private static final System.Logger LOG = System.getLogger(SqliteTodoRepository.class.getName());
+    private static final String DEFAULT_PATH = "todos.db";
+    private static final String MEMORY_PATH = ":memory:";
+
+    // Saves are conditional: a new todo only if the id is free, an edit only if the row is still at the
+    // version it was made from. Both leave the row alone otherwise, and the caller sees 0 rows changed.
+    private static final String INSERT_SQL = "INSERT INTO todos(" + TodoRows.COLUMNS + ") "
+            + "VALUES(?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT(id) DO NOTHING";
+    // Numbered so TodoRows.bind fills 1-8, with the expected version in 9. An update rather than
+    // INSERT OR REPLACE keeps the rowid stable, which the FTS index is keyed on.
+    private static final String UPDATE_SQL = """
+        UPDATE todos SET title = ?2, done = ?3, time = ?4, created_at = ?5, updated_at = ?6,
+            category = ?7, version = ?8
+        WHERE id = ?1 AND version = ?9
+    """;
+    private static final String SELECT_ROW_SQL = "SELECT " + TodoRows.COLUMNS + " FROM todos WHERE id = ?";
+    private static final String DELETE_SQL = "DELETE FROM todos WHERE id = ?";
+    private static final String DELETE_LEGACY_SQL = "DELETE FROM " + SchemaMigrator.LEGACY_TABLE + " WHERE id = ?";
+    private static final String LOAD_SQL = "SELECT " + TodoRows.COLUMNS + " FROM todos ORDER BY created_at DESC";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final int LOAD_CHUNK_SIZE = 5000;
+    // Each batch is its own transaction, so the UI waits on at most one of them
+    private static final int ARCHIVE_BATCH_SIZE = 500;
+    private static final long ARCHIVE_FIRST_RUN_SECONDS = 60;
+    private static final long ARCHIVE_INTERVAL_SECONDS = 3600;
+    private static final String CHANGE_SEQ_SQL =
+            "SELECT seq FROM sqlite_sequence WHERE name = '" + SchemaMigrator.CHANGES_TABLE + "'";
+    // One row per id written after the given sequence number, with null columns if it has since been deleted
+    private static final String CHANGED_ROWS_SQL = "SELECT c.id AS changed_id, t.* FROM "
+            + "(SELECT DISTINCT id FROM " + SchemaMigrator.CHANGES_TABLE + " WHERE seq > ?) c "
+            + "LEFT JOIN todos t ON t.id = c.id";
+    // Title matches weigh ten times more than category matches
+    private static final String SEARCH_SQL = """
+        SELECT t.id FROM todos_fts f JOIN todos t ON t.rowid = f.rowid
+        WHERE todos_fts MATCH ? ORDER BY bm25(todos_fts, 10.0, 1.0) LIMIT ?
+    """;
+
+    // Null for an in-memory database, which has no WAL to checkpoint and nothing to snapshot
+    private final Path snapshotPath;
+
+    // One long-lived connection; JDBC access is serialized on it
+    private final Connection connection;
+    private final PreparedStatement insertStatement;
+    private final PreparedStatement updateStatement;
+    private final PreparedStatement deleteStatement;
+    private final PreparedStatement loadStatement;
+    private final PreparedStatement searchStatement;
+    private final SqliteArchive archive;
+
+    // True while an online migration is still copying rows out of the legacy table
+    private volatile boolean backfillPending;
+    private PreparedStatement deleteLegacyStatement;
+    private Thread backfillThread;
+
+    // Null unless write-behind mode is enabled
+    private final WriteBehindQueue writeQueue;
+    // Null for an in-memory database
+    private final WalCheckpointer checkpointer;
+
+    // The todo_changes sequence number the cache is known to match, and the connection's data_version
+    // at that point; a different data_version means another connection has written since. Guarded by the connection lock.
+    private long syncedChangeSeq;
+    private long syncedDataVersion;
+    // Cache version of the last snapshot written
+    private long snapshotCacheVersion = -1;
+    private long databaseId;
+    // Null if snapshots are only written on close
+    private final ScheduledExecutorService snapshotScheduler;
+    // Null if other connections' writes aren't watched for
+    private final ScheduledExecutorService refreshScheduler;
+    // Null if completed todos stay in the working set
+    private final ScheduledExecutorService archiveScheduler;
+
+    // Startup load state, only used by the thread doing the load; loadChangeSeq stays -1 if it can't start
+    private long loadStart;
+    private long loadChangeSeq = -1;
+    private long loadDataVersion;
+    // Null unless the rows after the first page load in the background
+    private Thread loaderThread;
+    private volatile boolean closing;
+    // Set once the cache holds every row; until then it must not be written as a snapshot
+    private volatile boolean cacheComplete;
     
     public SqliteTodoRepository() {
-        initializeDatabase();
-        loadCache();
-        initializeDefaultData();
-    }
-    
-    private void initializeDatabase() {
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-            
-            String createTodosTable = """
-                CREATE TABLE IF NOT EXISTS todos (
-                    id TEXT PRIMARY KEY,
-                    title TEXT NOT NULL,
-                    done BOOLEAN NOT NULL DEFAULT 0,
-                    time TEXT,
-                    created_at TEXT NOT NULL,
-                    updated_at TEXT NOT NULL,
-                    category TEXT DEFAULT 'General'
-                )
-            """;
-            
-            stmt.execute(createTodosTable);
-            
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_todos_done ON todos(done)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_todos_time ON todos(time)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_todos_category ON todos(category)");
-            
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to initialize database", e);
+        this(RepositoryConfig.defaults());
+    }
+
+    public SqliteTodoRepository(RepositoryConfig config) {
+        super(config);
+        String dbPath = config.getDatabasePath() != null ? config.getDatabasePath() : DEFAULT_PATH;
+        boolean inMemory = dbPath.equals(MEMORY_PATH);
+        snapshotPath = inMemory ? null : Path.of(dbPath + ".snapshot");
+        Connection opened = null;
+        try {
+            connection = opened = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+            applyPragmas(config.getStorage());
+            backfillPending = SchemaMigrator.migrate(connection);
+            insertStatement = connection.prepareStatement(INSERT_SQL);
+            updateStatement = connection.prepareStatement(UPDATE_SQL);
+            deleteStatement = connection.prepareStatement(DELETE_SQL);
+            loadStatement = connection.prepareStatement(LOAD_SQL);
+            searchStatement = connection.prepareStatement(SEARCH_SQL);
+            archive = new SqliteArchive(connection);
+            if (backfillPending) {
+                deleteLegacyStatement = connection.prepareStatement(DELETE_LEGACY_SQL);
+            }
+            checkpointer = inMemory ? null : new WalCheckpointer(dbPath, config.getStorage());
+        } catch (SQLException | RuntimeException e) {
+            // Closing the connection also closes any statements already prepared on it
+            if (opened != null) {
+                try {
+                    opened.close();
+                } catch (SQLException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+            }
+            if (e instanceof RuntimeException runtime) throw runtime;
+            throw new RuntimeException("Failed to open database", e);
+        }
+        // Legacy rows have to be merged into load order, so a migration loads everything up front
+        int firstPageSize = backfillPending ? 0 : config.getFirstPageSize();
+        beginLoad(firstPageSize);
+        writeQueue = config.isWriteBehind()
+                ? new WriteBehindQueue(this::writeBatch, this::reloadLostWrites, config.getFlushIntervalMillis(), config.getBatchSize())
+                : null;
+        if (firstPageSize > 0) {
+            loaderThread = new Thread(this::finishLoad, "todo-cache-loader");
+            loaderThread.setDaemon(true);
+            loaderThread.start();
+        } else {
+            finishLoad();
+        }
+        if (backfillPending) {
+            startBackfill();
+        }
+        long snapshotInterval = config.getSnapshotIntervalSeconds();
+        if (snapshotInterval > 0 && snapshotPath != null) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "todo-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::writeSnapshot, snapshotInterval, snapshotInterval, TimeUnit.SECONDS);
+        } else {
+            snapshotScheduler = null;
+        }
+        // Nothing else can open an in-memory database
+        long refreshInterval = config.getRefreshIntervalMillis();
+        if (refreshInterval > 0 && !inMemory) {
+            refreshScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "todo-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refreshScheduler.scheduleWithFixedDelay(this::refreshIfChanged, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        } else {
+            refreshScheduler = null;
+        }
+        long archiveAfterDays = config.getArchiveAfterDays();
+        if (archiveAfterDays > 0) {
+            archiveScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "todo-archiver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            archiveScheduler.scheduleWithFixedDelay(() -> archiveOlderThan(archiveAfterDays),
+                    ARCHIVE_FIRST_RUN_SECONDS, ARCHIVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        } else {
+            archiveScheduler = null;
         }
     }
     
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+    private void applyPragmas(StorageSettings settings) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            for (String pragma : settings.pragmas()) {
+                stmt.execute(pragma);
+            }
+        }
     }
     
-    private void loadCache() {
-        String sql = "SELECT id, title, done, time, created_at, updated_at, category FROM todos ORDER BY created_at DESC";
-        
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                String id = rs.getString("id");
-                String title = rs.getString("title");
-                boolean done = rs.getBoolean("done");
-                LocalDateTime time = rs.getString("time") != null ? 
-                    LocalDateTime.parse(rs.getString("time")) : null;
-                LocalDateTime createdAt = LocalDateTime.parse(rs.getString("created_at"));
-                LocalDateTime updatedAt = LocalDateTime.parse(rs.getString("updated_at"));
-                String category = rs.getString("category");
-                
-                Todo todo = new Todo(id, title, done, time, createdAt, updatedAt, category);
-                todoCache.put(id, todo);
+    // Opens the read transaction the whole load runs in and caches the newest rows, enough to fill the first screen
+    private void beginLoad(int firstPageSize) {
+        loadStart = System.nanoTime();
+        synchronized (connection) {
+            try {
+                loadDataVersion = dataVersion();
+                databaseId = SchemaMigrator.databaseId(connection);
+                // One read transaction, so every row matches the sequence number read with them
+                connection.setAutoCommit(false);
+                loadChangeSeq = changeSeq();
+                if (firstPageSize > 0) {
+                    List<Todo> firstPage = new ArrayList<>(firstPageSize);
+                    try (PreparedStatement pstmt = connection.prepareStatement(LOAD_SQL + " LIMIT ?")) {
+                        pstmt.setInt(1, firstPageSize);
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                firstPage.add(TodoRows.read(rs));
+                            }
+                        }
+                    }
+                    cache.putAllAbsent(firstPage);
+                    long millis = (System.nanoTime() - loadStart) / 1_000_000;
+                    LOG.log(Level.DEBUG, () -> String.format("Loaded the first %d todos in %d ms", firstPage.size(), millis));
+                }
+            } catch (SQLException e) {
+                System.err.println("Failed to load cache: " + e.getMessage());
             }
+        }
+    }
+
+    // Caches every other row and ends the read transaction. Runs on the loader thread, or in the
+    // constructor when there is no first page.
+    private void finishLoad() {
+        try {
+            if (loadChangeSeq >= 0) loadRemainingRows();
         } catch (SQLException e) {
             System.err.println("Failed to load cache: " + e.getMessage());
+        } finally {
+            synchronized (connection) {
+                try {
+                    if (!connection.getAutoCommit()) {
+                        connection.commit();
+                        connection.setAutoCommit(true);
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Failed to end the load transaction: " + e.getMessage());
+                }
+            }
+            finishLoading();
         }
     }
-    
-    @Override
-    public List<Todo> getAllTodos() {
-        synchronized (todoCache) {
-            return new ArrayList<>(todoCache.values());
+
+    private void loadRemainingRows() throws SQLException {
+        CacheSnapshot snapshot = backfillPending || snapshotPath == null ? null : CacheSnapshot.read(snapshotPath);
+        List<Todo> replayed;
+        synchronized (connection) {
+            replayed = snapshot != null ? replayOnto(snapshot, loadChangeSeq) : null;
+        }
+        if (replayed != null) {
+            for (int from = 0; from < replayed.size() && !closing; from += LOAD_CHUNK_SIZE) {
+                cache.putAllAbsent(replayed.subList(from, Math.min(from + LOAD_CHUNK_SIZE, replayed.size())));
+            }
+        } else if (backfillPending) {
+            List<Todo> rows;
+            synchronized (connection) {
+                rows = loadAllRows();
+            }
+            cache.putAllAbsent(rows);
+        } else {
+            streamAllRows();
+        }
+        if (closing) return;
+
+        synchronized (connection) {
+            if (replayed != null && snapshot.getChangeSeq() == loadChangeSeq) {
+                // Nothing was written since; no need to rewrite the file on close
+                snapshotCacheVersion = cache.version();
+            }
+            syncedChangeSeq = loadChangeSeq;
+            syncedDataVersion = loadDataVersion;
+            cacheComplete = true;
+        }
+        int loaded = cache.size();
+        long millis = (System.nanoTime() - loadStart) / 1_000_000;
+        if (replayed != null) {
+            long replayedCount = loadChangeSeq - snapshot.getChangeSeq();
+            LOG.log(Level.DEBUG, () -> String.format("Loaded %d todos from the cache snapshot (%d changes replayed) in %d ms",
+                    loaded, replayedCount, millis));
+        } else {
+            LOG.log(Level.DEBUG, () -> String.format("Loaded %d todos in %d ms", loaded, millis));
+        }
+    }
+
+    // Reads the table in load order a chunk at a time, so search and paging can use the connection in between
+    private void streamAllRows() throws SQLException {
+        ResultSet rs;
+        synchronized (connection) {
+            rs = loadStatement.executeQuery();
+        }
+        try {
+            boolean more = true;
+            while (more && !closing) {
+                List<Todo> chunk = new ArrayList<>(LOAD_CHUNK_SIZE);
+                synchronized (connection) {
+                    while (chunk.size() < LOAD_CHUNK_SIZE && (more = rs.next())) {
+                        chunk.add(TodoRows.read(rs));
+                    }
+                }
+                if (!chunk.isEmpty()) cache.putAllAbsent(chunk);
+            }
+        } finally {
+            synchronized (connection) {
+                rs.close();
+            }
+        }
+    }
+
+    private List<Todo> loadAllRows() throws SQLException {
+        List<Todo> loaded = new ArrayList<>();
+        try (ResultSet rs = loadStatement.executeQuery()) {
+            while (rs.next()) {
+                loaded.add(TodoRows.read(rs));
+            }
+        }
+        if (backfillPending) {
+            loaded.addAll(loadLegacyRows());
+            // Rows from the two tables have to be merged back into load order
+            loaded.sort(Comparator.comparing(Todo::getCreatedAt).reversed());
+        }
+        return loaded;
+    }
+
+    // The snapshot plus the rows written since it was taken, or null if the snapshot is stale
+    private List<Todo> replayOnto(CacheSnapshot snapshot, long changeSeq) throws SQLException {
+        long since = snapshot.getChangeSeq();
+        // Every change after the snapshot must still be logged; a gap means a newer snapshot trimmed the log
+        if (snapshot.getDatabaseId() != databaseId || since > changeSeq
+                || countChangesSince(since) != changeSeq - since) {
+            LOG.log(Level.DEBUG, "Cache snapshot is stale, loading every row");
+            return null;
+        }
+        if (since == changeSeq) return snapshot.getTodos();
+
+        Map<TodoId, Todo> todos = new LinkedHashMap<>();
+        for (Todo todo : snapshot.getTodos()) {
+            todos.put(todo.getKey(), todo);
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(CHANGED_ROWS_SQL)) {
+            pstmt.setLong(1, since);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getObject("title") == null) {
+                        todos.remove(TodoRows.readId(rs, "changed_id"));
+                    } else {
+                        Todo todo = TodoRows.read(rs);
+                        todos.put(todo.getKey(), todo);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(todos.values());
+    }
+
+    // Caller holds the connection lock
+    private long changeSeq() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(CHANGE_SEQ_SQL)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private long countChangesSince(long seq) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT count(*) FROM " + SchemaMigrator.CHANGES_TABLE + " WHERE seq > ?")) {
+            pstmt.setLong(1, seq);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private long dataVersion() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA data_version")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Runs on the refresh thread. PRAGMA data_version only moves when another connection commits, so
+    // the common case costs one query.
+    private void refreshIfChanged() {
+        if (!cacheComplete || closing) return;
+        try {
+            synchronized (connection) {
+                // Read before data_version, as in snapshotSource, so a commit in between isn't skipped
+                long changeSeq = changeSeq();
+                if (dataVersion() == syncedDataVersion) {
+                    // Every change so far was made here and is already cached
+                    syncedChangeSeq = changeSeq;
+                    return;
+                }
+            }
+            if (writeQueue != null) {
+                // Queued writes are newer than the stored rows they would be compared with
+                synchronized (writeQueue) {
+                    if (!writeQueue.drain()) return;
+                    refreshChangedRows();
+                }
+            } else {
+                refreshChangedRows();
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Failed to refresh the cache: " + e.getMessage());
+        }
+    }
+
+    // Re-reads the rows written since the cache was last known to match, in one read transaction
+    private void refreshChangedRows() throws SQLException {
+        long start = System.nanoTime();
+        synchronized (connection) {
+            int refreshed;
+            long dataVersion, changeSeq;
+            connection.setAutoCommit(false);
+            try {
+                dataVersion = dataVersion();
+                if (dataVersion == syncedDataVersion) return;
+                changeSeq = changeSeq();
+                if (countChangesSince(syncedChangeSeq) == changeSeq - syncedChangeSeq) {
+                    refreshed = refreshFromChangeLog(syncedChangeSeq);
+                } else if (!backfillPending) {
+                    // Another instance trimmed todo_changes past us
+                    refreshed = refreshByVersion();
+                } else {
+                    // Legacy rows aren't in todos yet, so comparing would drop them; try again once the migration is done
+                    return;
+                }
+                // Another connection may have archived or restored todos too
+                archive.reloadCount();
+            } finally {
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+            syncedChangeSeq = changeSeq;
+            syncedDataVersion = dataVersion;
+            if (refreshed > 0) {
+                int count = refreshed;
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                LOG.log(Level.DEBUG, () -> String.format("Refreshed %d todos changed by another connection in %d ms",
+                        count, millis));
+            }
+        }
+    }
+
+    private int refreshFromChangeLog(long since) throws SQLException {
+        int refreshed = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement(CHANGED_ROWS_SQL)) {
+            pstmt.setLong(1, since);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    TodoId id = TodoRows.readId(rs, "changed_id");
+                    if (refreshRow(id, rs.getObject("title") != null ? TodoRows.read(rs) : null)) refreshed++;
+                }
+            }
+        }
+        return refreshed;
+    }
+
+    // Compares every row's version and updated_at with the cache and reads only the rows that differ
+    private int refreshByVersion() throws SQLException {
+        Set<TodoId> stored = new HashSet<>();
+        List<TodoId> changed = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, version, updated_at FROM todos")) {
+            while (rs.next()) {
+                TodoId id = TodoRows.readId(rs);
+                stored.add(id);
+                Todo cached = cache.get(id);
+                if (cached == null || cached.getVersion() != rs.getInt("version")
+                        || Timestamps.encode(cached.getUpdatedAt()) != rs.getLong("updated_at")) {
+                    changed.add(id);
+                }
+            }
+        }
+        int refreshed = 0;
+        for (TodoId id : changed) {
+            if (refreshRow(id, readRow(id))) refreshed++;
+        }
+        for (Todo todo : cache.values()) {
+            if (!stored.contains(todo.getKey()) && refreshRow(todo.getKey(), null)) refreshed++;
+        }
+        return refreshed;
+    }
+
+    private record SnapshotSource(long changeSeq, long cacheVersion, List<Todo> todos) {}
+
+    // Writes the cache to the snapshot file, then trims the change log up to it. Runs on the
+    // snapshot thread and on close.
+    private void writeSnapshot() {
+        if (snapshotPath == null || backfillPending || !cacheComplete) return;
+        try {
+            SnapshotSource source;
+            if (writeQueue != null) {
+                // Holding the queue keeps new writes out of the cache until the queued ones are committed
+                synchronized (writeQueue) {
+                    // Queued writes the writer can no longer commit must not be saved as if they were
+                    if (!writeQueue.drain()) return;
+                    source = snapshotSource();
+                }
+            } else {
+                source = snapshotSource();
+            }
+            if (source == null) return;
+
+            CacheSnapshot.write(snapshotPath, databaseId, source.changeSeq(), source.todos());
+            synchronized (connection) {
+                snapshotCacheVersion = source.cacheVersion();
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "DELETE FROM " + SchemaMigrator.CHANGES_TABLE + " WHERE seq <= ?")) {
+                    pstmt.setLong(1, source.changeSeq());
+                    pstmt.executeUpdate();
+                }
+            }
+        } catch (IOException | SQLException e) {
+            System.err.println("Failed to write cache snapshot: " + e.getMessage());
+        }
+    }
+
+    // Null if nothing has changed since the last snapshot
+    private SnapshotSource snapshotSource() throws SQLException {
+        synchronized (connection) {
+            long cacheVersion = cache.version();
+            if (cacheVersion == snapshotCacheVersion) return null;
+            // The sequence number is read first, so a commit from another connection that lands
+            // in between is caught by the data_version check
+            long changeSeq = changeSeq();
+            if (dataVersion() == syncedDataVersion) {
+                syncedChangeSeq = changeSeq;
+            }
+            // Otherwise the cache may be missing another connection's writes, and the snapshot
+            // stays at the last point it was known to match, so startup replays them
+            return new SnapshotSource(syncedChangeSeq, cacheVersion, cache.values());
         }
     }
     
-    @Override
-    public Optional<Todo> getTodo(String todoId) {
-        synchronized (todoCache) {
-            return Optional.ofNullable(todoCache.get(todoId));
+    private List<Todo> loadLegacyRows() throws SQLException {
+        List<Todo> legacy = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT " + TodoRows.LEGACY_COLUMNS + " FROM " + SchemaMigrator.LEGACY_TABLE)) {
+            while (rs.next()) {
+                legacy.add(TodoRows.readLegacy(rs));
+            }
         }
+        return legacy;
+    }
+    
+    // Copies legacy rows across in small transactions so the UI connection is never held for long
+    private void startBackfill() {
+        backfillThread = new Thread(() -> {
+            long start = System.nanoTime();
+            int migrated = 0;
+            while (backfillPending && !Thread.currentThread().isInterrupted()) {
+                try {
+                    synchronized (connection) {
+                        int copied = SchemaMigrator.backfillBatch(connection, BACKFILL_BATCH_SIZE);
+                        migrated += copied;
+                        if (copied == 0) {
+                            deleteLegacyStatement.close();
+                            backfillPending = false;
+                        }
+                    }
+                    Thread.sleep(5);
+                } catch (SQLException e) {
+                    System.err.println("Schema migration stopped, will resume on next start: " + e.getMessage());
+                    return;
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            if (!backfillPending) {
+                int count = migrated;
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                LOG.log(Level.DEBUG, () -> String.format("Migrated %d todos to schema version %d in %d ms",
+                        count, SchemaMigrator.CURRENT_VERSION, millis));
+            }
+        }, "todo-schema-migration");
+        backfillThread.setDaemon(true);
+        backfillThread.start();
     }
     
     @Override
     public Todo saveTodo(Todo todo) {
-        String sql = """
-            INSERT OR REPLACE INTO todos(id, title, done, time, created_at, updated_at, category) 
-            VALUES(?, ?, ?, ?, ?, ?, ?)
-        """;
-        
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, todo.getId());
-            pstmt.setString(2, todo.getTitle());
-            pstmt.setBoolean(3, todo.isDone());
-            pstmt.setString(4, todo.getTime() != null ? todo.getTime().toString() : null);
-            pstmt.setString(5, todo.getCreatedAt().toString());
-            pstmt.setString(6, todo.getUpdatedAt().toString());
-            pstmt.setString(7, todo.getCategory());
-            
-            pstmt.executeUpdate();
-            
-            synchronized (todoCache) {
-                todoCache.put(todo.getId(), todo);
-            }
-            
-            return todo;
-            
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to save todo", e);
+        awaitLoaded();
+        if (writeQueue != null) {
+            // Writers to the cache and the queue must agree on order, or the store could end up with an older copy
+            synchronized (writeQueue) {
+                if (writeQueue.hasPendingDelete(todo.getKey())) {
+                    // A save can't be folded into a queued delete of the same id; the delete has to land first
+                    writeQueue.flush();
+                }
+                // Checked against the cache now and against the store when the batch is written
+                Todo saved = nextVersion(todo);
+                cache.put(saved);
+                try {
+                    writeQueue.enqueueSave(saved);
+                } catch (RuntimeException e) {
+                    reloadRows(List.of(saved.getKey()));
+                    throw e;
+                }
+                return saved;
+            }
+        }
+
+        synchronized (connection) {
+            Todo saved = todo.withVersion(todo.getVersion() + 1);
+            try {
+                if (!writeRow(saved, todo.getVersion())) {
+                    // Another connection got there first; the cache takes its copy and the caller decides what to do
+                    Todo current = readRow(todo.getKey());
+                    refreshRow(todo.getKey(), current);
+                    throw new TodoConflictException(todo, current);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to save todo", e);
+            }
+            cache.put(saved);
+            return saved;
+        }
+    }
+
+    @Override
+    public List<Todo> updateTodos(Collection<String> todoIds, UnaryOperator<Todo> change) {
+        awaitLoaded();
+        if (writeQueue != null) {
+            // Written straight through rather than queued, since the queue may split a large batch
+            // across transactions; queued writes go first so they can't land on top of it
+            synchronized (writeQueue) {
+                writeQueue.flush();
+                return writeRows(todoIds, change);
+            }
         }
+        return writeRows(todoIds, change);
+    }
+
+    private List<Todo> writeRows(Collection<String> todoIds, UnaryOperator<Todo> change) {
+        synchronized (connection) {
+            List<Todo> saved = nextVersions(todoIds, change);
+            if (saved.isEmpty()) return saved;
+            try {
+                connection.setAutoCommit(false);
+                try {
+                    for (Todo todo : saved) {
+                        if (!writeRow(todo, todo.getVersion() - 1)) {
+                            // Another connection changed this one; none of the batch is kept
+                            connection.rollback();
+                            Todo current = readRow(todo.getKey());
+                            refreshRow(todo.getKey(), current);
+                            throw new TodoConflictException(todo.withVersion(todo.getVersion() - 1), current);
+                        }
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to save todos", e);
+            }
+            cache.applyBatch(saved, List.of());
+            return saved;
+        }
+    }
+
+    // Writes the row if the store still holds baseVersion of it (0: no row); false if it doesn't. Caller holds the connection lock.
+    private boolean writeRow(Todo saved, int baseVersion) throws SQLException {
+        int rows;
+        if (baseVersion == 0) {
+            TodoRows.bind(insertStatement, saved);
+            rows = insertStatement.executeUpdate();
+        } else {
+            TodoRows.bind(updateStatement, saved);
+            updateStatement.setInt(9, baseVersion);
+            rows = updateStatement.executeUpdate();
+            if (rows == 0 && baseVersion == 1 && deleteLegacyCopy(saved.getKey()) > 0) {
+                // Still waiting in the legacy table, where every row is at version 1
+                TodoRows.bind(insertStatement, saved);
+                rows = insertStatement.executeUpdate();
+            }
+        }
+        if (rows > 0) deleteLegacyCopy(saved.getKey());
+        return rows > 0;
+    }
+
+    // Null if there is no such row. Caller holds the connection lock.
+    private Todo readRow(TodoId id) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(SELECT_ROW_SQL)) {
+            TodoRows.bindId(pstmt, 1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? TodoRows.read(rs) : null;
+            }
+        }
+    }
+
+    // Makes the cached copy match the stored one, null meaning deleted; false if it already did.
+    // Caller holds the connection lock.
+    private boolean refreshRow(TodoId id, Todo stored) {
+        Todo cached = cache.get(id);
+        if (stored == null) {
+            return cached != null && cache.remove(id);
+        }
+        // The cache may hold finer timestamps than the micros the table stores
+        if (cached != null && cached.getVersion() == stored.getVersion()
+                && Timestamps.encode(cached.getUpdatedAt()) == Timestamps.encode(stored.getUpdatedAt())) {
+            return false;
+        }
+        cache.put(stored);
+        return true;
     }
     
+    // Runs on the archiver thread
+    private void archiveOlderThan(long days) {
+        if (!cacheComplete || closing) return;
+        long start = System.nanoTime();
+        try {
+            int archived = archiveCompleted(LocalDateTime.now().minusDays(days));
+            if (archived > 0) {
+                long millis = (System.nanoTime() - start) / 1_000_000;
+                LOG.log(Level.DEBUG, () -> String.format("Archived %d completed todos in %d ms", archived, millis));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to archive todos: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public int archiveCompleted(LocalDateTime completedBefore) {
+        awaitLoaded();
+        int archived = 0;
+        while (!closing) {
+            int moved;
+            if (writeQueue != null) {
+                // A queued edit, such as marking the todo not done, has to reach the table before it is checked
+                synchronized (writeQueue) {
+                    writeQueue.flush();
+                    moved = archiveBatch(completedBefore);
+                }
+            } else {
+                moved = archiveBatch(completedBefore);
+            }
+            archived += moved;
+            if (moved < ARCHIVE_BATCH_SIZE) break;
+        }
+        return archived;
+    }
+
+    private int archiveBatch(LocalDateTime completedBefore) {
+        synchronized (connection) {
+            try {
+                List<Todo> moved = archive.moveCompleted(completedBefore, ARCHIVE_BATCH_SIZE);
+                for (Todo todo : moved) {
+                    cache.remove(todo.getKey());
+                }
+                return moved.size();
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to archive todos", e);
+            }
+        }
+    }
+
+    @Override
+    public Optional<Todo> restoreTodo(String todoId) {
+        TodoId id = TodoId.of(todoId);
+        awaitLoaded();
+        if (writeQueue != null) {
+            // A queued delete of the same id would otherwise land after the restore
+            synchronized (writeQueue) {
+                writeQueue.flush();
+                return restoreRow(id);
+            }
+        }
+        return restoreRow(id);
+    }
+
+    private Optional<Todo> restoreRow(TodoId id) {
+        synchronized (connection) {
+            Todo restored;
+            try {
+                connection.setAutoCommit(false);
+                try {
+                    Todo archived = archive.take(id);
+                    if (archived == null) {
+                        connection.rollback();
+                        return Optional.empty();
+                    }
+                    restored = archived.withVersion(archived.getVersion() + 1);
+                    if (!writeRow(restored, 0)) {
+                        // A live todo has the same id; leave both where they are
+                        connection.rollback();
+                        throw new TodoConflictException(archived, readRow(id));
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to restore todo", e);
+            }
+            archive.reloadCount();
+            cache.put(restored);
+            return Optional.of(restored);
+        }
+    }
+
+    @Override
+    public TodoArchive getArchive() {
+        return archive;
+    }
+
     @Override
     public boolean deleteTodo(String todoId) {
-        String sql = "DELETE FROM todos WHERE id = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, todoId);
-            int rowsAffected = pstmt.executeUpdate();
-            
-            if (rowsAffected > 0) {
-                synchronized (todoCache) {
-                    todoCache.remove(todoId);
+        TodoId id = TodoId.of(todoId);
+        awaitLoaded();
+        if (writeQueue != null) {
+            synchronized (writeQueue) {
+                boolean removed = cache.remove(id);
+                if (!removed) return false;
+                try {
+                    writeQueue.enqueueDelete(id);
+                } catch (RuntimeException e) {
+                    reloadRows(List.of(id));
+                    throw e;
                 }
                 return true;
             }
-            return false;
-            
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to delete todo", e);
         }
+
+        synchronized (connection) {
+            try {
+                TodoRows.bindId(deleteStatement, 1, id);
+                int rowsAffected = deleteStatement.executeUpdate() + deleteLegacyCopy(id);
+                if (rowsAffected == 0) return false;
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to delete todo", e);
+            }
+            cache.remove(id);
+        }
+        return true;
     }
     
     @Override
-    public List<Todo> searchTodos(String query) {
-        if (query == null || query.trim().isEmpty()) return List.of();
-        String searchTerm = query.trim().toLowerCase();
-        
-        synchronized (todoCache) {
-            return todoCache.values().stream()
-                    .filter(todo -> todo.getTitle().toLowerCase().contains(searchTerm))
-                    .collect(Collectors.toList());
+    public int deleteTodos(Collection<String> todoIds) {
+        awaitLoaded();
+        if (writeQueue != null) {
+            synchronized (writeQueue) {
+                writeQueue.flush();
+                return deleteRows(todoIds);
+            }
         }
+        return deleteRows(todoIds);
     }
-    
+
+    private int deleteRows(Collection<String> todoIds) {
+        synchronized (connection) {
+            List<TodoId> ids = cachedTodos(todoIds).stream().map(Todo::getKey).toList();
+            if (ids.isEmpty()) return 0;
+            try {
+                connection.setAutoCommit(false);
+                try {
+                    for (TodoId id : ids) {
+                        deleteLegacyCopy(id);
+                        TodoRows.bindId(deleteStatement, 1, id);
+                        deleteStatement.addBatch();
+                    }
+                    deleteStatement.executeBatch();
+                    connection.commit();
+                } catch (SQLException e) {
+                    deleteStatement.clearBatch();
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to delete todos", e);
+            }
+            // Rows another connection deleted first leave the cache here too
+            cache.applyBatch(List.of(), ids);
+            return ids.size();
+        }
+    }
+
     @Override
-    public List<Todo> getTodosDueToday() {
-        LocalDateTime today = LocalDateTime.now();
-        LocalDateTime tomorrow = today.plusDays(1).withHour(0).withMinute(0).withSecond(0);
-        
-        synchronized (todoCache) {
-            return todoCache.values().stream()
-                    .filter(todo -> todo.getTime() != null 
-                            && !todo.getTime().isBefore(today) 
-                            && todo.getTime().isBefore(tomorrow))
-                    .collect(Collectors.toList());
+    public void flush() {
+        if (writeQueue != null) writeQueue.flush();
+    }
+
+    // While a migration is in flight, a write must also remove the row's stale legacy copy. Caller holds the connection lock.
+    // Legacy rows predate binary ids, so the copy is matched by its text id.
+    private int deleteLegacyCopy(TodoId todoId) throws SQLException {
+        if (!backfillPending) return 0;
+        deleteLegacyStatement.setString(1, todoId.toString());
+        return deleteLegacyStatement.executeUpdate();
+    }
+
+    // Called on the write-behind thread: one transaction per batch. A queued save that finds the row
+    // changed by another connection is dropped, and the cache takes the stored copy instead.
+    private void writeBatch(List<WriteBehindQueue.PendingWrite> batch) throws SQLException {
+        synchronized (connection) {
+            List<TodoId> lost = new ArrayList<>();
+            connection.setAutoCommit(false);
+            try {
+                boolean hasDeletes = false;
+                for (WriteBehindQueue.PendingWrite write : batch) {
+                    if (write.isDelete()) {
+                        deleteLegacyCopy(write.todoId());
+                        TodoRows.bindId(deleteStatement, 1, write.todoId());
+                        deleteStatement.addBatch();
+                        hasDeletes = true;
+                    } else if (!writeRow(write.todo(), write.baseVersion())) {
+                        lost.add(write.todoId());
+                    }
+                }
+                if (hasDeletes) deleteStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                // Turning auto-commit back on would otherwise commit half the batch
+                deleteStatement.clearBatch();
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            for (TodoId id : lost) {
+                System.err.println("Dropped a queued save of todo " + id + ": changed by another connection");
+                refreshRow(id, readRow(id));
+            }
+        }
+    }
+
+    // Called on the write-behind thread with a batch that failed for good; the cache takes the stored copies
+    private void reloadLostWrites(List<WriteBehindQueue.PendingWrite> batch) {
+        List<TodoId> ids = new ArrayList<>(batch.size());
+        for (WriteBehindQueue.PendingWrite write : batch) ids.add(write.todoId());
+        reloadRows(ids);
+    }
+
+    // Makes the cached copies match the table again after their writes were lost
+    private void reloadRows(List<TodoId> ids) {
+        synchronized (connection) {
+            for (TodoId id : ids) {
+                try {
+                    refreshRow(id, readRow(id));
+                } catch (SQLException e) {
+                    System.err.println("Failed to reload todo " + id + ": " + e.getMessage());
+                }
+            }
         }
     }
     
     @Override
-    public List<Todo> getOverdueTodos() {
-        synchronized (todoCache) {
-            return todoCache.values().stream()
-                    .filter(Todo::isOverdue)
-                    .collect(Collectors.toList());
+    public List<Todo> searchTodos(String query, int limit) {
+        if (query == null || query.trim().isEmpty() || limit <= 0) return List.of();
+        String match = FtsQuery.build(query.trim());
+        if (match == null) return List.of();
+        if (backfillPending) {
+            // Legacy rows are still missing from the search index
+            return scanTitles(query.trim(), limit);
+        }
+        
+        // Queued writes aren't in the index yet
+        flush();
+        
+        List<TodoId> ids = new ArrayList<>();
+        synchronized (connection) {
+            try {
+                searchStatement.setString(1, match);
+                searchStatement.setInt(2, limit);
+                try (ResultSet rs = searchStatement.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(TodoRows.readId(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to search todos", e);
+            }
         }
+        
+        return cache.lookup(ids);
     }
     
+    // Text queries go to the search index with the rest of the query in the same statement, so
+    // SQLite ranks, sorts and limits; everything else is answered from the cache's indexes
     @Override
-    public List<Todo> getTodosByCategory(String category) {
-        synchronized (todoCache) {
-            return todoCache.values().stream()
-                    .filter(todo -> todo.getCategory().equals(category))
-                    .collect(Collectors.toList());
+    protected List<Todo> runQuery(TodoQuery query) {
+        if (!usesFts(query)) return super.runQuery(query);
+        
+        // Queued writes aren't in the index yet
+        flush();
+        
+        List<Object> params = new ArrayList<>();
+        String sql = ftsQuerySql(query, params);
+        List<TodoId> ids = new ArrayList<>();
+        synchronized (connection) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (int i = 0; i < params.size(); i++) {
+                    pstmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(TodoRows.readId(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to query todos", e);
+            }
         }
+        
+        return cache.lookup(ids);
     }
     
     @Override
-    public int getTotalTodoCount() {
-        synchronized (todoCache) {
-            return todoCache.size();
+    QueryPlan planQuery(TodoQuery query) {
+        if (!usesFts(query)) return super.planQuery(query);
+        String pushed = (query.getDone() != null ? " + done" : "")
+                + (query.getCategory() != null ? " + category" : "")
+                + (query.hasDueRange() ? " + due range" : "");
+        String order = query.getSortKey() == null ? "bm25" : query.getSortKey().name();
+        String detail = "todos_fts MATCH" + pushed + ", ORDER BY " + order
+                + (query.getLimit() > 0 ? " LIMIT " + query.getLimit() : "") + " in SQLite";
+        long rows = query.getLimit() > 0 ? Math.min(query.getLimit(), cache.size()) : cache.size();
+        return new QueryPlan(QueryPlan.Access.FTS, detail, rows, true);
+    }
+    
+    // Legacy rows are missing from the search index until the backfill finishes
+    private boolean usesFts(TodoQuery query) {
+        return query.getText() != null && !query.matchesNothing() && !backfillPending;
+    }
+    
+    private static String ftsQuerySql(TodoQuery query, List<Object> params) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT t.id FROM todos_fts f JOIN todos t ON t.rowid = f.rowid WHERE todos_fts MATCH ?");
+        params.add(FtsQuery.build(query.getText()));
+        if (query.getDone() != null) {
+            sql.append(" AND t.done = ?");
+            params.add(query.getDone());
+        }
+        if (query.getCategory() != null) {
+            sql.append(" AND t.category = ?");
+            params.add(query.getCategory());
+        }
+        if (query.getDueFrom() != null) {
+            sql.append(" AND t.time >= ?");
+            params.add(Timestamps.encode(query.getDueFrom()));
+        }
+        if (query.getDueTo() != null) {
+            sql.append(" AND t.time < ?");
+            params.add(Timestamps.encode(query.getDueTo()));
+        }
+        sql.append(query.getSortKey() == null ? " ORDER BY bm25(todos_fts, 10.0, 1.0)" : switch (query.getSortKey()) {
+            case CREATED_AT -> " ORDER BY t.created_at DESC, t.id DESC";
+            case TIME -> " ORDER BY t.time IS NULL, t.time, t.id";
+            case CATEGORY -> " ORDER BY t.category, t.created_at DESC, t.id DESC";
+        });
+        if (query.getLimit() > 0) {
+            sql.append(" LIMIT ?");
+            params.add(query.getLimit());
         }
+        return sql.toString();
     }
     
     @Override
-    public int getCompletedTodoCount() {
-        synchronized (todoCache) {
-            return (int) todoCache.values().stream()
-                    .filter(Todo::isDone)
-                    .count();
+    public Page pageFromStore(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter) {
+        checkPageArguments(cursor, limit, sortKey);
+        if (backfillPending) {
+            // Part of the table is still in legacy layout; the cache has every row
+            return page(cursor, limit, sortKey, filter);
         }
+        flush();
+        
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT " + TodoRows.COLUMNS + " FROM todos WHERE 1 = 1");
+        if (filter.getCategory() != null) {
+            sql.append(" AND category = ?");
+            params.add(filter.getCategory());
+        }
+        if (filter.getDone() != null) {
+            sql.append(" AND done = ?");
+            params.add(filter.getDone());
+        }
+        if (cursor != null) {
+            sql.append(" AND ").append(keysetCondition(cursor, params));
+        }
+        sql.append(switch (sortKey) {
+            case CREATED_AT -> " ORDER BY created_at DESC, id DESC";
+            case TIME -> " ORDER BY time IS NULL, time, id";
+            case CATEGORY -> " ORDER BY category, created_at DESC, id DESC";
+        });
+        sql.append(" LIMIT ?");
+        params.add(limit + 1);
+        
+        List<Todo> items = new ArrayList<>(Math.min(limit, 256));
+        boolean more = false;
+        synchronized (connection) {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    pstmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (items.size() == limit) {
+                            more = true;
+                            break;
+                        }
+                        items.add(TodoRows.read(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to page todos", e);
+            }
+        }
+        
+        return toPage(items, more, sortKey);
     }
     
-    @Override
-    public List<String> getAllCategories() {
-        synchronized (todoCache) {
-            return todoCache.values().stream()
-                    .map(Todo::getCategory)
-                    .distinct()
-                    .collect(Collectors.toList());
+    // WHERE clause selecting rows strictly after the cursor in its sort order
+    static String keysetCondition(PageCursor cursor, List<Object> params) {
+        long createdAt = Timestamps.encode(cursor.getCreatedAt());
+        Object id = TodoRows.idValue(cursor.getId());
+        switch (cursor.getSortKey()) {
+            case CREATED_AT -> {
+                params.addAll(List.of(createdAt, createdAt, id));
+                return "(created_at < ? OR (created_at = ? AND id < ?))";
+            }
+            case TIME -> {
+                if (cursor.getTime() == null) {
+                    params.add(id);
+                    return "(time IS NULL AND id > ?)";
+                }
+                long time = Timestamps.encode(cursor.getTime());
+                params.addAll(List.of(time, time, id));
+                return "(time IS NULL OR time > ? OR (time = ? AND id > ?))";
+            }
+            case CATEGORY -> {
+                String withinCategory = "(created_at < ? OR (created_at = ? AND id < ?))";
+                if (cursor.getCategory() == null) {
+                    params.addAll(List.of(createdAt, createdAt, id));
+                    return "(category IS NOT NULL OR (category IS NULL AND " + withinCategory + "))";
+                }
+                params.addAll(List.of(cursor.getCategory(), cursor.getCategory(), createdAt, createdAt, id));
+                return "(category > ? OR (category = ? AND " + withinCategory + "))";
+            }
         }
+        throw new IllegalArgumentException("Unsupported sort key: " + cursor.getSortKey());
+    }
+    
+    static Page toPage(List<Todo> items, boolean more, SortKey sortKey) {
+        PageCursor next = more ? PageCursor.after(sortKey, items.get(items.size() - 1)) : null;
+        return new Page(items, next);
     }
     
     @Override
-    public void initializeDefaultData() {
-        if (getTotalTodoCount() == 0) {
-            // Add sample todos from the reference image
-            LocalDateTime sampleDate = LocalDateTime.of(2016, 1, 12, 0, 0);
-            
-            String[] sampleTodos = {
-                "Buy new sweatshirt",
-                "Begin promotional phase",
-                "Read an article",
-                "Try not to fall asleep",
-                "Watch 'Sherlock'",
-                "Begin QA for the product",
-                "Go for a walk"
-            };
-            
-//            for (String todoTitle : sampleTodos) {
-//                Todo todo = new Todo(todoTitle);
-//                todo.setTime(sampleDate);
-//                saveTodo(todo);
-//            }
+    public void close() {
+        closing = true;
+        if (loaderThread != null) {
+            try {
+                loaderThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (refreshScheduler != null) {
+            refreshScheduler.shutdownNow();
+            try {
+                refreshScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (archiveScheduler != null) {
+            archiveScheduler.shutdownNow();
+            try {
+                archiveScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+            try {
+                snapshotScheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // A write lost at shutdown is rethrown once everything else is closed
+        RuntimeException lostWrites = null;
+        if (writeQueue != null) {
+            try {
+                writeQueue.shutdown();
+            } catch (RuntimeException e) {
+                lostWrites = e;
+            }
+        }
+        if (backfillThread != null) {
+            backfillThread.interrupt();
+            try {
+                backfillThread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writeSnapshot();
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+        }
+        synchronized (connection) {
+            try {
+                insertStatement.close();
+                updateStatement.close();
+                deleteStatement.close();
+                loadStatement.close();
+                searchStatement.close();
+                if (deleteLegacyStatement != null) deleteLegacyStatement.close();
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Failed to close database: " + e.getMessage());
+            }
         }
+        if (lostWrites != null) throw lostWrites;
     }
 }
@@ -0,0 +1,125 @@
+package com.todoapp.repository;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SQLite pragma settings applied to the repository connection. Start from a
+ * profile ({@code --storage-profile=durable|fast}) and override single values
+ * with {@code --synchronous}, {@code --cache-size}, {@code --mmap-size},
+ * {@code --temp-store}, {@code --busy-timeout} or {@code --checkpoint-interval}.
+ */
+public final class StorageSettings {
+    public enum Profile { DURABLE, FAST }
+
+    // WAL size the file is truncated back to; growing past it triggers an early checkpoint
+    static final long JOURNAL_SIZE_LIMIT_BYTES = 4L * 1024 * 1024;
+
+    private final Profile profile;
+    private String synchronous;
+    private int cacheSizeKib;
+    private long mmapSizeBytes;
+    private String tempStore;
+    private int busyTimeoutMillis;
+    private int checkpointIntervalSeconds;
+
+    private StorageSettings(Profile profile) {
+        this.profile = profile;
+        switch (profile) {
+            case DURABLE -> {
+                synchronous = "FULL";
+                cacheSizeKib = 8 * 1024;
+                mmapSizeBytes = 0;
+                tempStore = "DEFAULT";
+                busyTimeoutMillis = 5000;
+                checkpointIntervalSeconds = 30;
+            }
+            case FAST -> {
+                synchronous = "NORMAL";
+                cacheSizeKib = 32 * 1024;
+                mmapSizeBytes = 256L * 1024 * 1024;
+                tempStore = "MEMORY";
+                busyTimeoutMillis = 5000;
+                checkpointIntervalSeconds = 60;
+            }
+        }
+    }
+
+    public static StorageSettings durable() {
+        return new StorageSettings(Profile.DURABLE);
+    }
+
+    public static StorageSettings fast() {
+        return new StorageSettings(Profile.FAST);
+    }
+
+    public static StorageSettings fromOptions(Map<String, String> options) {
+        String profileName = options.getOrDefault("storage-profile", "durable").trim().toUpperCase(Locale.ROOT);
+        StorageSettings settings;
+        try {
+            settings = new StorageSettings(Profile.valueOf(profileName));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown storage profile: " + options.get("storage-profile"));
+        }
+
+        if (options.containsKey("synchronous")) {
+            settings.synchronous = oneOf("synchronous", options.get("synchronous"), "OFF", "NORMAL", "FULL", "EXTRA");
+        }
+        if (options.containsKey("temp-store")) {
+            settings.tempStore = oneOf("temp-store", options.get("temp-store"), "DEFAULT", "FILE", "MEMORY");
+        }
+        settings.cacheSizeKib = (int) parseLong(options, "cache-size", settings.cacheSizeKib);
+        settings.mmapSizeBytes = parseLong(options, "mmap-size", settings.mmapSizeBytes);
+        settings.busyTimeoutMillis = (int) parseLong(options, "busy-timeout", settings.busyTimeoutMillis);
+        settings.checkpointIntervalSeconds = (int) parseLong(options, "checkpoint-interval", settings.checkpointIntervalSeconds);
+        if (settings.checkpointIntervalSeconds <= 0) {
+            throw new IllegalArgumentException("Option --checkpoint-interval must be positive");
+        }
+        return settings;
+    }
+
+    public Profile getProfile() { return profile; }
+    public String getSynchronous() { return synchronous; }
+    public int getCacheSizeKib() { return cacheSizeKib; }
+    public long getMmapSizeBytes() { return mmapSizeBytes; }
+    public String getTempStore() { return tempStore; }
+    public int getBusyTimeoutMillis() { return busyTimeoutMillis; }
+    public int getCheckpointIntervalSeconds() { return checkpointIntervalSeconds; }
+
+    // Pragmas for a freshly opened connection, in the order they must run
+    String[] pragmas() {
+        return new String[] {
+            "PRAGMA busy_timeout = " + busyTimeoutMillis,
+            "PRAGMA journal_mode = WAL",
+            "PRAGMA synchronous = " + synchronous,
+            // Negative cache_size is in KiB rather than pages
+            "PRAGMA cache_size = -" + cacheSizeKib,
+            "PRAGMA mmap_size = " + mmapSizeBytes,
+            "PRAGMA temp_store = " + tempStore,
+            // Shrink the WAL file back after a checkpoint resets it
+            "PRAGMA journal_size_limit = " + JOURNAL_SIZE_LIMIT_BYTES,
+            // Checkpoints are run by the background checkpointer instead of on commit
+            "PRAGMA wal_autocheckpoint = 0"
+        };
+    }
+
+    private static String oneOf(String key, String value, String... allowed) {
+        String normalized = value.trim().toUpperCase(Locale.ROOT);
+        for (String candidate : allowed) {
+            if (candidate.equals(normalized)) return candidate;
+        }
+        throw new IllegalArgumentException("Unsupported value for --" + key + ": " + value);
+    }
+
+    private static long parseLong(Map<String, String> options, String key, long defaultValue) {
+        String value = options.get(key);
+        if (value == null) return defaultValue;
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed < 0) throw new NumberFormatException();
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option --" + key + " must be a non-negative number: " + value);
+        }
+    }
+}
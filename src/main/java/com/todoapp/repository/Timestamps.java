@@ -0,0 +1,40 @@
+package com.todoapp.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Encodes LocalDateTime values as INTEGER microseconds since the epoch. The
+ * wall-clock value is read as UTC, so the encoding doesn't depend on the
+ * machine's time zone and preserves ordering.
+ */
+final class Timestamps {
+
+    private Timestamps() {
+    }
+
+    static long encode(LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+
+    static LocalDateTime decode(long micros) {
+        long seconds = Math.floorDiv(micros, 1_000_000L);
+        int nanos = (int) Math.floorMod(micros, 1_000_000L) * 1_000;
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    static LocalDateTime read(ResultSet rs, String column) throws SQLException {
+        long micros = rs.getLong(column);
+        return rs.wasNull() ? null : decode(micros);
+    }
+
+    // For rows written before the INTEGER migration, which may still hold ISO text
+    static LocalDateTime readLegacy(ResultSet rs, String column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value == null) return null;
+        if (value instanceof Number number) return decode(number.longValue());
+        return LocalDateTime.parse(value.toString());
+    }
+}
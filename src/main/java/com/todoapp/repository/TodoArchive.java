@@ -0,0 +1,19 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import java.util.List;
+
+/**
+ * Read access to the todos {@link TodoRepository#archiveCompleted} moved out
+ * of the working set. Apart from the count, nothing here is cached: every
+ * call goes to storage.
+ */
+public interface TodoArchive {
+    // Held in memory, so it is cheap enough for the UI thread. Archiving by another connection shows up
+    // once this repository refreshes from that connection's writes.
+    int count();
+    // Newest first, paged like TodoRepository.page with SortKey.CREATED_AT; pass a null cursor for the first page
+    Page page(PageCursor cursor, int limit);
+    // Case-insensitive title substring match, most recently completed first
+    List<Todo> search(String query, int limit);
+}
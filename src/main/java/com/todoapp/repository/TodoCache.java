@@ -0,0 +1,330 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import com.todoapp.model.TodoStats;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory copy of the todos table. Reads go straight to the
+ * {@link TodoStore} and never take a lock, so a background import can't
+ * stall the UI. Writers are serialized by one lock, which keeps the store and
+ * the stats snapshot in step and rules out lost updates.
+ *
+ * <p>Every write bumps a version number and is recorded in a bounded change
+ * log, so callers holding an older version can catch up with
+ * {@link #changesSince(long)} instead of re-reading everything. The log
+ * holds {@link TodoEvent}s, which are also pushed to subscribers.
+ */
+class TodoCache {
+    private static final int CHANGE_LOG_CAPACITY = 10_000;
+
+    // Stats snapshot plus the instant its overdue count goes stale (null if never)
+    private record PublishedStats(TodoStats stats, LocalDateTime validUntil) {}
+
+    private final TodoStore store;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Version to the event written at that version; bulk loads aren't logged
+    private final ConcurrentSkipListMap<Long, TodoEvent> changeLog = new ConcurrentSkipListMap<>();
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private int changeLogSize = 0;
+    // Oldest version changesSince can still answer for
+    private volatile long changeLogFloor = 0;
+    private volatile long version = 0;
+    private volatile PublishedStats publishedStats = new PublishedStats(TodoStats.EMPTY, null);
+    // Created by the first fuzzy search and kept in step by every write from then on; searchable once
+    // it has also been filled with the rows that were already here
+    private volatile TrigramIndex trigrams;
+    private volatile TrigramIndex filledTrigrams;
+
+    TodoCache(RepositoryConfig.CacheLayout layout) {
+        this.store = switch (layout) {
+            case OBJECTS -> new IndexedTodoStore();
+            case COMPACT -> new CompactTodoStore();
+        };
+    }
+
+    Todo get(TodoId todoId) {
+        return store.get(todoId);
+    }
+
+    int size() {
+        return store.size();
+    }
+
+    long version() {
+        return version;
+    }
+
+    // Unmodifiable, in insertion order
+    List<Todo> values() {
+        return store.values();
+    }
+
+    // Null when the change log no longer reaches back to the given version; callers then re-read everything
+    ChangeSet changesSince(long since) {
+        long latest = version;
+        if (since > latest) {
+            throw new IllegalArgumentException("Version " + since + " is ahead of the cache (" + latest + ")");
+        }
+        if (since < changeLogFloor) return null;
+        Set<TodoId> changedIds = new LinkedHashSet<>();
+        for (TodoEvent event : changeLog.subMap(since, false, latest, true).values()) {
+            changedIds.add(event.getKey());
+        }
+        // The log may have been trimmed while it was being read
+        if (since < changeLogFloor) return null;
+
+        List<Todo> saved = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        for (TodoId id : changedIds) {
+            Todo todo = get(id);
+            if (todo != null) saved.add(todo);
+            else deletedIds.add(id.toString());
+        }
+        return new ChangeSet(since, latest, saved, deletedIds);
+    }
+
+    void put(Todo todo) {
+        writeLock.lock();
+        try {
+            Todo previous = store.put(todo);
+            if (trigrams != null) trigrams.put(todo);
+            long next = version + 1;
+            recordChange(previous == null ? TodoEvent.created(next, todo) : TodoEvent.updated(next, previous, todo));
+            publishStats();
+        } finally {
+            writeLock.unlock();
+            dispatch();
+        }
+    }
+
+    // Bulk load: keeps the first copy of each id and publishes stats once, returning the rows it
+    // added. Not logged individually, so versions from before the load can only catch up with a full read.
+    List<Todo> putAllAbsent(Collection<Todo> todos) {
+        writeLock.lock();
+        try {
+            List<Todo> added = new ArrayList<>(todos.size());
+            for (Todo todo : todos) {
+                if (store.get(todo.getKey()) == null) {
+                    store.put(todo);
+                    if (trigrams != null) trigrams.put(todo);
+                    added.add(todo);
+                }
+            }
+            changeLogFloor = version + 1;
+            version++;
+            publishStats();
+            if (!added.isEmpty()) {
+                TodoEvent event = TodoEvent.bulk(version, added);
+                for (EventSubscription subscription : subscriptions) {
+                    subscription.enqueue(event);
+                }
+            }
+            return added;
+        } finally {
+            writeLock.unlock();
+            dispatch();
+        }
+    }
+
+    boolean remove(TodoId todoId) {
+        writeLock.lock();
+        try {
+            Todo removed = store.remove(todoId);
+            if (removed == null) return false;
+            if (trigrams != null) trigrams.remove(todoId);
+            recordChange(TodoEvent.deleted(version + 1, removed));
+            publishStats();
+            return true;
+        } finally {
+            writeLock.unlock();
+            dispatch();
+        }
+    }
+
+    // A bulk write under one hold of the lock: readers see all of it or none of it, stats are published
+    // once, and subscribers get its events in a single delivery. Each row still gets its own event.
+    void applyBatch(Collection<Todo> saved, Collection<TodoId> removed) {
+        writeLock.lock();
+        try {
+            for (Todo todo : saved) {
+                Todo previous = store.put(todo);
+                if (trigrams != null) trigrams.put(todo);
+                long next = version + 1;
+                recordChange(previous == null ? TodoEvent.created(next, todo) : TodoEvent.updated(next, previous, todo));
+            }
+            for (TodoId todoId : removed) {
+                Todo gone = store.remove(todoId);
+                if (gone == null) continue;
+                if (trigrams != null) trigrams.remove(todoId);
+                recordChange(TodoEvent.deleted(version + 1, gone));
+            }
+            publishStats();
+        } finally {
+            writeLock.unlock();
+            dispatch();
+        }
+    }
+
+    // Events after fromSeq, then every new one; null if the log no longer reaches back that far
+    EventSubscription subscribe(long fromSeq, Executor executor, Consumer<List<TodoEvent>> listener) {
+        writeLock.lock();
+        try {
+            if (fromSeq > version) {
+                throw new IllegalArgumentException("Sequence " + fromSeq + " is ahead of the cache (" + version + ")");
+            }
+            if (fromSeq < changeLogFloor) return null;
+            EventSubscription subscription = new EventSubscription(fromSeq, executor, listener, subscriptions::remove);
+            for (TodoEvent event : changeLog.tailMap(fromSeq, false).values()) {
+                subscription.enqueue(event);
+            }
+            subscriptions.add(subscription);
+            return subscription;
+        } finally {
+            writeLock.unlock();
+            dispatch();
+        }
+    }
+
+    // Starts with a BULK event holding every cached todo, so the listener needs no separate read
+    EventSubscription subscribe(Executor executor, Consumer<List<TodoEvent>> listener) {
+        writeLock.lock();
+        try {
+            EventSubscription subscription = new EventSubscription(version, executor, listener, subscriptions::remove);
+            List<Todo> todos = store.values();
+            if (!todos.isEmpty()) subscription.enqueue(TodoEvent.bulk(version, todos));
+            subscriptions.add(subscription);
+            return subscription;
+        } finally {
+            writeLock.unlock();
+            dispatch();
+        }
+    }
+
+    private void dispatch() {
+        for (EventSubscription subscription : subscriptions) {
+            subscription.dispatch();
+        }
+    }
+
+    // Caller holds the write lock; the version is bumped last so readers that see it also see the write
+    private void recordChange(TodoEvent event) {
+        long next = event.getSeq();
+        changeLog.put(next, event);
+        if (++changeLogSize > CHANGE_LOG_CAPACITY) {
+            // Raise the floor before dropping the entry so concurrent readers notice the gap
+            changeLogFloor = changeLog.firstKey();
+            changeLog.pollFirstEntry();
+            changeLogSize--;
+        }
+        version = next;
+        for (EventSubscription subscription : subscriptions) {
+            subscription.enqueue(event);
+        }
+    }
+
+    TodoStats stats() {
+        PublishedStats current = publishedStats;
+        LocalDateTime validUntil = current.validUntil();
+        // A pending todo has become overdue since the snapshot was taken. If a writer holds
+        // the lock it is about to publish anyway, so hand back the current snapshot rather than wait.
+        if (validUntil != null && !LocalDateTime.now().isBefore(validUntil) && writeLock.tryLock()) {
+            try {
+                publishStats();
+                current = publishedStats;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return current.stats();
+    }
+
+    // Caller holds the write lock
+    private void publishStats() {
+        LocalDateTime now = LocalDateTime.now();
+        TodoStats stats = new TodoStats(store.size(), store.completedCount(),
+                store.overdueCount(now), store.categoryCounts(), now);
+        publishedStats = new PublishedStats(stats, store.nextPendingDue(now));
+    }
+
+    int completedCount() {
+        return store.completedCount();
+    }
+
+    List<String> categories() {
+        return store.categories();
+    }
+
+    List<Todo> byCategory(String category) {
+        return store.inCategory(category);
+    }
+
+    // Todos due in [from, to)
+    List<Todo> dueBetween(LocalDateTime from, LocalDateTime to) {
+        return store.dueBetween(from, to);
+    }
+
+    List<Todo> overdue(LocalDateTime now) {
+        return store.pendingDueBefore(now);
+    }
+
+    List<Todo> query(TodoQuery query) {
+        return store.query(query);
+    }
+
+    QueryPlan plan(TodoQuery query) {
+        return store.plan(query);
+    }
+
+    // Ranked, typo-tolerant matches; see TrigramIndex
+    List<Todo> fuzzySearch(String text, int limit) {
+        TrigramIndex index = filledTrigrams;
+        if (index == null) index = buildTrigrams();
+        return lookup(index.search(text, limit));
+    }
+
+    // Only the switch-over takes the write lock; the rows already here are indexed after it, so saves
+    // don't wait for the whole build. Concurrent first searches wait for the one doing it.
+    private synchronized TrigramIndex buildTrigrams() {
+        if (filledTrigrams != null) return filledTrigrams;
+        TrigramIndex index = new TrigramIndex();
+        List<Todo> existing;
+        writeLock.lock();
+        try {
+            trigrams = index;
+            existing = store.values();
+        } finally {
+            writeLock.unlock();
+        }
+        index.fill(existing);
+        filledTrigrams = index;
+        return index;
+    }
+
+    // Keyset page; the cursor has already been checked against sortKey
+    Page page(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter) {
+        return store.page(cursor, limit, sortKey, filter);
+    }
+
+    // Maps ids to cached todos, skipping any that are gone
+    List<Todo> lookup(List<TodoId> ids) {
+        List<Todo> todos = new ArrayList<>(ids.size());
+        for (TodoId id : ids) {
+            Todo todo = get(id);
+            if (todo != null) todos.add(todo);
+        }
+        return todos;
+    }
+}
@@ -0,0 +1,26 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+
+/**
+ * Thrown by {@link TodoRepository#saveTodo} when the stored todo is no longer
+ * at the version the saved copy was made from, because another writer got
+ * there first. Nothing is written; the cache already holds the winning copy.
+ */
+public class TodoConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final Todo attempted;
+    private final Todo current;
+
+    public TodoConflictException(Todo attempted, Todo current) {
+        super("Todo " + attempted.getId() + " was changed by another writer (expected version "
+                + attempted.getVersion() + ", found " + (current != null ? current.getVersion() : "none") + ")");
+        this.attempted = attempted;
+        this.current = current;
+    }
+
+    public Todo getAttempted() { return attempted; }
+    // The stored copy that won, or null if it has been deleted
+    public Todo getCurrent() { return current; }
+}
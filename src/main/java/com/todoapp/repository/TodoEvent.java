@@ -0,0 +1,110 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * One change to the repository, numbered with the version it produced (see
+ * {@link TodoRepository#getVersion()}). Sequence numbers only grow, but not
+ * every number has an event, and they start again with each repository.
+ *
+ * <p>{@code BULK} is rows added at once, such as the chunks read at startup.
+ * Its rows are in {@link #getTodos()}; every other type is about the single
+ * todo in {@link #getTodo()}.
+ */
+public final class TodoEvent {
+    public enum Type { CREATED, UPDATED, DELETED, BULK }
+    public enum Field { TITLE, DONE, TIME, CATEGORY }
+
+    private final Type type;
+    private final long seq;
+    // The new copy, or for DELETED the copy that was removed; null for BULK
+    private final Todo todo;
+    // The copy it replaced; UPDATED only
+    private final Todo previous;
+    private final Set<Field> changedFields;
+    private final List<Todo> todos;
+
+    private TodoEvent(Type type, long seq, Todo todo, Todo previous, Set<Field> changedFields, List<Todo> todos) {
+        this.type = type;
+        this.seq = seq;
+        this.todo = todo;
+        this.previous = previous;
+        this.changedFields = changedFields;
+        this.todos = todos;
+    }
+
+    static TodoEvent created(long seq, Todo todo) {
+        return new TodoEvent(Type.CREATED, seq, todo, null, Set.of(), List.of());
+    }
+
+    static TodoEvent updated(long seq, Todo previous, Todo todo) {
+        return new TodoEvent(Type.UPDATED, seq, todo, previous, diff(previous, todo), List.of());
+    }
+
+    static TodoEvent deleted(long seq, Todo removed) {
+        return new TodoEvent(Type.DELETED, seq, removed, null, Set.of(), List.of());
+    }
+
+    static TodoEvent bulk(long seq, List<Todo> todos) {
+        return new TodoEvent(Type.BULK, seq, null, null, Set.of(), List.copyOf(todos));
+    }
+
+    // The net effect of this event followed by a later one, or null if they cancel out
+    static TodoEvent merge(TodoEvent first, TodoEvent second) {
+        if (first.type == Type.BULK || second.type == Type.BULK) {
+            List<Todo> todos = new ArrayList<>(first.todos.size() + second.todos.size());
+            todos.addAll(first.todos);
+            todos.addAll(second.todos);
+            return new TodoEvent(Type.BULK, second.seq, null, null, Set.of(), Collections.unmodifiableList(todos));
+        }
+        return switch (first.type) {
+            case CREATED -> second.type == Type.DELETED ? null : created(second.seq, second.todo);
+            case UPDATED -> second.type == Type.DELETED
+                    ? deleted(second.seq, first.previous)
+                    : updated(second.seq, first.previous, second.todo);
+            // Deleted and then saved again under the same id
+            case DELETED -> second.type == Type.DELETED ? second : updated(second.seq, first.todo, second.todo);
+            default -> second;
+        };
+    }
+
+    private static Set<Field> diff(Todo previous, Todo todo) {
+        Set<Field> fields = EnumSet.noneOf(Field.class);
+        if (!previous.getTitle().equals(todo.getTitle())) fields.add(Field.TITLE);
+        if (previous.isDone() != todo.isDone()) fields.add(Field.DONE);
+        if (!Objects.equals(previous.getTime(), todo.getTime())) fields.add(Field.TIME);
+        if (!Objects.equals(previous.getCategory(), todo.getCategory())) fields.add(Field.CATEGORY);
+        return Collections.unmodifiableSet(fields);
+    }
+
+    public Type getType() { return type; }
+    public long getSeq() { return seq; }
+    public Todo getTodo() { return todo; }
+    public Todo getPrevious() { return previous; }
+    // Empty unless UPDATED; may be empty then too if only updatedAt moved
+    public Set<Field> getChangedFields() { return changedFields; }
+    // Empty unless BULK
+    public List<Todo> getTodos() { return todos; }
+
+    public String getTodoId() {
+        return todo != null ? todo.getId() : null;
+    }
+
+    TodoId getKey() {
+        return todo != null ? todo.getKey() : null;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.BULK
+                ? "TodoEvent{BULK #" + seq + ", " + todos.size() + " todos}"
+                : "TodoEvent{" + type + " #" + seq + ", " + todo.getId() + (type == Type.UPDATED ? " " + changedFields : "") + "}";
+    }
+}
@@ -0,0 +1,51 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import java.util.Objects;
+
+/**
+ * Optional restrictions applied while paging. Unset fields match everything.
+ */
+public final class TodoFilter {
+    private static final TodoFilter ALL = new TodoFilter(null, null);
+
+    private final String category;
+    private final Boolean done;
+
+    private TodoFilter(String category, Boolean done) {
+        this.category = category;
+        this.done = done;
+    }
+
+    public static TodoFilter all() {
+        return ALL;
+    }
+
+    public TodoFilter withCategory(String category) {
+        return new TodoFilter(category, done);
+    }
+
+    public TodoFilter withDone(boolean done) {
+        return new TodoFilter(category, done);
+    }
+
+    public String getCategory() { return category; }
+    public Boolean getDone() { return done; }
+
+    public boolean matches(Todo todo) {
+        if (category != null && !category.equals(todo.getCategory())) return false;
+        return done == null || done == todo.isDone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TodoFilter other)) return false;
+        return Objects.equals(category, other.category) && Objects.equals(done, other.done);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(category, done);
+    }
+}
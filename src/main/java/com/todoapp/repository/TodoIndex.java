@@ -0,0 +1,266 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.util.BinaryCollation;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary indexes over the todo cache: todos by category, the done count,
+ * pending todos by due time, and one ordered set per {@link SortKey} for
+ * keyset pagination. Built on concurrent collections so lookups never lock;
+ * updates must be serialized by the caller, which passes in the version of
+ * the todo being replaced so its old entries can be found.
+ */
+class TodoIndex {
+    // Concurrent maps can't hold null keys, so todos without a category are filed under this
+    private static final String NO_CATEGORY = "\u0000";
+
+    // Mirror the ORDER BY clauses SqliteTodoRepository uses for the same sort keys
+    private static final Comparator<Todo> NEWEST_FIRST =
+            Comparator.comparing(Todo::getCreatedAt).thenComparing(Todo::getKey).reversed();
+    private static final Comparator<Todo> BY_TIME =
+            Comparator.comparing(Todo::getTime, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()))
+                    .thenComparing(Todo::getKey);
+    private static final Comparator<Todo> BY_CATEGORY =
+            Comparator.comparing(Todo::getCategory, Comparator.nullsFirst(BinaryCollation.ORDER))
+                    .thenComparing(NEWEST_FIRST);
+
+    private final Map<SortKey, NavigableSet<Todo>> ordered = new EnumMap<>(Map.of(
+            SortKey.CREATED_AT, new ConcurrentSkipListSet<>(NEWEST_FIRST),
+            SortKey.TIME, new ConcurrentSkipListSet<>(BY_TIME),
+            SortKey.CATEGORY, new ConcurrentSkipListSet<>(BY_CATEGORY)));
+    private final Map<String, NavigableSet<Todo>> byCategory = new ConcurrentSkipListMap<>();
+    // Skip list sizes are O(n), so counts are kept alongside
+    private final Map<String, Integer> categoryCounts = new ConcurrentSkipListMap<>();
+    // Pending todos only, so overdue lookups don't wade through old completed ones
+    private final NavigableSet<Todo> pendingByTime = new ConcurrentSkipListSet<>(BY_TIME);
+    private volatile int completedCount = 0;
+
+    // Number of pending todos due before overdueBoundary; the boundary only moves forward with the clock
+    private LocalDateTime overdueBoundary = LocalDateTime.MIN;
+    private int overdueCount = 0;
+
+    void update(Todo previous, Todo current) {
+        if (previous != null) unlink(previous);
+        link(current);
+    }
+
+    void remove(Todo previous) {
+        unlink(previous);
+    }
+
+    // Newest first
+    List<Todo> inCategory(String category) {
+        NavigableSet<Todo> todos = byCategory.get(bucket(category));
+        return todos != null ? new ArrayList<>(todos) : List.of();
+    }
+
+    // Todos due in [from, to)
+    List<Todo> dueBetween(LocalDateTime from, LocalDateTime to) {
+        return new ArrayList<>(ordered.get(SortKey.TIME).subSet(dueAt(from), true, dueAt(to), false));
+    }
+
+    // Pending todos due strictly before the given instant
+    List<Todo> pendingDueBefore(LocalDateTime instant) {
+        return new ArrayList<>(pendingByTime.headSet(dueAt(instant), false));
+    }
+
+    int completedCount() {
+        return completedCount;
+    }
+
+    // Amortized O(1): each pending todo is counted once as the boundary passes its due time.
+    // Moves the boundary, so it is a write like update and remove.
+    int overdueCount(LocalDateTime now) {
+        if (now.isBefore(overdueBoundary)) {
+            // Clock moved backwards; recount from scratch
+            overdueCount = pendingByTime.headSet(dueAt(now), false).size();
+        } else {
+            overdueCount += pendingByTime.subSet(dueAt(overdueBoundary), true, dueAt(now), false).size();
+        }
+        overdueBoundary = now;
+        return overdueCount;
+    }
+
+    // Earliest pending due time at or after the given instant, or null if there is none
+    LocalDateTime nextPendingDue(LocalDateTime instant) {
+        Todo next = pendingByTime.ceiling(dueAt(instant));
+        return next != null ? next.getTime() : null;
+    }
+
+    Map<String, Integer> categoryCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        categoryCounts.forEach((category, count) -> counts.put(unbucket(category), count));
+        return counts;
+    }
+
+    // Todos in sort order strictly after the cursor (from the start if it is null)
+    Iterator<Todo> after(SortKey sortKey, PageCursor cursor) {
+        NavigableSet<Todo> todos = ordered.get(sortKey);
+        if (cursor == null) return todos.iterator();
+        Todo position = new Todo(cursor.getId(), "", false, cursor.getTime(),
+                cursor.getCreatedAt(), null, cursor.getCategory());
+        return todos.tailSet(position, false).iterator();
+    }
+
+    // Candidate rows for a query, and the plan they came from
+    private record Source(QueryPlan plan, Iterable<Todo> todos) {}
+
+    QueryPlan plan(TodoQuery query, int size) {
+        return choose(query, size).plan();
+    }
+
+    // Reads the cheapest source, keeps the rows matching the whole query, and sorts them unless the
+    // source was already in order, in which case the limit ends the read
+    List<Todo> query(TodoQuery query, int size) {
+        Source source = choose(query, size);
+        int limit = query.getLimit();
+        boolean ordered = source.plan().ordered();
+        List<Todo> matches = new ArrayList<>();
+        for (Todo todo : source.todos()) {
+            if (!query.matches(todo)) continue;
+            matches.add(todo);
+            if (ordered && matches.size() == limit) break;
+        }
+        if (!ordered) {
+            matches.sort(order(query.effectiveSortKey()));
+            if (limit > 0 && matches.size() > limit) matches = new ArrayList<>(matches.subList(0, limit));
+        }
+        return matches;
+    }
+
+    // Costs are the rows each source would read. A source in sort order reads about limit rows
+    // for every fraction of them that match; the fraction is taken from the most selective count known.
+    private Source choose(TodoQuery query, int size) {
+        if (query.matchesNothing()) return new Source(QueryPlan.empty("no searchable text"), List.of());
+        SortKey sortKey = query.effectiveSortKey();
+        long matching = size;
+        if (query.getDone() != null) {
+            matching = query.getDone() ? completedCount : size - completedCount;
+        }
+
+        NavigableSet<Todo> byCategorySet = null;
+        long categoryRows = 0;
+        if (query.getCategory() != null) {
+            String bucket = bucket(query.getCategory());
+            byCategorySet = byCategory.get(bucket);
+            if (byCategorySet == null) return new Source(QueryPlan.empty("no todos in category " + query.getCategory()), List.of());
+            categoryRows = categoryCounts.getOrDefault(bucket, 0);
+            matching = Math.min(matching, categoryRows);
+        }
+
+        Source best = new Source(new QueryPlan(QueryPlan.Access.SORTED_INDEX, "by " + sortKey,
+                cost(size, true, query.getLimit(), matching), true), ordered.get(sortKey));
+        if (byCategorySet != null) {
+            // A single category is newest first, which is also its CATEGORY order
+            boolean inOrder = sortKey != SortKey.TIME;
+            long cost = cost(categoryRows, inOrder, query.getLimit(), matching);
+            if (cost < best.plan().estimatedRows()) {
+                best = new Source(new QueryPlan(QueryPlan.Access.CATEGORY_INDEX, "'" + query.getCategory() + "'",
+                        cost, inOrder), byCategorySet);
+            }
+        }
+        if (query.hasDueRange()) {
+            boolean pendingOnly = Boolean.FALSE.equals(query.getDone());
+            NavigableSet<Todo> range = dueRange(pendingOnly ? pendingByTime : ordered.get(SortKey.TIME), query);
+            // Counting a skip list range is linear, so stop once it has lost
+            long rows = countUpTo(range, best.plan().estimatedRows());
+            boolean inOrder = sortKey == SortKey.TIME;
+            long cost = cost(rows, inOrder, query.getLimit(), Math.min(matching, rows));
+            if (cost < best.plan().estimatedRows()) {
+                best = new Source(new QueryPlan(QueryPlan.Access.DUE_INDEX,
+                        (pendingOnly ? "pending " : "") + "[" + query.getDueFrom() + ", " + query.getDueTo() + ")",
+                        cost, inOrder), range);
+            }
+        }
+        return best;
+    }
+
+    private static long cost(long sourceRows, boolean inOrder, int limit, long matching) {
+        if (!inOrder || limit == 0 || matching == 0) return sourceRows;
+        return Math.min(sourceRows, (long) Math.ceil((double) limit * sourceRows / matching));
+    }
+
+    private static long countUpTo(Iterable<Todo> todos, long cap) {
+        long count = 0;
+        for (Iterator<Todo> it = todos.iterator(); it.hasNext() && count <= cap; it.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static NavigableSet<Todo> dueRange(NavigableSet<Todo> byTime, TodoQuery query) {
+        Todo from = dueAt(query.getDueFrom() != null ? query.getDueFrom() : LocalDateTime.MIN);
+        return query.getDueTo() != null
+                ? byTime.subSet(from, true, dueAt(query.getDueTo()), false)
+                : byTime.tailSet(from, true);
+    }
+
+    static Comparator<Todo> order(SortKey sortKey) {
+        return switch (sortKey) {
+            case CREATED_AT -> NEWEST_FIRST;
+            case TIME -> BY_TIME;
+            case CATEGORY -> BY_CATEGORY;
+        };
+    }
+
+    List<String> categories() {
+        List<String> categories = new ArrayList<>();
+        for (String category : categoryCounts.keySet()) {
+            categories.add(unbucket(category));
+        }
+        return categories;
+    }
+
+    private void link(Todo todo) {
+        for (NavigableSet<Todo> todos : ordered.values()) todos.add(todo);
+        String bucket = bucket(todo.getCategory());
+        byCategory.computeIfAbsent(bucket, c -> new ConcurrentSkipListSet<>(NEWEST_FIRST)).add(todo);
+        categoryCounts.merge(bucket, 1, Integer::sum);
+        if (todo.isDone()) completedCount++;
+        if (todo.getTime() != null && !todo.isDone()) {
+            pendingByTime.add(todo);
+            if (todo.getTime().isBefore(overdueBoundary)) overdueCount++;
+        }
+    }
+
+    private void unlink(Todo todo) {
+        for (NavigableSet<Todo> todos : ordered.values()) todos.remove(todo);
+        String bucket = bucket(todo.getCategory());
+        Collection<Todo> todos = byCategory.get(bucket);
+        if (todos != null) todos.remove(todo);
+        if (categoryCounts.merge(bucket, -1, Integer::sum) <= 0) {
+            categoryCounts.remove(bucket);
+            byCategory.remove(bucket);
+        }
+        if (todo.isDone()) completedCount--;
+        if (todo.getTime() != null && !todo.isDone()) {
+            pendingByTime.remove(todo);
+            if (todo.getTime().isBefore(overdueBoundary)) overdueCount--;
+        }
+    }
+
+    // Sorts before every real todo due at the same instant: the empty text id is the smallest id
+    private static Todo dueAt(LocalDateTime time) {
+        return new Todo("", "", false, time, LocalDateTime.MIN, null, null);
+    }
+
+    private static String bucket(String category) {
+        return category != null ? category : NO_CATEGORY;
+    }
+
+    private static String unbucket(String bucket) {
+        return NO_CATEGORY.equals(bucket) ? null : bucket;
+    }
+}
@@ -0,0 +1,159 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A combined lookup for {@link TodoRepository#query}: any mix of done state,
+ * category, due range and search text, in one sort order, optionally
+ * limited. Unset parts match everything. Queries are immutable values, so
+ * equal queries share cached results.
+ *
+ * <p>Text matches the way search does: every word must start a word of the
+ * title or category, and quoted text must appear as a phrase. Without an
+ * explicit sort, text queries come back in relevance order where the backend
+ * can rank them (SQLite) and newest first otherwise.
+ */
+public final class TodoQuery {
+    private static final TodoQuery ALL = new TodoQuery(null, null, null, null, null, null, 0);
+
+    private final Boolean done;
+    private final String category;
+    // Due in [dueFrom, dueTo); either end may be open, but a todo without a due time never matches a range
+    private final LocalDateTime dueFrom;
+    private final LocalDateTime dueTo;
+    private final String text;
+    private final SortKey sortKey;
+    // 0: no limit
+    private final int limit;
+    // The text as normalized search terms; null without text
+    private final List<FtsQuery.Term> terms;
+
+    private TodoQuery(Boolean done, String category, LocalDateTime dueFrom, LocalDateTime dueTo,
+                      String text, SortKey sortKey, int limit) {
+        this.done = done;
+        this.category = category;
+        this.dueFrom = dueFrom;
+        this.dueTo = dueTo;
+        this.text = text;
+        this.sortKey = sortKey;
+        this.limit = limit;
+        this.terms = text == null ? null : FtsQuery.terms(text).stream()
+                .map(term -> new FtsQuery.Term(FtsQuery.normalize(term.text()), term.prefix()))
+                .toList();
+    }
+
+    public static TodoQuery all() {
+        return ALL;
+    }
+
+    public TodoQuery withDone(boolean done) {
+        return new TodoQuery(done, category, dueFrom, dueTo, text, sortKey, limit);
+    }
+
+    public TodoQuery withCategory(String category) {
+        return new TodoQuery(done, category, dueFrom, dueTo, text, sortKey, limit);
+    }
+
+    public TodoQuery withDueBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            throw new IllegalArgumentException("A due range needs at least one end");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Due range is empty: " + from + " to " + to);
+        }
+        return new TodoQuery(done, category, from, to, text, sortKey, limit);
+    }
+
+    // Blank text is the same as none
+    public TodoQuery withText(String text) {
+        String trimmed = text == null || text.isBlank() ? null : text.trim();
+        return new TodoQuery(done, category, dueFrom, dueTo, trimmed, sortKey, limit);
+    }
+
+    public TodoQuery sortedBy(SortKey sortKey) {
+        return new TodoQuery(done, category, dueFrom, dueTo, text, Objects.requireNonNull(sortKey), limit);
+    }
+
+    public TodoQuery withLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Query limit must be positive");
+        }
+        return new TodoQuery(done, category, dueFrom, dueTo, text, sortKey, limit);
+    }
+
+    public Boolean getDone() { return done; }
+    public String getCategory() { return category; }
+    public LocalDateTime getDueFrom() { return dueFrom; }
+    public LocalDateTime getDueTo() { return dueTo; }
+    public String getText() { return text; }
+    // Null: relevance for text queries where ranked, newest first otherwise
+    public SortKey getSortKey() { return sortKey; }
+    public int getLimit() { return limit; }
+
+    boolean hasDueRange() {
+        return dueFrom != null || dueTo != null;
+    }
+
+    // The order results come back in when nothing ranks them
+    SortKey effectiveSortKey() {
+        return sortKey != null ? sortKey : SortKey.CREATED_AT;
+    }
+
+    // True if there is text but nothing in it can match, such as only punctuation
+    boolean matchesNothing() {
+        return terms != null && terms.isEmpty();
+    }
+
+    public boolean matches(Todo todo) {
+        if (done != null && done != todo.isDone()) return false;
+        if (category != null && !category.equals(todo.getCategory())) return false;
+        if (hasDueRange()) {
+            LocalDateTime time = todo.getTime();
+            if (time == null) return false;
+            if (dueFrom != null && time.isBefore(dueFrom)) return false;
+            if (dueTo != null && !time.isBefore(dueTo)) return false;
+        }
+        return terms == null || matchesText(todo);
+    }
+
+    private boolean matchesText(Todo todo) {
+        if (terms.isEmpty()) return false;
+        // Padded with spaces so a term can be matched at word starts only
+        String searchable = " " + FtsQuery.normalize(todo.getTitle()) + " "
+                + (todo.getCategory() != null ? FtsQuery.normalize(todo.getCategory()) : "") + " ";
+        for (FtsQuery.Term term : terms) {
+            String needle = " " + term.text() + (term.prefix() ? "" : " ");
+            if (!searchable.contains(needle)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TodoQuery other)) return false;
+        return limit == other.limit && Objects.equals(done, other.done) && Objects.equals(category, other.category)
+                && Objects.equals(dueFrom, other.dueFrom) && Objects.equals(dueTo, other.dueTo)
+                && Objects.equals(text, other.text) && sortKey == other.sortKey;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(done, category, dueFrom, dueTo, text, sortKey, limit);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("TodoQuery{");
+        if (done != null) out.append("done=").append(done).append(", ");
+        if (category != null) out.append("category=").append(category).append(", ");
+        if (hasDueRange()) out.append("due=[").append(dueFrom).append(", ").append(dueTo).append("), ");
+        if (text != null) out.append("text=").append(text).append(", ");
+        out.append("sort=").append(sortKey != null ? sortKey : "default");
+        if (limit > 0) out.append(", limit=").append(limit);
+        return out.append('}').toString();
+    }
+}
@@ -0,0 +1,23 @@
+package com.todoapp.repository;
+
+/**
+ * Builds the repository selected by {@link RepositoryConfig#getBackend()},
+ * so callers depend on {@link TodoRepository} rather than on one backend.
+ */
+public final class TodoRepositories {
+    private TodoRepositories() {
+    }
+
+    public static TodoRepository open(RepositoryConfig config) {
+        return switch (config.getBackend()) {
+            case SQLITE -> new SqliteTodoRepository(config);
+            case LOG -> {
+                if (":memory:".equals(config.getDatabasePath())) {
+                    throw new IllegalArgumentException("The log backend needs a file; use --backend=memory instead");
+                }
+                yield new LogTodoRepository(config);
+            }
+            case MEMORY -> new MemoryTodoRepository(config);
+        };
+    }
+}
@@ -1,24 +1,86 @@
 package com.todoapp.repository;
 
 import com.todoapp.model.Todo;
+import com.todoapp.model.TodoStats;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
-public interface TodoRepository {
+public interface TodoRepository extends AutoCloseable {
+    // Unmodifiable snapshot; todos are immutable, so it can be shared without copying
     List<Todo> getAllTodos();
     Optional<Todo> getTodo(String todoId);
+    // Returns the stored copy, one version on. Throws TodoConflictException if the stored todo is no longer
+    // at the todo's version; a todo at version 0 is new, and conflicts if the id is already taken.
     Todo saveTodo(Todo todo);
     boolean deleteTodo(String todoId);
+    // Applies the change to each listed todo and saves the results in one transaction: all of them or, on a
+    // TodoConflictException, none. Ids that don't exist and todos the change returns as they are are skipped.
+    // Subscribers get the changes as one batch. Returns the stored copies.
+    List<Todo> updateTodos(Collection<String> todoIds, UnaryOperator<Todo> change);
+    // Deletes the listed todos in one transaction, delivered as one batch; returns how many existed
+    int deleteTodos(Collection<String> todoIds);
+    
+    // Blocks until all pending writes have reached storage; throws if a queued write failed since the last call
+    void flush();
     
     List<Todo> searchTodos(String query);
+    // Results are in relevance order, at most limit of them
+    List<Todo> searchTodos(String query, int limit);
+    // Best matches first, tolerating typos; meant for search-as-you-type, so the last word counts as a prefix
+    // until the query ends in a space
+    List<Todo> fuzzySearch(String query, int limit);
     List<Todo> getTodosDueToday();
     List<Todo> getOverdueTodos();
     List<Todo> getTodosByCategory(String category);
+    // Every todo matching all parts of the query, in its order; repeated queries are answered from a
+    // small result cache until the next write
+    List<Todo> query(TodoQuery query);
+    // How query would be answered, for diagnostics
+    String explain(TodoQuery query);
+    
+    // Keyset pagination; pass a null cursor for the first page
+    Page page(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter);
+    // Same contract, read from the backing store instead of the cache
+    Page pageFromStore(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter);
     
     int getTotalTodoCount();
     int getCompletedTodoCount();
+    // Consistent snapshot of all counters, updated incrementally on every mutation
+    TodoStats getStats();
     List<String> getAllCategories();
     
+    // Increases with every save and delete; also the sequence number of the matching TodoEvent
+    long getVersion();
+    // Todos saved and deleted after the given version, or null if that is too far back to replay
+    ChangeSet getChangesSince(long version);
+    
     void initializeDefaultData();
+    
+    // Moves todos completed before the cutoff (done, and last updated before it) out of the working set and
+    // into the archive; returns how many moved. They leave the cache as DELETED events.
+    int archiveCompleted(LocalDateTime completedBefore);
+    // Moves an archived todo back into the working set, one version on; empty if it isn't archived
+    Optional<Todo> restoreTodo(String todoId);
+    TodoArchive getArchive();
+    
+    // Completes once every stored row is in memory. Until then reads answered from memory see only
+    // the rows loaded so far, newest first, and saves and deletes wait for the load to finish.
+    // Rows loaded after that arrive as BULK events.
+    CompletableFuture<Void> whenLoaded();
+    
+    // Events after fromSeq, then every new one, passed to the listener in batches on the executor.
+    // Events for the same todo are merged while the listener is busy. Null if fromSeq is too far back to replay.
+    TodoSubscription subscribe(long fromSeq, Executor executor, Consumer<List<TodoEvent>> listener);
+    // Starts with a BULK event holding every todo loaded so far, then follows every change
+    TodoSubscription subscribe(Executor executor, Consumer<List<TodoEvent>> listener);
+    
+    // Releases the underlying storage; the repository is unusable afterwards
+    @Override
+    void close();
 }
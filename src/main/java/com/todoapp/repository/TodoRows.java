@@ -0,0 +1,81 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+/**
+ * Maps todos to and from rows of the todos table.
+ */
+final class TodoRows {
+    static final String COLUMNS = "id, title, done, time, created_at, updated_at, category, version";
+    // The columns a pre-migration table has; its rows count as version 1
+    static final String LEGACY_COLUMNS = "id, title, done, time, created_at, updated_at, category";
+
+    private TodoRows() {
+    }
+
+    // Binds the todo to parameters 1-8 in COLUMNS order
+    static void bind(PreparedStatement pstmt, Todo todo) throws SQLException {
+        bindId(pstmt, 1, todo.getKey());
+        pstmt.setString(2, todo.getTitle());
+        pstmt.setBoolean(3, todo.isDone());
+        if (todo.getTime() != null) {
+            pstmt.setLong(4, Timestamps.encode(todo.getTime()));
+        } else {
+            pstmt.setNull(4, Types.INTEGER);
+        }
+        pstmt.setLong(5, Timestamps.encode(todo.getCreatedAt()));
+        pstmt.setLong(6, Timestamps.encode(todo.getUpdatedAt()));
+        pstmt.setString(7, todo.getCategory());
+        pstmt.setInt(8, todo.getVersion());
+    }
+
+    static Todo read(ResultSet rs) throws SQLException {
+        TodoId id = readId(rs);
+        String title = rs.getString("title");
+        boolean done = rs.getBoolean("done");
+        LocalDateTime time = Timestamps.read(rs, "time");
+        LocalDateTime createdAt = Timestamps.read(rs, "created_at");
+        LocalDateTime updatedAt = Timestamps.read(rs, "updated_at");
+        String category = rs.getString("category");
+        int version = rs.getInt("version");
+        
+        return new Todo(id, title, done, time, createdAt, updatedAt, category, version);
+    }
+
+    // Reads a row of the pre-migration table, whatever layout it is still in
+    static Todo readLegacy(ResultSet rs) throws SQLException {
+        return new Todo(readId(rs), rs.getString("title"), rs.getBoolean("done"),
+                Timestamps.readLegacy(rs, "time"), Timestamps.readLegacy(rs, "created_at"),
+                Timestamps.readLegacy(rs, "updated_at"), rs.getString("category"), 1);
+    }
+
+    // UUIDs are stored as 16-byte BLOBs, anything else as the text it came in as
+    static Object idValue(TodoId id) {
+        return id.isUuid() ? id.toBytes() : id.toString();
+    }
+
+    static void bindId(PreparedStatement pstmt, int index, TodoId id) throws SQLException {
+        if (id.isUuid()) {
+            pstmt.setBytes(index, id.toBytes());
+        } else {
+            pstmt.setString(index, id.toString());
+        }
+    }
+
+    // Reads the id column, which holds a BLOB or (for older rows and non-UUID ids) TEXT
+    static TodoId readId(ResultSet rs) throws SQLException {
+        return readId(rs, "id");
+    }
+
+    static TodoId readId(ResultSet rs, String column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value instanceof byte[] bytes) return TodoId.fromBytes(bytes);
+        return TodoId.of(value.toString());
+    }
+}
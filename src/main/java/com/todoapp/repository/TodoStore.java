@@ -0,0 +1,45 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Row storage behind {@link TodoCache}. Writes (put, remove and
+ * overdueCount) are serialized by the cache; reads may run concurrently with
+ * them and must not block on them.
+ */
+interface TodoStore {
+    Todo get(TodoId todoId);
+    int size();
+    // Unmodifiable, in insertion order
+    List<Todo> values();
+
+    // Returns the todo it replaced, or null
+    Todo put(Todo todo);
+    // Returns the removed todo, or null
+    Todo remove(TodoId todoId);
+
+    int completedCount();
+    // Pending todos due before now
+    int overdueCount(LocalDateTime now);
+    // Earliest pending due time at or after the given instant, or null if there is none
+    LocalDateTime nextPendingDue(LocalDateTime instant);
+    Map<String, Integer> categoryCounts();
+    List<String> categories();
+
+    // Newest first
+    List<Todo> inCategory(String category);
+    // Todos due in [from, to), earliest first
+    List<Todo> dueBetween(LocalDateTime from, LocalDateTime to);
+    // Pending todos due strictly before the given instant, earliest first
+    List<Todo> pendingDueBefore(LocalDateTime instant);
+    // Keyset page; the cursor has already been checked against sortKey
+    Page page(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter);
+    // Todos matching the whole query, in its order and within its limit
+    List<Todo> query(TodoQuery query);
+    // How query would find them
+    QueryPlan plan(TodoQuery query);
+}
@@ -0,0 +1,14 @@
+package com.todoapp.repository;
+
+/**
+ * Handle on a listener registered with
+ * {@link TodoRepository#subscribe(long, java.util.concurrent.Executor, java.util.function.Consumer)}.
+ */
+public interface TodoSubscription extends AutoCloseable {
+    // Every event up to this sequence number has been handed to the listener (or merged away)
+    long getDeliveredSeq();
+
+    // Stops delivery; a batch already running finishes
+    @Override
+    void close();
+}
@@ -0,0 +1,359 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant search over titles and categories. Every word is cut into
+ * overlapping three-character grams, padded so that word starts count
+ * ("milk" gives "  m", " mi", "mil", "ilk", "lk "), and each gram has a
+ * posting list of the documents containing it. Documents sharing the most
+ * query grams are candidates, so a typo costs a few grams instead of the
+ * match. Candidates are then ranked by how many edits separate each query
+ * word from its closest word in the document, which tells a typo apart from
+ * words that merely share letters.
+ *
+ * <p>Documents are numbered in the order they are indexed. When a todo's text
+ * changes, its old number is retired and the new text is indexed under a
+ * fresh one. Retired numbers stay in the posting lists and are skipped at
+ * query time until they outnumber the live ones, and then everything is
+ * rebuilt. The cache serializes writers; the read-write lock only keeps
+ * searches off half-updated lists.
+ *
+ * <p>A new index takes writes straight away and is filled with the existing
+ * rows by {@link #fill}, which only adds todos that no write has touched in
+ * the meantime, so the cache needn't hold its write lock while that runs.
+ */
+final class TrigramIndex {
+    private static final int INITIAL_DOCS = 1024;
+    // Below this many retired documents, skipping them is cheaper than a rebuild
+    private static final int MIN_REBUILD = 4096;
+    // Candidates kept for ranking per result asked for
+    private static final int CANDIDATES_PER_RESULT = 4;
+
+    private record Candidate(int doc, TodoId id, int shared, int length) {}
+
+    // Best first: most grams shared, then the shortest text, then newest
+    private static final Comparator<Candidate> BY_OVERLAP = Comparator.comparingInt(Candidate::shared).reversed()
+            .thenComparingInt(Candidate::length)
+            .thenComparing(Candidate::id, Comparator.reverseOrder());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Open-addressing table from gram to its posting list number; 0 marks a free slot, which no gram
+    // packs to since they all contain letters or padding
+    private long[] gramKeys = new long[INITIAL_DOCS];
+    private int[] gramLists = new int[INITIAL_DOCS];
+    private int gramCount;
+    // Posting list number to the documents containing the gram, in document order
+    private int[][] postings = new int[INITIAL_DOCS][];
+    private int[] postingSizes = new int[INITIAL_DOCS];
+    private final Map<TodoId, Integer> docByKey = new HashMap<>();
+    // Per document; a retired document has a null id and text
+    private TodoId[] ids = new TodoId[INITIAL_DOCS];
+    // " title category ", normalized, so whole words can be found by their surrounding spaces
+    private String[] texts = new String[INITIAL_DOCS];
+    private int[] gramCounts = new int[INITIAL_DOCS];
+    private int docCount;
+    private int retired;
+    // Ids removed while fill is running, so it doesn't add them back; null once filled
+    private Set<TodoId> removedWhileFilling = new HashSet<>();
+
+    void put(Todo todo) {
+        String text = searchable(todo);
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByKey.get(todo.getKey());
+            if (doc != null) {
+                // Most saves don't touch the title or category
+                if (texts[doc].equals(text)) return;
+                retire(doc);
+            }
+            index(todo.getKey(), text);
+            rebuildIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(TodoId id) {
+        lock.writeLock().lock();
+        try {
+            if (removedWhileFilling != null) removedWhileFilling.add(id);
+            Integer doc = docByKey.remove(id);
+            if (doc != null) {
+                retire(doc);
+                rebuildIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Adds the todos that put and remove haven't already seen; each gets the lock on its own, so searches
+    // and writes carry on in between
+    void fill(Iterable<Todo> todos) {
+        for (Todo todo : todos) {
+            String text = searchable(todo);
+            lock.writeLock().lock();
+            try {
+                if (!docByKey.containsKey(todo.getKey()) && !removedWhileFilling.contains(todo.getKey())) {
+                    index(todo.getKey(), text);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removedWhileFilling = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids of the best matches, best first. While typing (no trailing space), the last word is matched as a prefix.
+    List<TodoId> search(String input, int limit) {
+        String normalized = FtsQuery.normalize(input);
+        if (normalized.isEmpty() || limit <= 0) return List.of();
+        boolean typing = !Character.isWhitespace(input.charAt(input.length() - 1));
+        String[] words = normalized.split(" ");
+        long[] grams = grams(normalized, typing);
+        // A typo in a word destroys up to three of its grams; allow one per word long enough to have them
+        int typos = 0;
+        for (String word : words) {
+            if (word.length() >= 4) typos++;
+        }
+        int minShared = Math.max(Math.max(1, (grams.length + 2) / 3), grams.length - 3 * typos);
+
+        lock.readLock().lock();
+        try {
+            int[] shared = new int[docCount];
+            int[] touched = new int[64];
+            int touchedCount = 0;
+            for (long gram : grams) {
+                int list = find(gram);
+                if (list < 0) continue;
+                int[] docs = postings[list];
+                for (int i = 0, n = postingSizes[list]; i < n; i++) {
+                    int doc = docs[i];
+                    if (shared[doc]++ == 0) {
+                        if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                        touched[touchedCount++] = doc;
+                    }
+                }
+            }
+
+            int pool = (int) Math.min(Integer.MAX_VALUE, (long) limit * CANDIDATES_PER_RESULT);
+            PriorityQueue<Candidate> best = new PriorityQueue<>(BY_OVERLAP.reversed());
+            for (int i = 0; i < touchedCount; i++) {
+                int doc = touched[i];
+                int count = shared[doc];
+                if (count < minShared || ids[doc] == null) continue;
+                if (best.size() == pool && count < best.peek().shared()) continue;
+                Candidate candidate = new Candidate(doc, ids[doc], count, gramCounts[doc]);
+                if (best.size() < pool) {
+                    best.add(candidate);
+                } else if (BY_OVERLAP.compare(candidate, best.peek()) < 0) {
+                    best.poll();
+                    best.add(candidate);
+                }
+            }
+
+            // Fewest edits first, then as before
+            Map<Candidate, Integer> edits = new HashMap<>();
+            for (Candidate candidate : best) {
+                edits.put(candidate, edits(words, typing, texts[candidate.doc()]));
+            }
+            List<Candidate> ranked = new ArrayList<>(best);
+            ranked.sort(Comparator.<Candidate>comparingInt(edits::get).thenComparing(BY_OVERLAP));
+            return ranked.stream().limit(limit).map(Candidate::id).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void index(TodoId id, String text) {
+        if (docCount == ids.length) {
+            int capacity = docCount * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            gramCounts = Arrays.copyOf(gramCounts, capacity);
+        }
+        int doc = docCount++;
+        long[] grams = grams(text.trim(), false);
+        ids[doc] = id;
+        texts[doc] = text;
+        gramCounts[doc] = grams.length;
+        docByKey.put(id, doc);
+        for (long gram : grams) {
+            int list = findOrAdd(gram);
+            int size = postingSizes[list];
+            if (size == postings[list].length) postings[list] = Arrays.copyOf(postings[list], size * 2);
+            postings[list][size] = doc;
+            postingSizes[list] = size + 1;
+        }
+    }
+
+    // The gram's posting list number, or -1
+    private int find(long gram) {
+        int mask = gramKeys.length - 1;
+        for (int slot = hash(gram) & mask; gramKeys[slot] != 0; slot = (slot + 1) & mask) {
+            if (gramKeys[slot] == gram) return gramLists[slot];
+        }
+        return -1;
+    }
+
+    private int findOrAdd(long gram) {
+        int mask = gramKeys.length - 1;
+        int slot = hash(gram) & mask;
+        for (; gramKeys[slot] != 0; slot = (slot + 1) & mask) {
+            if (gramKeys[slot] == gram) return gramLists[slot];
+        }
+        int list = gramCount++;
+        gramKeys[slot] = gram;
+        gramLists[slot] = list;
+        if (list == postings.length) {
+            postings = Arrays.copyOf(postings, list * 2);
+            postingSizes = Arrays.copyOf(postingSizes, list * 2);
+        }
+        postings[list] = new int[4];
+        // Kept at most half full
+        if (gramCount * 2 > gramKeys.length) growGrams();
+        return list;
+    }
+
+    private void growGrams() {
+        long[] oldKeys = gramKeys;
+        int[] oldLists = gramLists;
+        gramKeys = new long[oldKeys.length * 2];
+        gramLists = new int[oldKeys.length * 2];
+        int mask = gramKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (gramKeys[slot] != 0) slot = (slot + 1) & mask;
+            gramKeys[slot] = oldKeys[i];
+            gramLists[slot] = oldLists[i];
+        }
+    }
+
+    private static int hash(long gram) {
+        long h = gram * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void retire(int doc) {
+        ids[doc] = null;
+        texts[doc] = null;
+        retired++;
+    }
+
+    // Once retired documents outnumber live ones, reindex the live ones from scratch
+    private void rebuildIfSparse() {
+        if (retired < MIN_REBUILD || retired < docCount - retired) return;
+        TodoId[] oldIds = ids;
+        String[] oldTexts = texts;
+        int oldCount = docCount;
+        int capacity = Math.max(INITIAL_DOCS, Integer.highestOneBit(Math.max(1, oldCount - retired)) * 2);
+        ids = new TodoId[capacity];
+        texts = new String[capacity];
+        gramCounts = new int[capacity];
+        docCount = 0;
+        retired = 0;
+        gramKeys = new long[INITIAL_DOCS];
+        gramLists = new int[INITIAL_DOCS];
+        gramCount = 0;
+        postings = new int[INITIAL_DOCS][];
+        postingSizes = new int[INITIAL_DOCS];
+        docByKey.clear();
+        for (int doc = 0; doc < oldCount; doc++) {
+            if (oldIds[doc] != null) index(oldIds[doc], oldTexts[doc]);
+        }
+    }
+
+    private static String searchable(Todo todo) {
+        String category = todo.getCategory() != null ? FtsQuery.normalize(todo.getCategory()) : "";
+        return " " + FtsQuery.normalize(todo.getTitle()) + " " + category + " ";
+    }
+
+    // For each query word, the edits to its closest word in the text, summed. The word being
+    // typed is compared with word starts of its own length, so an unfinished word costs nothing.
+    private static int edits(String[] words, boolean typing, String text) {
+        String[] textWords = text.trim().split(" ");
+        int total = 0;
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i];
+            boolean prefix = typing && i == words.length - 1;
+            int closest = word.length();
+            for (String textWord : textWords) {
+                String target = prefix && textWord.length() > word.length() ? textWord.substring(0, word.length()) : textWord;
+                closest = Math.min(closest, distance(word, target));
+                if (closest == 0) break;
+            }
+            total += closest;
+        }
+        return total;
+    }
+
+    // Edit distance counting a swap of neighbouring letters as one edit, the commonest typo
+    private static int distance(String a, String b) {
+        int[] before = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int best = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    best = Math.min(best, before[j - 2] + 1);
+                }
+                current[j] = best;
+            }
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    // The distinct grams of the text's words, three chars packed into a long. A word being typed
+    // has no end yet, so its last gram, which would mark the end, is left out.
+    private static long[] grams(String text, boolean lastIsPrefix) {
+        // A word of n chars has n + 2 grams
+        long[] grams = new long[text.length() * 2 + 2];
+        int count = 0;
+        for (int start = 0, length = text.length(); start < length; ) {
+            int end = text.indexOf(' ', start);
+            if (end < 0) end = length;
+            if (end > start) {
+                long window = (long) ' ' << 16 | ' ';
+                for (int i = start; i < end; i++) {
+                    window = (window << 16 | text.charAt(i)) & 0xFFFF_FFFF_FFFFL;
+                    grams[count++] = window;
+                }
+                if (!lastIsPrefix || end < length) grams[count++] = (window << 16 | ' ') & 0xFFFF_FFFF_FFFFL;
+            }
+            start = end + 1;
+        }
+        Arrays.sort(grams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || grams[i] != grams[distinct - 1]) grams[distinct++] = grams[i];
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+}
@@ -0,0 +1,95 @@
+package com.todoapp.repository;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs WAL checkpoints on its own connection and thread, so commits on the
+ * repository connection never pay for one. A passive checkpoint runs once per
+ * configured interval, or sooner when the WAL file outgrows the journal size
+ * limit. If passive checkpoints keep falling behind
+ * the checkpointer escalates to RESTART, which waits for readers.
+ */
+class WalCheckpointer {
+    private static final int RESTART_THRESHOLD_PAGES = 4096;
+
+    private final Connection connection;
+    private final File walFile;
+    private final long intervalNanos;
+    private final ScheduledExecutorService scheduler;
+    private long lastCheckpoint = System.nanoTime();
+
+    WalCheckpointer(String dbPath, StorageSettings settings) throws SQLException {
+        this.connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+        this.walFile = new File(dbPath + "-wal");
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(settings.getCheckpointIntervalSeconds());
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + settings.getBusyTimeoutMillis());
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "todo-wal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Polling the WAL size is a stat() call, so the tick can be short
+        scheduler.scheduleWithFixedDelay(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private void tick() {
+        boolean due = System.nanoTime() - lastCheckpoint >= intervalNanos;
+        if (due || walFile.length() > StorageSettings.JOURNAL_SIZE_LIMIT_BYTES) {
+            checkpoint();
+            lastCheckpoint = System.nanoTime();
+        }
+    }
+
+    private void checkpoint() {
+        try {
+            int[] result = run("PASSIVE");
+            boolean incomplete = result[0] != 0 || result[2] < result[1];
+            if (incomplete && result[1] > RESTART_THRESHOLD_PAGES) {
+                run("RESTART");
+            }
+        } catch (SQLException e) {
+            System.err.println("WAL checkpoint failed: " + e.getMessage());
+        }
+    }
+
+    // Returns {busy, wal pages, checkpointed pages}
+    private int[] run(String mode) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(" + mode + ")")) {
+            if (!rs.next()) return new int[] {0, 0, 0};
+            return new int[] {rs.getInt(1), rs.getInt(2), rs.getInt(3)};
+        }
+    }
+
+    // Stops the schedule and folds the remaining WAL back into the database file
+    void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            run("TRUNCATE");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            System.err.println("Final WAL checkpoint failed: " + e.getMessage());
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Failed to close checkpoint connection: " + e.getMessage());
+            }
+        }
+    }
+}
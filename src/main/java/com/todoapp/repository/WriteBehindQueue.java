@@ -0,0 +1,308 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects saves and deletes and hands them to a single writer thread in
+ * batches. Repeated writes to the same id collapse into the latest one, which
+ * keeps the base version of the first so the store can still check it.
+ *
+ * <p>A batch that fails with anything but SQLITE_BUSY is not retried. Its
+ * todos are handed to the lost-write handler, which puts the stored copies
+ * back in the cache, and the error is thrown by the next {@link #flush},
+ * {@link #shutdown} or enqueue, so the loss can't go unnoticed. If the writer
+ * thread itself has died, those calls throw {@link IllegalStateException}.
+ */
+class WriteBehindQueue {
+    private static final int SQLITE_BUSY = 5;
+    private static final int MAX_BUSY_RETRIES = 8;
+    private static final long INITIAL_BACKOFF_MILLIS = 10;
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+
+    // A queued write; todo is null for deletes. A save expects the store to hold baseVersion, 0 meaning no row.
+    record PendingWrite(TodoId todoId, Todo todo, int baseVersion) {
+        boolean isDelete() { return todo == null; }
+    }
+
+    interface BatchWriter {
+        void write(List<PendingWrite> batch) throws SQLException;
+    }
+
+    private final BatchWriter writer;
+    // Called on the writer thread with a batch that will never be written
+    private final Consumer<List<PendingWrite>> onLost;
+    private final long flushIntervalMillis;
+    private final int batchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    private final Map<TodoId, PendingWrite> pending = new LinkedHashMap<>();
+    private final Thread writerThread;
+    private boolean inFlight = false;
+    private boolean flushRequested = false;
+    private boolean running = true;
+    // Set when the writer thread exits, normally or not
+    private boolean writerStopped = false;
+    // The last write failure, until a caller has been told about it
+    private RuntimeException failure;
+
+    WriteBehindQueue(BatchWriter writer, Consumer<List<PendingWrite>> onLost, long flushIntervalMillis, int batchSize) {
+        this.writer = writer;
+        this.onLost = onLost;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.batchSize = batchSize;
+        this.writerThread = new Thread(this::runWriter, "todo-write-behind");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // The todo is the copy to store, already one version on from the one it replaces
+    void enqueueSave(Todo todo) {
+        enqueue(new PendingWrite(todo.getKey(), todo, todo.getVersion() - 1));
+    }
+
+    void enqueueDelete(TodoId todoId) {
+        enqueue(new PendingWrite(todoId, null, 0));
+    }
+
+    boolean hasPendingDelete(TodoId todoId) {
+        lock.lock();
+        try {
+            PendingWrite write = pending.get(todoId);
+            return write != null && write.isDelete();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(PendingWrite write) {
+        lock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Write-behind queue has been shut down");
+            }
+            checkWriter();
+            PendingWrite earlier = pending.remove(write.todoId());
+            pending.put(write.todoId(), collapse(earlier, write));
+            if (pending.size() >= batchSize) {
+                workAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until every write queued before this call has been committed, or throws if any failed
+    void flush() {
+        lock.lock();
+        try {
+            drain();
+            checkWriter();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Like flush, but leaves a failure for the next flush or enqueue to report, so background work doesn't
+    // swallow it. False if the writer thread has died with writes still queued.
+    boolean drain() {
+        lock.lock();
+        try {
+            while (!pending.isEmpty() || inFlight) {
+                if (writerStopped) return false;
+                flushRequested = true;
+                workAvailable.signal();
+                drained.awaitUninterruptibly();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Stops the writer thread even if the final flush throws
+    void shutdown() {
+        try {
+            flush();
+        } finally {
+            lock.lock();
+            try {
+                running = false;
+                workAvailable.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Throws a failure not yet reported, once, or for good if the writer thread has died. Caller holds the lock.
+    private void checkWriter() {
+        if (failure != null) {
+            RuntimeException e = failure;
+            failure = null;
+            throw e;
+        }
+        if (writerStopped && (running || !pending.isEmpty())) {
+            throw new IllegalStateException("Write-behind writer has stopped; " + pending.size() + " todos were not written");
+        }
+    }
+
+    private void runWriter() {
+        try {
+            writeUntilShutDown();
+        } finally {
+            // Wake flushes so they don't wait on a thread that is gone
+            lock.lock();
+            try {
+                writerStopped = true;
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void writeUntilShutDown() {
+        while (true) {
+            List<PendingWrite> batch;
+            lock.lock();
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (running && !flushRequested && pending.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 && !pending.isEmpty()) break;
+                    if (remaining <= 0) {
+                        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                        remaining = deadline - System.nanoTime();
+                    }
+                    try {
+                        workAvailable.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    flushRequested = false;
+                    drained.signalAll();
+                    if (!running) return;
+                    continue;
+                }
+                batch = drainBatch();
+                inFlight = true;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                writeWithRetry(batch);
+            } catch (RuntimeException e) {
+                lose(batch, new RuntimeException("Failed to write " + batch.size() + " todos", e));
+            }
+
+            lock.lock();
+            try {
+                inFlight = false;
+                if (pending.isEmpty()) {
+                    flushRequested = false;
+                    drained.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private List<PendingWrite> drainBatch() {
+        List<PendingWrite> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+        Iterator<PendingWrite> it = pending.values().iterator();
+        while (it.hasNext() && batch.size() < batchSize) {
+            batch.add(it.next());
+            it.remove();
+        }
+        return batch;
+    }
+
+    private void writeWithRetry(List<PendingWrite> batch) {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                writer.write(batch);
+                return;
+            } catch (SQLException e) {
+                if (!isBusy(e)) {
+                    lose(batch, new RuntimeException("Failed to write " + batch.size() + " todos", e));
+                    return;
+                }
+                if (attempt >= MAX_BUSY_RETRIES) {
+                    System.err.println("Database busy, requeueing " + batch.size() + " todos");
+                    requeue(batch);
+                    return;
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    requeue(batch);
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    // Records the failure for the next caller and lets the repository restore the stored copies
+    private void lose(List<PendingWrite> batch, RuntimeException e) {
+        System.err.println(e.getMessage() + ": " + e.getCause().getMessage());
+        lock.lock();
+        try {
+            if (failure == null) failure = e;
+            else failure.addSuppressed(e);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            onLost.accept(batch);
+        } catch (RuntimeException reloadFailure) {
+            System.err.println("Failed to restore todos after a lost write: " + reloadFailure.getMessage());
+        }
+    }
+
+    // Puts a failed batch back, folded into any newer write for the same id that arrived meanwhile
+    private void requeue(List<PendingWrite> batch) {
+        lock.lock();
+        try {
+            for (PendingWrite write : batch) {
+                pending.merge(write.todoId(), write, (newer, failed) -> collapse(failed, newer));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The write that replaces earlier followed by later
+    private static PendingWrite collapse(PendingWrite earlier, PendingWrite later) {
+        if (earlier == null || earlier.isDelete() || later.isDelete()) return later;
+        return new PendingWrite(later.todoId(), later.todo(), earlier.baseVersion());
+    }
+
+    private static boolean isBusy(SQLException e) {
+        return (e.getErrorCode() & 0xff) == SQLITE_BUSY;
+    }
+}
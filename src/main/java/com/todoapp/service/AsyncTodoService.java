@@ -0,0 +1,227 @@
+package com.todoapp.service;
+
+import com.todoapp.model.Todo;
+import com.todoapp.repository.TodoQuery;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking face of {@link TodoService} for UI code. Each call runs on a
+ * worker thread and returns a future that completes on the callback executor
+ * (the FX thread in the app), so stages chained onto it can touch the UI
+ * directly. A slow disk then delays a result instead of freezing the window.
+ *
+ * <p>Calls that change an existing todo run one at a time per id, in the
+ * order they were made: a second toggle starts only after the first has
+ * saved, so it never reads the copy from before it. A bulk call waits for
+ * the calls queued on every todo it names. Calls on different todos, creates
+ * and reads run in parallel.
+ *
+ * <p>Workers are virtual threads where the runtime has them (Java 21 and
+ * later). The build targets Java 17, so they are looked up reflectively;
+ * older runtimes get a small pool of daemon threads instead.
+ */
+public final class AsyncTodoService implements AutoCloseable {
+    private static final int FALLBACK_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final TodoService service;
+    private final Executor callbackExecutor;
+    private final ExecutorService workers;
+    // The last call queued per todo id; removed once it finishes with nothing queued behind it
+    private final Map<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    public AsyncTodoService(TodoService service, Executor callbackExecutor) {
+        this.service = Objects.requireNonNull(service);
+        this.callbackExecutor = Objects.requireNonNull(callbackExecutor);
+        this.workers = newWorkers();
+    }
+
+    public CompletableFuture<Todo> createTodo(String title) {
+        return submit(() -> service.createTodo(title));
+    }
+
+    public CompletableFuture<Todo> createTodo(String title, String category, LocalDateTime dueDate) {
+        return submit(() -> service.createTodo(title, category, dueDate));
+    }
+
+    public CompletableFuture<UpdateResult> toggleTodoDone(String todoId) {
+        return submitInOrder(todoId, () -> service.toggleTodoDone(todoId));
+    }
+
+    public CompletableFuture<UpdateResult> updateTodo(String todoId, String newTitle, String newCategory,
+                                                      LocalDateTime newTime) {
+        return submitInOrder(todoId, () -> service.updateTodo(todoId, newTitle, newCategory, newTime));
+    }
+
+    public CompletableFuture<Boolean> deleteTodo(String todoId) {
+        return submitInOrder(todoId, () -> service.deleteTodo(todoId));
+    }
+
+    public CompletableFuture<Optional<Todo>> restoreTodo(String todoId) {
+        return submitInOrder(todoId, () -> service.restoreTodo(todoId));
+    }
+
+    public CompletableFuture<List<Todo>> setDone(Collection<String> todoIds, boolean done) {
+        return submitInOrder(todoIds, () -> service.setDone(todoIds, done));
+    }
+
+    public CompletableFuture<List<Todo>> moveToCategory(Collection<String> todoIds, String category) {
+        return submitInOrder(todoIds, () -> service.moveToCategory(todoIds, category));
+    }
+
+    public CompletableFuture<List<Todo>> shiftDueDates(Collection<String> todoIds, Duration by) {
+        return submitInOrder(todoIds, () -> service.shiftDueDates(todoIds, by));
+    }
+
+    public CompletableFuture<Integer> deleteTodos(Collection<String> todoIds) {
+        return submitInOrder(todoIds, () -> service.deleteTodos(todoIds));
+    }
+
+    // Which todos are completed isn't known until it runs, so it waits for every call already queued
+    public CompletableFuture<Integer> deleteCompleted() {
+        return submitInOrder(List.copyOf(tails.keySet()), service::deleteCompleted);
+    }
+
+    public CompletableFuture<List<Todo>> searchTodos(String query) {
+        return submit(() -> service.searchTodos(query));
+    }
+
+    public CompletableFuture<List<Todo>> query(TodoQuery query) {
+        return submit(() -> service.query(query));
+    }
+
+    public CompletableFuture<Integer> archiveCompletedOlderThan(long days) {
+        return submit(() -> service.archiveCompletedOlderThan(days));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        CompletableFuture<T> done = new CompletableFuture<>();
+        start(call, done);
+        return handBack(done);
+    }
+
+    // Chains the call behind the last one queued for the same id
+    private <T> CompletableFuture<T> submitInOrder(String todoId, Supplier<T> call) {
+        Objects.requireNonNull(todoId);
+        CompletableFuture<T> done = new CompletableFuture<>();
+        tails.compute(todoId, (id, previous) -> {
+            if (previous == null) {
+                start(call, done);
+            } else {
+                // Whatever the earlier call's outcome, this one still runs
+                previous.whenComplete((result, error) -> start(call, done));
+            }
+            return done;
+        });
+        done.whenComplete((result, error) -> tails.remove(todoId, done));
+        return handBack(done);
+    }
+
+    // Chains the call behind the last one queued for each of the ids, and queues it as the last for all of them
+    private <T> CompletableFuture<T> submitInOrder(Collection<String> todoIds, Supplier<T> call) {
+        Set<String> ids = new LinkedHashSet<>(todoIds);
+        if (ids.size() == 1) return submitInOrder(ids.iterator().next(), call);
+        CompletableFuture<T> done = new CompletableFuture<>();
+        List<CompletableFuture<?>> previous = new ArrayList<>();
+        // Under one lock, so two bulk calls can't each queue behind the other on different ids
+        synchronized (tails) {
+            for (String todoId : ids) {
+                CompletableFuture<?> tail = tails.put(todoId, done);
+                if (tail != null) previous.add(tail);
+            }
+        }
+        if (previous.isEmpty()) {
+            start(call, done);
+        } else {
+            CompletableFuture.allOf(previous.toArray(CompletableFuture[]::new))
+                    .whenComplete((result, error) -> start(call, done));
+        }
+        done.whenComplete((result, error) -> {
+            for (String todoId : ids) tails.remove(todoId, done);
+        });
+        return handBack(done);
+    }
+
+    private <T> void start(Supplier<T> call, CompletableFuture<T> done) {
+        try {
+            workers.execute(() -> {
+                try {
+                    done.complete(call.get());
+                } catch (Throwable e) {
+                    done.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Closed; fail the call rather than leave it hanging
+            done.completeExceptionally(e);
+        }
+    }
+
+    // A future that completes on the callback executor once the worker has finished
+    private <T> CompletableFuture<T> handBack(CompletableFuture<T> done) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        done.whenComplete((value, error) -> {
+            try {
+                callbackExecutor.execute(() -> {
+                    if (error != null) result.completeExceptionally(error);
+                    else result.complete(value);
+                });
+            } catch (RuntimeException e) {
+                System.err.println("Failed to hand back a todo service result: " + e.getMessage());
+                result.completeExceptionally(error != null ? error : e);
+            }
+        });
+        return result;
+    }
+
+    private static ExecutorService newWorkers() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(FALLBACK_THREADS, FALLBACK_THREADS,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "todo-async-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            // Idle threads exit, so an app that rarely writes holds none
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    // Calls already handed to a worker finish; any still waiting behind another call on the same todo
+    // fail. The wrapped service is left open.
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Todo service calls still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
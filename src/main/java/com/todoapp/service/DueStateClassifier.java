@@ -0,0 +1,259 @@
+package com.todoapp.service;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import com.todoapp.repository.TodoEvent;
+import com.todoapp.repository.TodoSubscription;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sorts open todos with a due time into overdue, due later today and
+ * upcoming, and keeps them sorted as the clock moves. All of them sit in one
+ * set ordered by due time, where each bucket is a contiguous range: overdue
+ * up to now, today up to the next midnight, upcoming after that. One timer is
+ * armed for the next instant a todo changes bucket (its due time, or
+ * midnight), and when it fires only the todos between the old and the new
+ * boundaries are looked at.
+ *
+ * <p>The timer sleeps at most 15 minutes at a time, as in
+ * {@link ReminderScheduler}: each wake-up re-reads the clock, so a suspended
+ * machine or a clock set forward is caught up within the cap. A wake-up with
+ * nothing to move only reads the clock.
+ *
+ * <p>Consumers get a {@link Change} for every todo that enters, leaves or
+ * moves between buckets, starting with one per todo already loaded. Changes
+ * are handed over in order, so the executor must run tasks one at a time
+ * (as the FX thread does). Events and timers run on the
+ * {@code todo-due-states} thread, which owns all of the state below.
+ */
+public final class DueStateClassifier implements AutoCloseable {
+    // NONE: done, no due time, or deleted
+    public enum DueState { OVERDUE, TODAY, UPCOMING, NONE }
+
+    public record Change(Todo todo, DueState from, DueState to) {}
+
+    // See ReminderScheduler; also catches the wall clock being set forward
+    private static final Duration MAX_SLEEP = Duration.ofMinutes(15);
+
+    private static final class Entry {
+        final LocalDateTime dueAt;
+        // Null only in probes, which sort after every todo due at the same instant
+        final TodoId id;
+        Todo todo;
+        DueState state;
+
+        Entry(LocalDateTime dueAt, TodoId id, Todo todo) {
+            this.dueAt = dueAt;
+            this.id = id;
+            this.todo = todo;
+        }
+    }
+
+    private static final Comparator<Entry> DUE_ORDER = Comparator.<Entry, LocalDateTime>comparing(e -> e.dueAt)
+            .thenComparing(e -> e.id, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final Clock clock;
+    private final Duration maxSleep;
+    private final Executor executor;
+    private final Consumer<List<Change>> listener;
+    private final ScheduledThreadPoolExecutor timer;
+    private final TodoSubscription subscription;
+
+    private final TreeSet<Entry> byDue = new TreeSet<>(DUE_ORDER);
+    private final Map<TodoId, Entry> byId = new HashMap<>();
+    private final Map<DueState, Integer> counts = new EnumMap<>(DueState.class);
+    // Overdue is due at or before now; today is after now and before tomorrow
+    private LocalDateTime now;
+    private LocalDateTime tomorrow;
+    private ScheduledFuture<?> wakeUp;
+    // Copy of counts for readers on other threads
+    private volatile Map<DueState, Integer> publishedCounts = Map.of();
+
+    public DueStateClassifier(TodoService service, Executor executor, Consumer<List<Change>> listener) {
+        this(service, Clock.systemDefaultZone(), executor, listener);
+    }
+
+    public DueStateClassifier(TodoService service, Clock clock, Executor executor, Consumer<List<Change>> listener) {
+        this(service, clock, MAX_SLEEP, executor, listener);
+    }
+
+    // Tests shorten the cap to see a jump of the clock picked up
+    DueStateClassifier(TodoService service, Clock clock, Duration maxSleep, Executor executor,
+                       Consumer<List<Change>> listener) {
+        this.clock = Objects.requireNonNull(clock);
+        this.maxSleep = Objects.requireNonNull(maxSleep);
+        this.executor = Objects.requireNonNull(executor);
+        this.listener = Objects.requireNonNull(listener);
+        for (DueState state : DueState.values()) {
+            if (state != DueState.NONE) counts.put(state, 0);
+        }
+        setNow(LocalDateTime.now(clock));
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "todo-due-states");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        subscription = service.subscribe(timer, this::apply);
+    }
+
+    // Doesn't block; as of the last change handed to the listener
+    public int getCount(DueState state) {
+        return publishedCounts.getOrDefault(state, 0);
+    }
+
+    // The todos in a bucket, earliest due first
+    public List<Todo> getTodos(DueState state) {
+        if (state == DueState.NONE) {
+            throw new IllegalArgumentException("Todos without a due state aren't tracked");
+        }
+        try {
+            return timer.submit(() -> bucket(state).stream().map(e -> e.todo).toList()).get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Due state classifier is closed", e);
+        }
+    }
+
+    private NavigableSet<Entry> bucket(DueState state) {
+        return switch (state) {
+            case OVERDUE -> byDue.headSet(probe(now), false);
+            case TODAY -> byDue.subSet(probe(now), false, probe(tomorrow.minusNanos(1)), false);
+            case UPCOMING -> byDue.tailSet(probe(tomorrow.minusNanos(1)), false);
+            case NONE -> throw new IllegalArgumentException();
+        };
+    }
+
+    private void apply(List<TodoEvent> events) {
+        List<Change> changes = new ArrayList<>();
+        // Buckets are only ever compared against one instant, so catch up with the clock first
+        advance(changes);
+        for (TodoEvent event : events) {
+            switch (event.getType()) {
+                case BULK -> event.getTodos().forEach(todo -> track(todo, changes));
+                case CREATED, UPDATED -> track(event.getTodo(), changes);
+                case DELETED -> untrack(event.getTodo(), changes);
+            }
+        }
+        publish(changes);
+        arm();
+    }
+
+    private void track(Todo todo, List<Change> changes) {
+        Entry old = byId.remove(todo.getKey());
+        DueState from = DueState.NONE;
+        if (old != null) {
+            byDue.remove(old);
+            from = old.state;
+            counts.merge(from, -1, Integer::sum);
+        }
+        DueState to = DueState.NONE;
+        if (!todo.isDone() && todo.getTime() != null) {
+            Entry entry = new Entry(todo.getTime(), todo.getKey(), todo);
+            to = entry.state = classify(entry.dueAt);
+            byDue.add(entry);
+            byId.put(entry.id, entry);
+            counts.merge(to, 1, Integer::sum);
+        }
+        if (from != to) changes.add(new Change(todo, from, to));
+    }
+
+    private void untrack(Todo todo, List<Change> changes) {
+        Entry old = byId.remove(todo.getKey());
+        if (old == null) return;
+        byDue.remove(old);
+        counts.merge(old.state, -1, Integer::sum);
+        changes.add(new Change(todo, old.state, DueState.NONE));
+    }
+
+    private DueState classify(LocalDateTime dueAt) {
+        if (!dueAt.isAfter(now)) return DueState.OVERDUE;
+        return dueAt.isBefore(tomorrow) ? DueState.TODAY : DueState.UPCOMING;
+    }
+
+    private void setNow(LocalDateTime instant) {
+        now = instant;
+        tomorrow = instant.toLocalDate().plusDays(1).atStartOfDay();
+    }
+
+    // Moves the boundaries up to the clock and reclassifies the todos they passed
+    private void advance(List<Change> changes) {
+        LocalDateTime oldNow = now, oldTomorrow = tomorrow;
+        setNow(LocalDateTime.now(clock));
+        if (now.isBefore(oldNow)) {
+            // The clock was set back; rare enough to look at everything
+            reclassify(byDue, changes);
+            return;
+        }
+        // Due after the old now and by the new one: now overdue
+        reclassify(byDue.subSet(probe(oldNow), false, probe(now), false), changes);
+        if (tomorrow.isAfter(oldTomorrow)) {
+            // Midnight passed: due on the new day, so no longer upcoming
+            reclassify(byDue.subSet(probe(oldTomorrow.minusNanos(1)), false, probe(tomorrow.minusNanos(1)), false), changes);
+        }
+    }
+
+    private void reclassify(NavigableSet<Entry> entries, List<Change> changes) {
+        for (Entry entry : entries) {
+            DueState to = classify(entry.dueAt);
+            if (to == entry.state) continue;
+            counts.merge(entry.state, -1, Integer::sum);
+            counts.merge(to, 1, Integer::sum);
+            changes.add(new Change(entry.todo, entry.state, to));
+            entry.state = to;
+        }
+    }
+
+    private void publish(List<Change> changes) {
+        if (changes.isEmpty()) return;
+        publishedCounts = Map.copyOf(counts);
+        List<Change> batch = List.copyOf(changes);
+        try {
+            executor.execute(() -> listener.accept(batch));
+        } catch (RuntimeException e) {
+            System.err.println("Failed to deliver due state changes: " + e.getMessage());
+        }
+    }
+
+    // Wakes at the next due time still ahead, or at midnight if that comes first
+    private void arm() {
+        if (wakeUp != null) wakeUp.cancel(false);
+        Entry next = byDue.higher(probe(now));
+        LocalDateTime boundary = next != null && next.dueAt.isBefore(tomorrow) ? next.dueAt : tomorrow;
+        Duration delay = Duration.between(LocalDateTime.now(clock), boundary);
+        if (delay.compareTo(maxSleep) > 0) delay = maxSleep;
+        wakeUp = timer.schedule(this::tick, Math.max(0, delay.toNanos()), TimeUnit.NANOSECONDS);
+    }
+
+    private void tick() {
+        List<Change> changes = new ArrayList<>();
+        advance(changes);
+        publish(changes);
+        arm();
+    }
+
+    private static Entry probe(LocalDateTime instant) {
+        return new Entry(instant, null, null);
+    }
+
+    @Override
+    public void close() {
+        subscription.close();
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,108 @@
+package com.todoapp.service;
+
+import com.todoapp.model.Todo;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Search-as-you-type on top of {@link TodoService#fuzzySearch}. Each call to
+ * {@link #search} restarts a short debounce, so a burst of keystrokes costs
+ * one search. Searches run on the {@code todo-search} thread, never on the
+ * caller's. A search overtaken by newer input is cancelled if it hasn't
+ * started, and its results are dropped if it has, so the callback only ever
+ * sees results for the latest input.
+ */
+public final class IncrementalSearch implements AutoCloseable {
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(150);
+    public static final int DEFAULT_LIMIT = 50;
+
+    // An empty list for blank input, which callers treat as the search being cleared
+    public record Results(String query, List<Todo> todos) {}
+
+    private final TodoService service;
+    private final Executor callbackExecutor;
+    private final Consumer<Results> onResults;
+    private final Duration debounce;
+    private final int limit;
+    private final ScheduledThreadPoolExecutor worker;
+    // Bumped by every call to search; a search whose number is no longer current is stale
+    private final AtomicLong latest = new AtomicLong();
+    private ScheduledFuture<?> pending;
+
+    public IncrementalSearch(TodoService service, Executor callbackExecutor, Consumer<Results> onResults) {
+        this(service, DEFAULT_DEBOUNCE, DEFAULT_LIMIT, callbackExecutor, onResults);
+    }
+
+    public IncrementalSearch(TodoService service, Duration debounce, int limit,
+                             Executor callbackExecutor, Consumer<Results> onResults) {
+        if (debounce.isNegative() || limit <= 0) {
+            throw new IllegalArgumentException("Debounce must not be negative and limit must be positive");
+        }
+        this.service = Objects.requireNonNull(service);
+        this.callbackExecutor = Objects.requireNonNull(callbackExecutor);
+        this.onResults = Objects.requireNonNull(onResults);
+        this.debounce = debounce;
+        this.limit = limit;
+        worker = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "todo-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Superseded searches are cancelled on every keystroke; don't let them pile up in the queue
+        worker.setRemoveOnCancelPolicy(true);
+        // The first search builds the repository's index; pay for that once loading is done rather than on a keystroke
+        service.whenLoaded().thenRunAsync(() -> service.fuzzySearch("a", 1), worker);
+    }
+
+    // Replaces any search still waiting; blank input clears the results straight away
+    public void search(String text) {
+        String query = text == null ? "" : text;
+        long ticket = latest.incrementAndGet();
+        synchronized (this) {
+            if (pending != null) pending.cancel(false);
+            pending = null;
+            if (query.isBlank()) {
+                deliver(ticket, new Results(query, List.of()));
+                return;
+            }
+            pending = worker.schedule(() -> run(query, ticket), debounce.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void run(String query, long ticket) {
+        if (latest.get() != ticket) return;
+        List<Todo> todos;
+        try {
+            todos = service.fuzzySearch(query, limit);
+        } catch (RuntimeException e) {
+            System.err.println("Search for '" + query + "' failed: " + e.getMessage());
+            return;
+        }
+        deliver(ticket, new Results(query, todos));
+    }
+
+    // Checked again on the callback thread, since newer input may arrive while the results are queued there
+    private void deliver(long ticket, Results results) {
+        if (latest.get() != ticket) return;
+        try {
+            callbackExecutor.execute(() -> {
+                if (latest.get() == ticket) onResults.accept(results);
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Failed to deliver search results: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        latest.incrementAndGet();
+        worker.shutdownNow();
+    }
+}
@@ -0,0 +1,153 @@
+package com.todoapp.service;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import com.todoapp.repository.TodoEvent;
+import com.todoapp.repository.TodoSubscription;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Calls back when an open todo's due time arrives. Upcoming due times are
+ * kept in a sorted set fed by the service's change events, and one timer is
+ * armed for the earliest of them, so the todo list is never scanned and an
+ * edit reschedules in O(log n). Todos already due when they are first seen
+ * are not reminded of.
+ *
+ * <p>The timer sleeps at most 15 minutes at a time. It counts elapsed time,
+ * which may stop while the machine is suspended, so each wake-up re-reads the
+ * clock and re-arms; a reminder is late by at most the cap. An idle scheduler
+ * therefore still wakes four times an hour, but only to read the clock.
+ *
+ * <p>Events and timers both run on the {@code todo-reminders} thread, which
+ * owns all of the state below; the callback runs on the executor it was given.
+ */
+public final class ReminderScheduler implements AutoCloseable {
+    // The timer runs on System.nanoTime, which may stop while the machine sleeps; waking at least
+    // this often re-reads the wall clock so a reminder is never late by more than the cap
+    private static final Duration MAX_SLEEP = Duration.ofMinutes(15);
+
+    private record Reminder(LocalDateTime dueAt, TodoId id, Todo todo) {}
+
+    private static final Comparator<Reminder> DUE_ORDER =
+            Comparator.comparing(Reminder::dueAt).thenComparing(Reminder::id);
+
+    private final Clock clock;
+    private final Duration maxSleep;
+    private final Executor callbackExecutor;
+    private final Consumer<Todo> onDue;
+    private final ScheduledThreadPoolExecutor timer;
+    private final TodoSubscription subscription;
+
+    private final TreeSet<Reminder> queue = new TreeSet<>(DUE_ORDER);
+    private final Map<TodoId, Reminder> byId = new HashMap<>();
+    // The reminder the timer is armed for, and the timer itself
+    private Reminder armedFor;
+    private ScheduledFuture<?> wakeUp;
+
+    public ReminderScheduler(TodoService service, Executor callbackExecutor, Consumer<Todo> onDue) {
+        this(service, Clock.systemDefaultZone(), callbackExecutor, onDue);
+    }
+
+    public ReminderScheduler(TodoService service, Clock clock, Executor callbackExecutor, Consumer<Todo> onDue) {
+        this(service, clock, MAX_SLEEP, callbackExecutor, onDue);
+    }
+
+    // Tests shorten the cap to see a jump of the clock picked up
+    ReminderScheduler(TodoService service, Clock clock, Duration maxSleep, Executor callbackExecutor,
+                      Consumer<Todo> onDue) {
+        this.clock = Objects.requireNonNull(clock);
+        this.maxSleep = Objects.requireNonNull(maxSleep);
+        this.callbackExecutor = Objects.requireNonNull(callbackExecutor);
+        this.onDue = Objects.requireNonNull(onDue);
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "todo-reminders");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Rescheduling cancels the old timer; don't leave it in the queue until it would have fired
+        timer.setRemoveOnCancelPolicy(true);
+        subscription = service.subscribe(timer, this::apply);
+    }
+
+    // The number of todos waiting for their due time
+    public int getScheduledCount() {
+        try {
+            return timer.submit(queue::size).get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Reminder scheduler is closed", e);
+        }
+    }
+
+    private void apply(List<TodoEvent> events) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (TodoEvent event : events) {
+            switch (event.getType()) {
+                case BULK -> event.getTodos().forEach(todo -> schedule(todo, now));
+                case CREATED, UPDATED -> schedule(event.getTodo(), now);
+                case DELETED -> unschedule(event.getTodo().getKey());
+            }
+        }
+        arm();
+    }
+
+    private void schedule(Todo todo, LocalDateTime now) {
+        unschedule(todo.getKey());
+        if (todo.isDone() || todo.getTime() == null || !todo.getTime().isAfter(now)) return;
+        Reminder reminder = new Reminder(todo.getTime(), todo.getKey(), todo);
+        queue.add(reminder);
+        byId.put(reminder.id(), reminder);
+    }
+
+    private void unschedule(TodoId id) {
+        Reminder reminder = byId.remove(id);
+        if (reminder != null) queue.remove(reminder);
+    }
+
+    // Points the timer at the earliest reminder, if that isn't where it already points
+    private void arm() {
+        Reminder next = queue.isEmpty() ? null : queue.first();
+        if (next == armedFor) return;
+        if (wakeUp != null) wakeUp.cancel(false);
+        armedFor = next;
+        wakeUp = null;
+        if (next == null) return;
+        Duration delay = Duration.between(LocalDateTime.now(clock), next.dueAt());
+        if (delay.compareTo(maxSleep) > 0) delay = maxSleep;
+        wakeUp = timer.schedule(this::fireDue, Math.max(0, delay.toNanos()), TimeUnit.NANOSECONDS);
+    }
+
+    private void fireDue() {
+        armedFor = null;
+        wakeUp = null;
+        LocalDateTime now = LocalDateTime.now(clock);
+        while (!queue.isEmpty() && !queue.first().dueAt().isAfter(now)) {
+            Reminder due = queue.pollFirst();
+            byId.remove(due.id());
+            try {
+                callbackExecutor.execute(() -> onDue.accept(due.todo()));
+            } catch (RuntimeException e) {
+                System.err.println("Failed to deliver reminder for todo " + due.id() + ": " + e.getMessage());
+            }
+        }
+        arm();
+    }
+
+    @Override
+    public void close() {
+        subscription.close();
+        timer.shutdownNow();
+    }
+}
@@ -1,23 +1,56 @@
 package com.todoapp.service;
 
 import com.todoapp.model.Todo;
-import com.todoapp.repository.SqliteTodoRepository;
+import com.todoapp.model.TodoStats;
+import com.todoapp.repository.ChangeSet;
+import com.todoapp.repository.Page;
+import com.todoapp.repository.PageCursor;
+import com.todoapp.repository.RepositoryConfig;
+import com.todoapp.repository.SortKey;
+import com.todoapp.repository.TodoConflictException;
+import com.todoapp.repository.TodoEvent;
+import com.todoapp.repository.TodoFilter;
+import com.todoapp.repository.TodoQuery;
+import com.todoapp.repository.TodoRepositories;
 import com.todoapp.repository.TodoRepository;
+import com.todoapp.repository.TodoSubscription;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public class TodoService {
     private final TodoRepository repository;
     
     public TodoService() {
-        this.repository = new SqliteTodoRepository();
+        this(RepositoryConfig.defaults());
+    }
+    
+    public TodoService(RepositoryConfig config) {
+        this(TodoRepositories.open(config));
+    }
+    
+    public TodoService(TodoRepository repository) {
+        this.repository = Objects.requireNonNull(repository);
     }
     
     public List<Todo> getAllTodos() {
         return repository.getAllTodos();
     }
     
+    public CompletableFuture<Void> whenLoaded() {
+        return repository.whenLoaded();
+    }
+    
+    public Page getTodoPage(PageCursor cursor, int limit, SortKey sortKey, TodoFilter filter) {
+        return repository.page(cursor, limit, sortKey, filter);
+    }
+    
     public Todo createTodo(String title) {
         validateTodoTitle(title);
         Todo todo = new Todo(title.trim());
@@ -26,59 +59,117 @@ public class TodoService {
     
     public Todo createTodo(String title, String category, LocalDateTime dueDate) {
         validateTodoTitle(title);
-        Todo todo = new Todo(title.trim());
-        todo.setCategory(category != null ? category.trim() : "General");
-        if (dueDate != null) {
-            todo.setTime(dueDate);
-        }
+        Todo todo = new Todo(title.trim())
+                .withCategory(category != null ? category.trim() : "General")
+                .withTime(dueDate);
         return repository.saveTodo(todo);
     }
     
-    public boolean toggleTodoDone(String todoId) {
-        return repository.getTodo(todoId).map(todo -> {
-            todo.toggleDone();
-            repository.saveTodo(todo);
-            return true;
-        }).orElse(false);
+    public UpdateResult toggleTodoDone(String todoId) {
+        return repository.getTodo(todoId)
+                .map(todo -> save(todo.toggledDone()))
+                .orElseGet(UpdateResult::notFound);
     }
     
-    public boolean updateTodo(String todoId, String newTitle, String newCategory, LocalDateTime newTime) {
-        return repository.getTodo(todoId).map(todo -> {
-            boolean updated = false;
+    public UpdateResult updateTodo(String todoId, String newTitle, String newCategory, LocalDateTime newTime) {
+        return repository.getTodo(todoId).map(original -> {
+            // Build the edited copy; the cached original stays untouched until the save replaces it
+            Todo todo = original;
             
             if (newTitle != null && !newTitle.trim().isEmpty() && !newTitle.trim().equals(todo.getTitle())) {
                 validateTodoTitle(newTitle);
-                todo.setTitle(newTitle.trim());
-                updated = true;
+                todo = todo.withTitle(newTitle.trim());
             }
             
             if (newCategory != null && !newCategory.equals(todo.getCategory())) {
-                todo.setCategory(newCategory);
-                updated = true;
+                todo = todo.withCategory(newCategory);
             }
             
-            if (newTime != null) {
-                todo.setTime(newTime);
-                updated = true;
-            } else if (newTime == null && todo.getTime() != null) {
-                todo.setTime(null);
-                updated = true;
+            if (!Objects.equals(newTime, todo.getTime())) {
+                todo = todo.withTime(newTime);
             }
             
-            if (updated) repository.saveTodo(todo);
-            return updated;
-        }).orElse(false);
+            if (todo == original) return UpdateResult.unchanged(original);
+            return save(todo);
+        }).orElseGet(UpdateResult::notFound);
+    }
+    
+    // A lost race is an ordinary outcome here, not an error
+    private UpdateResult save(Todo todo) {
+        try {
+            return UpdateResult.saved(repository.saveTodo(todo));
+        } catch (TodoConflictException e) {
+            return e.getCurrent() != null ? UpdateResult.conflict(e.getCurrent()) : UpdateResult.notFound();
+        }
     }
     
     public boolean deleteTodo(String todoId) {
         return repository.deleteTodo(todoId);
     }
     
+    // Bulk edits: each runs as one transaction and reaches subscribers as one batch. Todos already in the
+    // requested state are left alone, and the stored copies of the rest are returned.
+    public List<Todo> setDone(Collection<String> todoIds, boolean done) {
+        return repository.updateTodos(todoIds, todo -> todo.isDone() == done ? todo : todo.withDone(done));
+    }
+    
+    public List<Todo> setDone(TodoQuery filter, boolean done) {
+        return setDone(ids(repository.query(Objects.requireNonNull(filter))), done);
+    }
+    
+    public List<Todo> moveToCategory(Collection<String> todoIds, String category) {
+        if (category == null || category.isBlank()) {
+            throw new IllegalArgumentException("Category cannot be empty");
+        }
+        String trimmed = category.trim();
+        return repository.updateTodos(todoIds,
+                todo -> trimmed.equals(todo.getCategory()) ? todo : todo.withCategory(trimmed));
+    }
+    
+    // Todos without a due date keep none
+    public List<Todo> shiftDueDates(Collection<String> todoIds, Duration by) {
+        Objects.requireNonNull(by);
+        return repository.updateTodos(todoIds,
+                todo -> todo.getTime() == null || by.isZero() ? todo : todo.withTime(todo.getTime().plus(by)));
+    }
+    
+    public int deleteTodos(Collection<String> todoIds) {
+        return repository.deleteTodos(todoIds);
+    }
+    
+    public int deleteCompleted() {
+        return repository.deleteTodos(ids(repository.query(TodoQuery.all().withDone(true))));
+    }
+    
+    private static List<String> ids(List<Todo> todos) {
+        return todos.stream().map(Todo::getId).toList();
+    }
+    
     public List<Todo> searchTodos(String query) {
         if (query == null || query.trim().isEmpty()) return List.of();
         return repository.searchTodos(query.trim());
     }
     
+    public List<Todo> searchTodos(String query, int limit) {
+        if (query == null || query.trim().isEmpty()) return List.of();
+        return repository.searchTodos(query.trim(), limit);
+    }
+    
+    // Typo-tolerant, ranked matches for search-as-you-type; see IncrementalSearch
+    public List<Todo> fuzzySearch(String query, int limit) {
+        if (query == null || query.isBlank()) return List.of();
+        return repository.fuzzySearch(query, limit);
+    }
+    
+    public List<Todo> query(TodoQuery query) {
+        return repository.query(Objects.requireNonNull(query));
+    }
+    
+    // How the repository would answer a query, for diagnostics
+    public String explainQuery(TodoQuery query) {
+        return repository.explain(Objects.requireNonNull(query));
+    }
+    
     public List<Todo> getTodayTodos() {
         return repository.getTodosDueToday();
     }
@@ -95,25 +186,76 @@ public class TodoService {
         return repository.getAllCategories();
     }
     
+    // Moves todos completed more than the given number of days ago out of the working set
+    public int archiveCompletedOlderThan(long days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Archive age must not be negative");
+        }
+        return repository.archiveCompleted(LocalDateTime.now().minusDays(days));
+    }
+    
+    public Optional<Todo> restoreTodo(String todoId) {
+        return repository.restoreTodo(todoId);
+    }
+    
+    public int getArchivedTodoCount() {
+        return repository.getArchive().count();
+    }
+    
+    // Archived todos, newest first; the archive is read from storage on every call
+    public Page getArchivePage(PageCursor cursor, int limit) {
+        return repository.getArchive().page(cursor, limit);
+    }
+    
+    public List<Todo> searchArchive(String query, int limit) {
+        if (query == null || query.trim().isEmpty()) return List.of();
+        return repository.getArchive().search(query.trim(), limit);
+    }
+    
+    public long getVersion() {
+        return repository.getVersion();
+    }
+    
+    public ChangeSet getChangesSince(long version) {
+        return repository.getChangesSince(version);
+    }
+    
+    // Every todo as one BULK event, then each change as it happens, delivered on the executor
+    public TodoSubscription subscribe(Executor executor, Consumer<List<TodoEvent>> listener) {
+        return repository.subscribe(executor, listener);
+    }
+    
+    // Replays the events after fromSeq first; null if that is too far back
+    public TodoSubscription subscribe(long fromSeq, Executor executor, Consumer<List<TodoEvent>> listener) {
+        return repository.subscribe(fromSeq, executor, listener);
+    }
+    
     public int getTotalTodoCount() { return repository.getTotalTodoCount(); }
     
     public int getCompletedTodoCount() { return repository.getCompletedTodoCount(); }
     
     public int getPendingTodoCount() {
-        return getTotalTodoCount() - getCompletedTodoCount();
+        return getStats().getPending();
     }
     
     public double getCompletionPercentage() {
-        int total = getTotalTodoCount();
-        if (total == 0) return 0.0;
-        return (getCompletedTodoCount() * 100.0) / total;
+        return getStats().getCompletionPercentage();
+    }
+    
+    public TodoStats getStats() {
+        return repository.getStats();
     }
     
     public String getStatsText() {
-        int total = getTotalTodoCount();
-        int completed = getCompletedTodoCount();
-        int pending = total - completed;
-        return String.format("%d total • %d done • %d pending", total, completed, pending);
+        TodoStats stats = getStats();
+        String text = String.format("%d total • %d done • %d pending",
+                stats.getTotal(), stats.getCompleted(), stats.getPending());
+        int archived = getArchivedTodoCount();
+        return archived > 0 ? text + " • " + archived + " archived" : text;
+    }
+    
+    public void close() {
+        repository.close();
     }
     
     private void validateTodoTitle(String title) {
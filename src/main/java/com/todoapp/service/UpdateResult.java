@@ -0,0 +1,35 @@
+package com.todoapp.service;
+
+import com.todoapp.model.Todo;
+
+/**
+ * Outcome of an edit made through {@link TodoService}. A conflict means
+ * another writer changed the todo after it was read; nothing was saved, and
+ * {@link #getTodo()} is their copy, which the caller can show or edit again.
+ */
+public final class UpdateResult {
+    public enum Status { SAVED, UNCHANGED, NOT_FOUND, CONFLICT }
+
+    private final Status status;
+    private final Todo todo;
+
+    private UpdateResult(Status status, Todo todo) {
+        this.status = status;
+        this.todo = todo;
+    }
+
+    static UpdateResult saved(Todo todo) { return new UpdateResult(Status.SAVED, todo); }
+    static UpdateResult unchanged(Todo todo) { return new UpdateResult(Status.UNCHANGED, todo); }
+    static UpdateResult notFound() { return new UpdateResult(Status.NOT_FOUND, null); }
+    static UpdateResult conflict(Todo current) { return new UpdateResult(Status.CONFLICT, current); }
+
+    public Status getStatus() { return status; }
+    public boolean isSaved() { return status == Status.SAVED; }
+    // The stored copy after the edit, or the other writer's copy on a conflict; null if not found
+    public Todo getTodo() { return todo; }
+
+    @Override
+    public String toString() {
+        return "UpdateResult{" + status + (todo != null ? ", " + todo.getId() + " v" + todo.getVersion() : "") + "}";
+    }
+}
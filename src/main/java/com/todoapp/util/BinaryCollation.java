@@ -0,0 +1,35 @@
+package com.todoapp.util;
+
+import java.util.Comparator;
+
+/**
+ * String order of SQLite's default BINARY collation, which compares UTF-8
+ * bytes. For valid text that is code point order. {@link String#compareTo}
+ * compares UTF-16 code units instead, and disagrees when a character above
+ * U+FFFF (stored as a surrogate pair) meets one in U+E000..U+FFFF.
+ */
+public class BinaryCollation {
+    public static final Comparator<String> ORDER = BinaryCollation::compare;
+
+    private BinaryCollation() {
+    }
+
+    public static int compare(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char x = a.charAt(i), y = b.charAt(i);
+            if (x == y) continue;
+            // Above the surrogates, shift so that U+E000..U+FFFF sort before surrogate pairs
+            if (x >= 0xD800 && y >= 0xD800) {
+                x = fixUp(x);
+                y = fixUp(y);
+            }
+            return x - y;
+        }
+        return a.length() - b.length();
+    }
+
+    private static char fixUp(char c) {
+        return (char) (c >= 0xE000 ? c - 0x800 : c + 0x2000);
+    }
+}
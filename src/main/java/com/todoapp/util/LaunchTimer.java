@@ -0,0 +1,16 @@
+package com.todoapp.util;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public class LaunchTimer {
+    private LaunchTimer() {
+    }
+
+    // Milliseconds since the process started, or -1 if the OS doesn't report a start time
+    public static long millisSinceLaunch() {
+        return ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis())
+                .orElse(-1L);
+    }
+}
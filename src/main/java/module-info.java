@@ -2,6 +2,7 @@ module com.todoapp {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.sql;
+    requires java.logging;
     requires MaterialFX;
     requires org.controlsfx.controls;
     requires org.kordamp.ikonli.javafx;
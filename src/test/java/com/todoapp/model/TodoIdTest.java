@@ -0,0 +1,44 @@
+package com.todoapp.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TodoIdTest {
+    // A mix of ASCII, the top of the BMP and characters that need a surrogate pair
+    private static final int[] CODE_POINTS = {'a', 'z', 0xE9, 0xD7FF, 0xE000, 0xFF5E, 0xFFFD, 0x1F600, 0x10FFFF};
+
+    @Test
+    void textIdsOrderByUtf8BytesAsSqliteDoes() {
+        Random random = new Random(12);
+        for (int i = 0; i < 20_000; i++) {
+            String a = randomText(random), b = randomText(random);
+            int expected = Integer.signum(Arrays.compareUnsigned(
+                    a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(expected, Integer.signum(TodoId.of(a).compareTo(TodoId.of(b))), a + " vs " + b);
+        }
+    }
+
+    @Test
+    void textIdsComeBeforeUuidsAndUuidsOrderAsTheirStrings() {
+        TodoId text = TodoId.of("\uD83D\uDE00 imported");
+        TodoId low = TodoId.of("00000000-0000-7000-8000-000000000000");
+        TodoId high = TodoId.of("ffffffff-ffff-7fff-bfff-ffffffffffff");
+        assertTrue(low.isUuid() && high.isUuid() && !text.isUuid());
+        assertTrue(text.compareTo(low) < 0);
+        assertTrue(low.compareTo(high) < 0);
+        assertTrue(high.compareTo(text) > 0);
+    }
+
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder("id-");
+        for (int i = 0, length = random.nextInt(4); i < length; i++) {
+            text.appendCodePoint(CODE_POINTS[random.nextInt(CODE_POINTS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Single-threaded inserts, updates and deletes per second for each storage
+ * profile; the source of the throughput table in the README. Not run by
+ * {@code mvn test}. Run the class directly, optionally passing the number
+ * of todos (default 20,000).
+ */
+public final class BackendThroughputBenchmark {
+    private BackendThroughputBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        Map<String, Function<Path, TodoRepository>> backends = new LinkedHashMap<>();
+        backends.put("SQLite, durable", dir -> open(dir, RepositoryConfig.Backend.SQLITE, StorageSettings.durable(), false));
+        backends.put("SQLite, fast", dir -> open(dir, RepositoryConfig.Backend.SQLITE, StorageSettings.fast(), false));
+        backends.put("SQLite, fast + write-behind", dir -> open(dir, RepositoryConfig.Backend.SQLITE, StorageSettings.fast(), true));
+        backends.put("Log, durable", dir -> open(dir, RepositoryConfig.Backend.LOG, StorageSettings.durable(), false));
+        backends.put("Log, fast", dir -> open(dir, RepositoryConfig.Backend.LOG, StorageSettings.fast(), false));
+
+        System.out.printf("%d todos, operations per second%n", count);
+        System.out.println("| Backend | Insert | Update | Delete |");
+        System.out.println("|---|---|---|---|");
+        for (Map.Entry<String, Function<Path, TodoRepository>> backend : backends.entrySet()) {
+            Path dir = Files.createTempDirectory("todo-bench");
+            try (TodoRepository repository = backend.getValue().apply(dir)) {
+                repository.whenLoaded().join();
+                List<Todo> todos = new ArrayList<>(count);
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    todos.add(repository.saveTodo(new Todo("Todo " + i)));
+                }
+                long inserted = System.nanoTime();
+                for (Todo todo : todos) {
+                    repository.saveTodo(todo.toggledDone());
+                }
+                long updated = System.nanoTime();
+                for (Todo todo : todos) {
+                    repository.deleteTodo(todo.getId());
+                }
+                repository.flush();
+                long deleted = System.nanoTime();
+                System.out.printf("| %s | %,d | %,d | %,d |%n", backend.getKey(),
+                        perSecond(count, inserted - start), perSecond(count, updated - inserted),
+                        perSecond(count, deleted - updated));
+            } finally {
+                deleteRecursively(dir);
+            }
+        }
+    }
+
+    private static TodoRepository open(Path dir, RepositoryConfig.Backend backend, StorageSettings storage,
+                                       boolean writeBehind) {
+        String file = backend == RepositoryConfig.Backend.LOG ? "todos.log" : "todos.db";
+        RepositoryConfig config = RepositoryConfig.defaults()
+                .withBackend(backend)
+                .withDatabasePath(dir.resolve(file).toString())
+                .withStorage(storage)
+                .withArchiveAfter(0);
+        return TodoRepositories.open(writeBehind ? config.withWriteBehind(250, 500) : config);
+    }
+
+    private static long perSecond(int count, long nanos) {
+        return count * 1_000_000_000L / Math.max(1, nanos);
+    }
+
+    private static void deleteRecursively(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Retained heap per cached todo for each cache layout at 10k, 100k and 1M
+ * todos. Not run by {@code mvn test}; run the class directly with enough
+ * heap for the largest case, for example {@code -Xmx2g}.
+ */
+public final class CacheFootprintBenchmark {
+    private static final String[] CATEGORIES = {"Work", "Home", "General", "Errands", "Shopping", "Health", "Study", "Ideas"};
+
+    private CacheFootprintBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("| Todos | Layout | Retained | Per todo |");
+        System.out.println("|---|---|---|---|");
+        for (int count : new int[]{10_000, 100_000, 1_000_000}) {
+            for (RepositoryConfig.CacheLayout layout : RepositoryConfig.CacheLayout.values()) {
+                long before = usedHeap();
+                TodoStore store = layout == RepositoryConfig.CacheLayout.COMPACT ? new CompactTodoStore() : new IndexedTodoStore();
+                fill(store, count);
+                long retained = usedHeap() - before;
+                // Keeps the store reachable until it has been measured
+                if (store.size() != count) throw new AssertionError("Store lost rows");
+                System.out.printf("| %,d | %s | %.1f MB | %d B |%n", count, layout, retained / 1e6, retained / count);
+            }
+        }
+    }
+
+    private static void fill(TodoStore store, int count) {
+        Random random = new Random(1);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            // A fresh String per row, as rows read from storage have
+            Todo todo = new Todo("Todo item number " + i)
+                    .withCategory(new String(CATEGORIES[i % CATEGORIES.length]))
+                    .withTime(i % 2 == 0 ? null : now.plusMinutes(random.nextInt(100_000)));
+            store.put(i % 3 == 0 ? todo.withDone(true) : todo);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,135 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential test: the same random puts, edits and removes are applied to
+ * a {@link CompactTodoStore} and to the default {@link IndexedTodoStore},
+ * and every read must then agree.
+ */
+class CompactTodoStoreTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime NOW = BASE.plusMinutes(50_000);
+    private static final String[] CATEGORIES = {"Work", "Home", null, "Errands", "Zed"};
+
+    private final TodoStore expected = new IndexedTodoStore();
+    private final TodoStore compact = new CompactTodoStore();
+    private final List<TodoId> live = new ArrayList<>();
+
+    @BeforeEach
+    void applyRandomWrites() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            int op = random.nextInt(10);
+            if (op < 5 || live.isEmpty()) {
+                // A few ids that aren't UUIDs, as imported rows have
+                String id = random.nextInt(50) == 0 ? "legacy-" + i : new UUID(random.nextLong(), random.nextLong()).toString();
+                Todo todo = new Todo(id, "Todo " + i, random.nextBoolean(), randomTime(random),
+                        BASE.plusSeconds(random.nextInt(5000)), BASE, randomCategory(random));
+                putBoth(todo);
+                live.add(todo.getKey());
+            } else if (op < 8) {
+                Todo current = expected.get(live.get(random.nextInt(live.size())));
+                putBoth(new Todo(current.getKey(), current.getTitle(), random.nextBoolean(), randomTime(random),
+                        current.getCreatedAt(), BASE, randomCategory(random), current.getVersion() + 1));
+            } else {
+                TodoId id = live.remove(random.nextInt(live.size()));
+                assertNotNull(expected.remove(id));
+                assertNotNull(compact.remove(id));
+            }
+        }
+    }
+
+    private void putBoth(Todo todo) {
+        expected.put(todo);
+        compact.put(todo);
+    }
+
+    private static LocalDateTime randomTime(Random random) {
+        return random.nextBoolean() ? null : BASE.plusMinutes(random.nextInt(100_000));
+    }
+
+    private static String randomCategory(Random random) {
+        return CATEGORIES[random.nextInt(CATEGORIES.length)];
+    }
+
+    @Test
+    void rowsAndCountersMatch() {
+        assertEquals(describe(expected.values()), describe(compact.values()));
+        assertEquals(expected.size(), compact.size());
+        for (TodoId id : live) {
+            assertEquals(describe(List.of(expected.get(id))), describe(List.of(compact.get(id))));
+        }
+        assertNull(compact.get(TodoId.of("legacy-missing")));
+        assertEquals(expected.completedCount(), compact.completedCount());
+        assertEquals(expected.overdueCount(NOW), compact.overdueCount(NOW));
+        assertEquals(expected.nextPendingDue(NOW), compact.nextPendingDue(NOW));
+        assertEquals(expected.categoryCounts(), compact.categoryCounts());
+        assertEquals(expected.categories(), compact.categories());
+    }
+
+    @Test
+    void lookupsMatch() {
+        for (String category : CATEGORIES) {
+            assertEquals(describe(expected.inCategory(category)), describe(compact.inCategory(category)), category);
+        }
+        assertEquals(describe(expected.dueBetween(NOW, NOW.plusDays(3))), describe(compact.dueBetween(NOW, NOW.plusDays(3))));
+        assertEquals(describe(expected.pendingDueBefore(NOW)), describe(compact.pendingDueBefore(NOW)));
+    }
+
+    @Test
+    void everyPageMatches() {
+        List<TodoFilter> filters = List.of(TodoFilter.all(), TodoFilter.all().withCategory("Work"),
+                TodoFilter.all().withDone(true), TodoFilter.all().withCategory("Nope"));
+        for (SortKey sortKey : SortKey.values()) {
+            for (TodoFilter filter : filters) {
+                assertEquals(readPages(expected, sortKey, filter), readPages(compact, sortKey, filter),
+                        sortKey + " " + filter.getCategory() + " " + filter.getDone());
+            }
+        }
+    }
+
+    @Test
+    void queriesMatch() {
+        List<TodoQuery> queries = List.of(
+                TodoQuery.all(),
+                TodoQuery.all().withDone(false).sortedBy(SortKey.TIME).withLimit(25),
+                TodoQuery.all().withCategory("Home").withDone(true),
+                TodoQuery.all().withDueBetween(NOW, NOW.plusDays(2)).sortedBy(SortKey.TIME),
+                TodoQuery.all().withText("todo 12").sortedBy(SortKey.CATEGORY).withLimit(40));
+        for (TodoQuery query : queries) {
+            assertEquals(describe(expected.query(query)), describe(compact.query(query)), query.toString());
+        }
+    }
+
+    private static List<String> readPages(TodoStore store, SortKey sortKey, TodoFilter filter) {
+        List<String> rows = new ArrayList<>();
+        PageCursor cursor = null;
+        do {
+            Page page = store.page(cursor, 37, sortKey, filter);
+            rows.addAll(describe(page.getItems()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return rows;
+    }
+
+    private static List<String> describe(List<Todo> todos) {
+        List<String> rows = new ArrayList<>(todos.size());
+        for (Todo todo : todos) {
+            rows.add(todo.getId() + "|" + todo.getTitle() + "|" + todo.isDone() + "|" + todo.getCategory() + "|"
+                    + todo.getTime() + "|" + todo.getVersion());
+        }
+        return rows;
+    }
+}
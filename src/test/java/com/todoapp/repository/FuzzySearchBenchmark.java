@@ -0,0 +1,82 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Keystroke latency of {@link TodoRepository#fuzzySearch} at 100k todos
+ * (or the count given as the first argument). Each query is a prefix of a
+ * stored title, a third of them with a typo, replayed one character at a
+ * time as the search field sends them. Not run by {@code mvn test}.
+ */
+public final class FuzzySearchBenchmark {
+    private static final String[] CATEGORIES = {"Home", "Work", "Errands", "Health", "Social"};
+
+    private FuzzySearchBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        RepositoryConfig config = RepositoryConfig.defaults()
+                .withBackend(RepositoryConfig.Backend.MEMORY)
+                .withSnapshotInterval(0);
+        for (RepositoryConfig.CacheLayout layout : RepositoryConfig.CacheLayout.values()) {
+            try (TodoRepository repository = TodoRepositories.open(config.withCacheLayout(layout))) {
+                repository.whenLoaded().join();
+                run(repository, layout, count);
+            }
+        }
+    }
+
+    private static void run(TodoRepository repository, RepositoryConfig.CacheLayout layout, int count) {
+        Random random = new Random(7);
+        // Word frequencies roughly follow a long tail, as in real titles
+        String[] vocabulary = new String[3000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            char[] word = new char[3 + random.nextInt(8)];
+            for (int j = 0; j < word.length; j++) word[j] = (char) ('a' + random.nextInt(26));
+            vocabulary[i] = new String(word);
+        }
+        List<String> titles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int j = 0, words = 2 + random.nextInt(5); j < words; j++) {
+                if (j > 0) title.append(' ');
+                title.append(vocabulary[(int) Math.min(vocabulary.length - 1, Math.abs(random.nextGaussian()) * 600)]);
+            }
+            titles.add(title.toString());
+            repository.saveTodo(new Todo(title.toString()).withCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]));
+        }
+
+        long start = System.nanoTime();
+        repository.fuzzySearch("warm", 10);
+        long build = System.nanoTime() - start;
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            char[] title = titles.get(random.nextInt(titles.size())).toCharArray();
+            if (random.nextInt(3) == 0) {
+                int at = random.nextInt(title.length);
+                if (title[at] != ' ') title[at] = (char) ('a' + random.nextInt(26));
+            }
+            for (int length = 1; length <= title.length; length++) queries.add(new String(title, 0, length));
+        }
+        // Warm up
+        for (int i = 0; i < 3000; i++) repository.fuzzySearch(queries.get(i % queries.size()), 50);
+
+        long[] latencies = new long[queries.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            long began = System.nanoTime();
+            repository.fuzzySearch(queries.get(i), 50);
+            latencies[i] = System.nanoTime() - began;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%s, %,d todos: index built in %.0f ms; %,d queries p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                layout, count, build / 1e6, latencies.length, latencies[latencies.length / 2] / 1e6,
+                latencies[(int) (latencies.length * 0.99)] / 1e6, latencies[latencies.length - 1] / 1e6);
+    }
+}
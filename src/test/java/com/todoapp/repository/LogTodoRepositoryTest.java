@@ -0,0 +1,158 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogTodoRepositoryTest extends TodoRepositoryContract {
+    @TempDir
+    Path dir;
+
+    @Override
+    protected TodoRepository openRepository() {
+        return TodoRepositories.open(RepositoryConfig.defaults()
+                .withBackend(RepositoryConfig.Backend.LOG)
+                .withDatabasePath(logPath().toString()));
+    }
+
+    private Path logPath() {
+        return dir.resolve("todos.log");
+    }
+
+    @Test
+    void secondInstanceOnSameLogFailsFast() {
+        TodoRepository first = open();
+        first.saveTodo(new Todo("Only writer"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, this::openRepository);
+        assertTrue(e.getCause().getMessage().contains("already open"), e.getCause().getMessage());
+        close(first);
+
+        TodoRepository second = open();
+        assertEquals(1, second.getTotalTodoCount());
+    }
+
+    @Test
+    void tornFinalRecordIsDiscardedOnReopen() throws Exception {
+        TodoRepository repository = open();
+        Todo kept = repository.saveTodo(new Todo("Written whole"));
+        Todo torn = repository.saveTodo(new Todo("Torn by a crash"));
+        close(repository);
+
+        // The log is zero past its last record; corrupting a byte near the end breaks that record's checksum
+        byte[] bytes = Files.readAllBytes(logPath());
+        int end = bytes.length;
+        while (bytes[end - 1] == 0) end--;
+        bytes[end - 3] ^= 0x5A;
+        Files.write(logPath(), bytes);
+
+        TodoRepository reopened = open();
+        assertTrue(reopened.getTodo(kept.getId()).isPresent());
+        assertFalse(reopened.getTodo(torn.getId()).isPresent());
+        // Writes land where the torn record was cleared, and are read back after the next open
+        Todo after = reopened.saveTodo(new Todo("Written after recovery"));
+        close(reopened);
+
+        TodoRepository again = open();
+        assertEquals(List.of(after.getId(), kept.getId()).stream().sorted().toList(),
+                again.getAllTodos().stream().map(Todo::getId).sorted().toList());
+    }
+
+    @Test
+    void compactionDuringConcurrentWritesLosesNothing() throws Exception {
+        TodoRepository repository = open();
+        int writers = 4;
+        int todosPerWriter = 25;
+        // Large records, so superseded copies pass the 1 MB compaction threshold within a few seconds
+        String padding = "x".repeat(1000);
+        List<List<Todo>> owned = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            List<Todo> todos = new ArrayList<>();
+            for (int i = 0; i < todosPerWriter; i++) {
+                todos.add(repository.saveTodo(new Todo("Writer " + w + " todo " + i + " " + padding)));
+            }
+            owned.add(todos);
+        }
+        Object originalFile = fileKey();
+
+        Map<String, Todo> latest = new ConcurrentHashMap<>();
+        List<String> deleted = new ArrayList<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(writers);
+        List<Throwable> failures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            List<Todo> todos = owned.get(w);
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int round = 0; !stop.get(); round++) {
+                        for (int i = 0; i < todos.size(); i++) {
+                            Todo saved = repository.saveTodo(todos.get(i).withTitle(round + " " + padding));
+                            todos.set(i, saved);
+                            latest.put(saved.getId(), saved);
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                } finally {
+                    finished.countDown();
+                }
+            }, "log-writer-" + w);
+            thread.start();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (fileKey().equals(originalFile) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        // Keep writing across the swap, then stop
+        Thread.sleep(200);
+        stop.set(true);
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of(), failures);
+        assertNotEquals(originalFile, fileKey(), "no compaction within 30 s");
+
+        // Deletes after the swap go into the new file too
+        for (int i = 0; i < 5; i++) {
+            String id = owned.get(0).get(i).getId();
+            assertTrue(repository.deleteTodo(id));
+            latest.remove(id);
+            deleted.add(id);
+        }
+        assertEquals(snapshot(latest.values()), snapshot(repository.getAllTodos()));
+        close(repository);
+
+        TodoRepository reopened = open();
+        assertEquals(snapshot(latest.values()), snapshot(reopened.getAllTodos()));
+        for (String id : deleted) {
+            assertFalse(reopened.getTodo(id).isPresent());
+        }
+    }
+
+    private Object fileKey() throws Exception {
+        return Files.readAttributes(logPath(), BasicFileAttributes.class).fileKey();
+    }
+
+    private static Map<String, String> snapshot(Iterable<Todo> todos) {
+        Map<String, String> byId = new HashMap<>();
+        for (Todo todo : todos) {
+            byId.put(todo.getId(), todo.getVersion() + " " + todo.getTitle());
+        }
+        return byId;
+    }
+}
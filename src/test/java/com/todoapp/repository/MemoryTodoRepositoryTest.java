@@ -0,0 +1,13 @@
+package com.todoapp.repository;
+
+class MemoryTodoRepositoryTest extends TodoRepositoryContract {
+    @Override
+    protected TodoRepository openRepository() {
+        return TodoRepositories.open(RepositoryConfig.defaults().withBackend(RepositoryConfig.Backend.MEMORY));
+    }
+
+    @Override
+    protected boolean keepsDataAcrossReopen() {
+        return false;
+    }
+}
@@ -0,0 +1,62 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqliteFileRepositoryTest extends TodoRepositoryContract {
+    @TempDir
+    Path dir;
+
+    @Override
+    protected TodoRepository openRepository() {
+        return TodoRepositories.open(RepositoryConfig.defaults()
+                .withDatabasePath(dir.resolve("todos.db").toString())
+                .withArchiveAfter(0));
+    }
+
+    @Test
+    void archivedCountFollowsArchiveAndRestore() {
+        TodoRepository repository = open();
+        Todo done = repository.saveTodo(repository.saveTodo(new Todo("Finished")).withDone(true));
+        repository.saveTodo(repository.saveTodo(new Todo("Also finished")).withDone(true));
+        repository.saveTodo(new Todo("Still open"));
+
+        assertEquals(2, repository.archiveCompleted(LocalDateTime.now().plusDays(1)));
+        assertEquals(2, repository.getArchive().count());
+        assertTrue(repository.restoreTodo(done.getId()).isPresent());
+        assertEquals(1, repository.getArchive().count());
+        close(repository);
+
+        assertEquals(1, open().getArchive().count());
+    }
+
+    @Test
+    void archivingByAnotherConnectionShowsUpAfterRefresh() throws InterruptedException {
+        TodoRepository repository = open();
+        TodoRepository other = open();
+        Todo done = other.saveTodo(other.saveTodo(new Todo("Finished elsewhere")).withDone(true));
+        assertEquals(1, other.archiveCompleted(LocalDateTime.now().plusDays(1)));
+
+        // The default refresh runs every second
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (repository.getArchive().count() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, repository.getArchive().count());
+        assertFalse(repository.getTodo(done.getId()).isPresent());
+    }
+
+    @Test
+    void fileThatIsNotADatabaseFailsToOpen() throws IOException {
+        Files.writeString(dir.resolve("todos.db"), "not a database ".repeat(100));
+        assertThrows(RuntimeException.class, this::openRepository);
+    }
+}
@@ -0,0 +1,13 @@
+package com.todoapp.repository;
+
+class SqliteInMemoryRepositoryTest extends TodoRepositoryContract {
+    @Override
+    protected TodoRepository openRepository() {
+        return TodoRepositories.open(RepositoryConfig.defaults().withDatabasePath(":memory:"));
+    }
+
+    @Override
+    protected boolean keepsDataAcrossReopen() {
+        return false;
+    }
+}
@@ -0,0 +1,141 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Per-operation latency of mixed saves and deletes against a database file,
+ * before and after {@link SqliteTodoRepository} kept one connection open.
+ * "Connection per call" replays what the repository used to do for each
+ * save or delete: open a connection, prepare the statement, run it, close.
+ * Not run by {@code mvn test}. Run the class directly, optionally passing
+ * the number of operations (default 3,000).
+ */
+public final class SqliteLatencyBenchmark {
+    private static final String UPSERT_SQL = """
+        INSERT OR REPLACE INTO todos(id, title, done, time, created_at, updated_at, category)
+        VALUES(?, ?, ?, ?, ?, ?, ?)
+    """;
+
+    private SqliteLatencyBenchmark() {
+    }
+
+    private interface Operations {
+        void save(Todo todo) throws SQLException;
+
+        void delete(Todo todo) throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 3_000;
+        System.out.printf("%d mixed saves and deletes, latency per operation%n", count);
+        System.out.println("| Mode | Mean | p50 | p99 |");
+        System.out.println("|---|---|---|---|");
+
+        Path dir = Files.createTempDirectory("todo-bench");
+        try {
+            String url = "jdbc:sqlite:" + dir.resolve("before.db");
+            try (Connection setup = DriverManager.getConnection(url); Statement stmt = setup.createStatement()) {
+                stmt.execute("""
+                    CREATE TABLE todos (id TEXT PRIMARY KEY, title TEXT NOT NULL, done BOOLEAN NOT NULL DEFAULT 0,
+                        time TEXT, created_at TEXT NOT NULL, updated_at TEXT NOT NULL, category TEXT DEFAULT 'General')
+                """);
+            }
+            report("Connection per call", run(count, new Operations() {
+                @Override
+                public void save(Todo todo) throws SQLException {
+                    try (Connection conn = DriverManager.getConnection(url);
+                         PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+                        pstmt.setString(1, todo.getId());
+                        pstmt.setString(2, todo.getTitle());
+                        pstmt.setBoolean(3, todo.isDone());
+                        pstmt.setString(4, todo.getTime() != null ? todo.getTime().toString() : null);
+                        pstmt.setString(5, todo.getCreatedAt().toString());
+                        pstmt.setString(6, todo.getUpdatedAt().toString());
+                        pstmt.setString(7, todo.getCategory());
+                        pstmt.executeUpdate();
+                    }
+                }
+
+                @Override
+                public void delete(Todo todo) throws SQLException {
+                    try (Connection conn = DriverManager.getConnection(url);
+                         PreparedStatement pstmt = conn.prepareStatement("DELETE FROM todos WHERE id = ?")) {
+                        pstmt.setString(1, todo.getId());
+                        pstmt.executeUpdate();
+                    }
+                }
+            }));
+
+            RepositoryConfig config = RepositoryConfig.defaults()
+                    .withDatabasePath(dir.resolve("after.db").toString())
+                    .withArchiveAfter(0);
+            try (TodoRepository repository = new SqliteTodoRepository(config)) {
+                repository.whenLoaded().join();
+                report("Persistent connection", run(count, new Operations() {
+                    @Override
+                    public void save(Todo todo) {
+                        repository.saveTodo(repository.getTodo(todo.getId()).orElse(todo));
+                    }
+
+                    @Override
+                    public void delete(Todo todo) {
+                        repository.deleteTodo(todo.getId());
+                    }
+                }));
+            }
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    // Two saves to each delete; half of the saves update a todo that is already stored
+    private static long[] run(int count, Operations operations) throws SQLException {
+        Random random = new Random(1);
+        List<Todo> stored = new ArrayList<>();
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            int op = random.nextInt(3);
+            long start = System.nanoTime();
+            if (op == 2 && !stored.isEmpty()) {
+                operations.delete(stored.remove(random.nextInt(stored.size())));
+            } else if (op == 1 && !stored.isEmpty()) {
+                operations.save(stored.get(random.nextInt(stored.size())));
+            } else {
+                Todo todo = new Todo("Todo " + i);
+                operations.save(todo);
+                stored.add(todo);
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    private static void report(String mode, long[] latencies) {
+        double mean = Arrays.stream(latencies).average().orElse(0) / 1e6;
+        Arrays.sort(latencies);
+        System.out.printf("| %s | %.2f ms | %.2f ms | %.2f ms |%n", mode, mean,
+                latencies[latencies.length / 2] / 1e6, latencies[(int) (latencies.length * 0.99)] / 1e6);
+    }
+
+    private static void deleteRecursively(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqliteWriteBehindRepositoryTest extends TodoRepositoryContract {
+    @TempDir
+    Path dir;
+
+    @Override
+    protected TodoRepository openRepository() {
+        return TodoRepositories.open(RepositoryConfig.defaults()
+                .withDatabasePath(dir.resolve("todos.db").toString())
+                .withArchiveAfter(0)
+                .withWriteBehind(50, 100));
+    }
+
+    // Makes the table refuse rows titled "Rejected", as a full disk or a constraint would refuse a batch
+    private void rejectTitled(String title) throws SQLException {
+        try (Connection other = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("todos.db"));
+             Statement stmt = other.createStatement()) {
+            for (String event : new String[]{"INSERT", "UPDATE"}) {
+                stmt.execute("CREATE TRIGGER reject_" + event.toLowerCase() + " BEFORE " + event + " ON todos WHEN NEW.title = '"
+                        + title + "' BEGIN SELECT RAISE(ABORT, 'rejected'); END");
+            }
+        }
+    }
+
+    @Test
+    void failedBatchIsReportedAndTheCacheGoesBackToTheTable() throws SQLException {
+        TodoRepository repository = open();
+        Todo kept = repository.saveTodo(new Todo("Kept"));
+        repository.flush();
+        rejectTitled("Rejected");
+
+        Todo added = repository.saveTodo(new Todo("Rejected"));
+        repository.saveTodo(kept.withTitle("Rejected"));
+        RuntimeException e = assertThrows(RuntimeException.class, repository::flush);
+        assertInstanceOf(SQLException.class, e.getCause());
+
+        assertFalse(repository.getTodo(added.getId()).isPresent());
+        assertEquals("Kept", repository.getTodo(kept.getId()).orElseThrow().getTitle());
+        // Reported once; later writes go through
+        repository.flush();
+        Todo later = repository.saveTodo(new Todo("Later"));
+        repository.flush();
+        close(repository);
+        TodoRepository reopened = open();
+        assertTrue(reopened.getTodo(later.getId()).isPresent());
+        assertFalse(reopened.getTodo(added.getId()).isPresent());
+    }
+
+    @Test
+    void failureAtCloseIsThrownByClose() throws SQLException {
+        TodoRepository repository = open();
+        rejectTitled("Rejected");
+        repository.saveTodo(new Todo("Rejected"));
+        assertThrows(RuntimeException.class, () -> close(repository));
+    }
+}
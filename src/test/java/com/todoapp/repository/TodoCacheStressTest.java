@@ -0,0 +1,274 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Eight writers and four readers against a SQLite-backed cache. Afterwards
+ * the cache, the stored rows, the secondary indexes and the stats must all
+ * describe the same todos, and no writer's update may have been lost.
+ */
+class TodoCacheStressTest {
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int TODOS_PER_WRITER = 40;
+    private static final int OPERATIONS_PER_WRITER = 400;
+    private static final int INCREMENTS_PER_WRITER = 150;
+    private static final String[] CATEGORIES = {"Work", "Home", "Errands", "Later"};
+
+    @TempDir
+    Path dir;
+
+    private final List<TodoRepository> opened = new ArrayList<>();
+    // Due times are whole hours at least a day from now, so nothing becomes overdue while the test runs
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+
+    @AfterEach
+    void closeRepositories() {
+        for (TodoRepository repository : opened) {
+            repository.close();
+        }
+    }
+
+    @Test
+    void directWritesLoseNothing() throws Exception {
+        run(config());
+    }
+
+    @Test
+    void writeBehindLosesNothing() throws Exception {
+        run(config().withWriteBehind(20, 64));
+    }
+
+    private RepositoryConfig config() {
+        return RepositoryConfig.defaults()
+                .withDatabasePath(dir.resolve("todos.db").toString())
+                // Durability isn't under test, and fsync on every commit would make this slow
+                .withStorage(StorageSettings.fast())
+                .withArchiveAfter(0)
+                .withRefreshInterval(0);
+    }
+
+    private TodoRepository open(RepositoryConfig config) {
+        TodoRepository repository = TodoRepositories.open(config);
+        opened.add(repository);
+        repository.whenLoaded().join();
+        return repository;
+    }
+
+    private void run(RepositoryConfig config) throws Exception {
+        TodoRepository repository = open(config);
+        String counterId = repository.saveTodo(new Todo("0")).getId();
+        // What each writer last saved; writers own disjoint todos, so this is what the cache must hold
+        Map<String, Todo> expected = new ConcurrentHashMap<>();
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            long seed = w;
+            writers.add(thread("stress-writer-" + w, failures, () -> {
+                start.await();
+                write(repository, new Random(seed), expected);
+                incrementCounter(repository, counterId);
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            readers.add(thread("stress-reader-" + r, failures, () -> {
+                start.await();
+                while (writing.get()) {
+                    readConsistently(repository);
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join(TimeUnit.SECONDS.toMillis(120));
+            assertFalse(writer.isAlive(), writer.getName() + " did not finish");
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        assertEquals(List.of(), failures);
+
+        Todo counter = repository.getTodo(counterId).orElseThrow();
+        assertEquals(String.valueOf(WRITERS * INCREMENTS_PER_WRITER), counter.getTitle(), "lost increments");
+        expected.put(counterId, counter);
+
+        repository.flush();
+        assertEquals(describe(expected.values()), describe(repository.getAllTodos()), "cache");
+        assertEquals(describe(expected.values()), describe(readStore(repository)), "stored rows");
+        assertIndexesAndStatsAgree(repository);
+
+        repository.close();
+        opened.remove(repository);
+        TodoRepository reopened = open(config);
+        assertEquals(describe(expected.values()), describe(reopened.getAllTodos()), "after reopen");
+        assertIndexesAndStatsAgree(reopened);
+    }
+
+    private void write(TodoRepository repository, Random random, Map<String, Todo> expected) {
+        List<Todo> owned = new ArrayList<>();
+        for (int i = 0; i < TODOS_PER_WRITER; i++) {
+            owned.add(save(repository, randomEdit(new Todo("Todo " + i), random), expected));
+        }
+        for (int op = 0; op < OPERATIONS_PER_WRITER; op++) {
+            int i = random.nextInt(owned.size());
+            if (random.nextInt(10) == 0) {
+                assertTrue(repository.deleteTodo(owned.get(i).getId()));
+                expected.remove(owned.get(i).getId());
+                owned.set(i, save(repository, randomEdit(new Todo("Replacement " + op), random), expected));
+            } else {
+                owned.set(i, save(repository, randomEdit(owned.get(i), random), expected));
+            }
+        }
+    }
+
+    private static Todo save(TodoRepository repository, Todo todo, Map<String, Todo> expected) {
+        Todo saved = repository.saveTodo(todo);
+        expected.put(saved.getId(), saved);
+        return saved;
+    }
+
+    private Todo randomEdit(Todo todo, Random random) {
+        return switch (random.nextInt(3)) {
+            case 0 -> todo.withDone(!todo.isDone()).withCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            case 1 -> todo.withCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            default -> todo.withTime(random.nextInt(4) == 0 ? null
+                    : now.plusHours((random.nextBoolean() ? 1 : -1) * (24 + random.nextInt(24 * 10))));
+        };
+    }
+
+    // Read, bump, save, and start again from the stored copy whenever another writer got there first
+    private static void incrementCounter(TodoRepository repository, String counterId) {
+        for (int i = 0; i < INCREMENTS_PER_WRITER; i++) {
+            while (true) {
+                Todo current = repository.getTodo(counterId).orElseThrow();
+                try {
+                    repository.saveTodo(current.withTitle(String.valueOf(Integer.parseInt(current.getTitle()) + 1)));
+                    break;
+                } catch (TodoConflictException e) {
+                    // Retry
+                }
+            }
+        }
+    }
+
+    // Checks that hold for any single read, whatever the writers are doing
+    private static void readConsistently(TodoRepository repository) {
+        TodoStats stats = repository.getStats();
+        assertTrue(stats.getCompleted() <= stats.getTotal());
+        assertEquals(stats.getTotal(), stats.getCategoryCounts().values().stream().mapToInt(Integer::intValue).sum());
+        for (String category : CATEGORIES) {
+            for (Todo todo : repository.getTodosByCategory(category)) {
+                assertEquals(category, todo.getCategory());
+            }
+        }
+        for (Todo todo : repository.query(TodoQuery.all().withDone(true).withLimit(50))) {
+            assertTrue(todo.isDone());
+        }
+        List<Todo> byTime = repository.page(null, 50, SortKey.TIME, TodoFilter.all().withDone(false)).getItems();
+        for (int i = 1; i < byTime.size(); i++) {
+            Todo previous = byTime.get(i - 1);
+            Todo next = byTime.get(i);
+            assertFalse(next.isDone());
+            if (previous.getTime() != null && next.getTime() != null) {
+                assertFalse(next.getTime().isBefore(previous.getTime()), "page out of order");
+            }
+        }
+    }
+
+    private void assertIndexesAndStatsAgree(TodoRepository repository) {
+        List<Todo> all = repository.getAllTodos();
+        for (String category : CATEGORIES) {
+            assertEquals(ids(all, todo -> category.equals(todo.getCategory())),
+                    ids(repository.getTodosByCategory(category), todo -> true), "category index " + category);
+        }
+        assertEquals(ids(all, todo -> !todo.isDone() && todo.getTime() != null && todo.getTime().isBefore(now)),
+                ids(repository.getOverdueTodos(), todo -> true), "due index");
+        assertEquals(ids(all, Todo::isDone), ids(repository.query(TodoQuery.all().withDone(true)), todo -> true),
+                "done index");
+        LocalDateTime from = now.plusDays(2);
+        LocalDateTime to = now.plusDays(6);
+        assertEquals(ids(all, todo -> todo.getTime() != null && !todo.getTime().isBefore(from) && todo.getTime().isBefore(to)),
+                ids(repository.query(TodoQuery.all().withDueBetween(from, to)), todo -> true), "due range");
+        assertEquals(new TreeSet<>(all.stream().map(Todo::getCategory).toList()),
+                new TreeSet<>(repository.getAllCategories()), "categories");
+
+        TodoStats stats = repository.getStats();
+        assertEquals(all.size(), stats.getTotal());
+        assertEquals(all.size(), repository.getTotalTodoCount());
+        assertEquals(ids(all, Todo::isDone).size(), stats.getCompleted());
+        assertEquals(ids(all, Todo::isDone).size(), repository.getCompletedTodoCount());
+        assertEquals(repository.getOverdueTodos().size(), stats.getOverdue());
+        Map<String, Integer> categoryCounts = all.stream()
+                .collect(Collectors.toMap(Todo::getCategory, todo -> 1, Integer::sum, TreeMap::new));
+        assertEquals(categoryCounts, new TreeMap<>(stats.getCategoryCounts()), "category counts");
+    }
+
+    private static List<Todo> readStore(TodoRepository repository) {
+        List<Todo> todos = new ArrayList<>();
+        PageCursor cursor = null;
+        do {
+            Page page = repository.pageFromStore(cursor, 200, SortKey.CREATED_AT, TodoFilter.all());
+            todos.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return todos;
+    }
+
+    private static TreeSet<String> ids(List<Todo> todos, Predicate<Todo> filter) {
+        return todos.stream().filter(filter).map(Todo::getId).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static Map<String, String> describe(Iterable<Todo> todos) {
+        Map<String, String> byId = new HashMap<>();
+        for (Todo todo : todos) {
+            byId.put(todo.getId(), todo.getVersion() + "|" + todo.getTitle() + "|" + todo.isDone() + "|"
+                    + todo.getCategory() + "|" + todo.getTime());
+        }
+        return byId;
+    }
+
+    private interface Body {
+        void run() throws Exception;
+    }
+
+    private static Thread thread(String name, List<Throwable> failures, Body body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        }, name);
+        thread.start();
+        return thread;
+    }
+}
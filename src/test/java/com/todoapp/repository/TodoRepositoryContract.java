@@ -0,0 +1,276 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Behaviour every {@link TodoRepository} backend must share. Each backend
+ * has a subclass that says how to open it; {@link #open()} must reach the
+ * same storage every time it is called within a test, so reopening can be
+ * checked.
+ */
+abstract class TodoRepositoryContract {
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 3, 1, 9, 0);
+
+    private final List<TodoRepository> opened = new ArrayList<>();
+
+    protected abstract TodoRepository openRepository();
+
+    // False for backends that keep nothing once closed
+    protected boolean keepsDataAcrossReopen() {
+        return true;
+    }
+
+    protected TodoRepository open() {
+        TodoRepository repository = openRepository();
+        opened.add(repository);
+        repository.whenLoaded().join();
+        return repository;
+    }
+
+    protected void close(TodoRepository repository) {
+        opened.remove(repository);
+        repository.close();
+    }
+
+    @AfterEach
+    void closeRepositories() {
+        for (TodoRepository repository : opened) {
+            repository.close();
+        }
+    }
+
+    @Test
+    void savedTodoCanBeReadBack() {
+        TodoRepository repository = open();
+        Todo saved = repository.saveTodo(new Todo("Write report").withCategory("Work").withTime(BASE));
+
+        assertEquals(1, saved.getVersion());
+        Todo read = repository.getTodo(saved.getId()).orElseThrow();
+        assertEquals("Write report", read.getTitle());
+        assertEquals("Work", read.getCategory());
+        assertEquals(BASE, read.getTime());
+        assertEquals(List.of(saved.getId()), ids(repository.getAllTodos()));
+        assertEquals(1, repository.getTotalTodoCount());
+        assertEquals(0, repository.getCompletedTodoCount());
+        assertTrue(repository.getAllCategories().contains("Work"));
+    }
+
+    @Test
+    void saveMovesVersionOnAndUpdatesCounts() {
+        TodoRepository repository = open();
+        Todo saved = repository.saveTodo(new Todo("Call the bank"));
+        Todo done = repository.saveTodo(saved.withDone(true));
+
+        assertEquals(2, done.getVersion());
+        assertTrue(repository.getTodo(saved.getId()).orElseThrow().isDone());
+        assertEquals(1, repository.getCompletedTodoCount());
+        assertEquals(1, repository.getStats().getCompleted());
+    }
+
+    @Test
+    void saveFromStaleCopyConflicts() {
+        TodoRepository repository = open();
+        Todo first = repository.saveTodo(new Todo("Plan trip"));
+        Todo second = repository.saveTodo(first.withTitle("Plan the trip"));
+
+        TodoConflictException e = assertThrows(TodoConflictException.class,
+                () -> repository.saveTodo(first.withDone(true)));
+        assertEquals(second.getVersion(), e.getCurrent().getVersion());
+        assertEquals("Plan the trip", e.getCurrent().getTitle());
+        assertEquals(second.getVersion(), repository.getTodo(first.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void newTodoWithTakenIdConflicts() {
+        TodoRepository repository = open();
+        Todo saved = repository.saveTodo(new Todo("Original"));
+        Todo clash = new Todo(saved.getId(), "Impostor", false, null, BASE, BASE, "General");
+
+        assertThrows(TodoConflictException.class, () -> repository.saveTodo(clash));
+        assertEquals("Original", repository.getTodo(saved.getId()).orElseThrow().getTitle());
+    }
+
+    @Test
+    void deleteRemovesTodoAndLaterSavesOfItConflict() {
+        TodoRepository repository = open();
+        Todo saved = repository.saveTodo(new Todo("Old idea"));
+
+        assertTrue(repository.deleteTodo(saved.getId()));
+        assertFalse(repository.deleteTodo(saved.getId()));
+        assertEquals(Optional.empty(), repository.getTodo(saved.getId()));
+        assertEquals(0, repository.getTotalTodoCount());
+        TodoConflictException e = assertThrows(TodoConflictException.class,
+                () -> repository.saveTodo(saved.withDone(true)));
+        assertNull(e.getCurrent());
+    }
+
+    @Test
+    void pagesFromCacheAndStoreAgree() {
+        TodoRepository repository = open();
+        String[] categories = {"Work", "Home", "Errands"};
+        for (int i = 0; i < 60; i++) {
+            Todo todo = new Todo("Task " + i)
+                    .withCategory(categories[i % categories.length])
+                    // Every fifth todo has no due time, and some share one, so ties are broken by id
+                    .withTime(i % 5 == 0 ? null : BASE.plusHours(i % 7));
+            repository.saveTodo(i % 4 == 0 ? todo.withDone(true) : todo);
+        }
+        repository.flush();
+
+        List<TodoFilter> filters = List.of(TodoFilter.all(), TodoFilter.all().withDone(true),
+                TodoFilter.all().withCategory("Home"), TodoFilter.all().withCategory("Work").withDone(false));
+        for (SortKey sortKey : SortKey.values()) {
+            for (TodoFilter filter : filters) {
+                List<String> fromCache = readPages(cursor -> repository.page(cursor, 7, sortKey, filter));
+                List<String> fromStore = readPages(cursor -> repository.pageFromStore(cursor, 7, sortKey, filter));
+                assertEquals(fromCache, fromStore, sortKey + " " + filter);
+                assertEquals(repository.getAllTodos().stream().filter(filter::matches).count(), fromCache.size());
+            }
+        }
+    }
+
+    @Test
+    void textIdsAndCategoriesOrderAsTheStoreDoes() {
+        TodoRepository repository = open();
+        // U+FF5E comes before U+1F600 by code point, as SQLite compares, but after it by UTF-16 code unit
+        String[] texts = {"a", "z", "\uFF5E", "\uD83D\uDE00", "\uFF5Ez", "\uD83D\uDE00a"};
+        for (String text : texts) {
+            // The same creation time for all, so ties are broken by id
+            repository.saveTodo(new Todo("legacy-" + text, "Task " + text, false, null, BASE, BASE, text));
+        }
+        repository.flush();
+
+        for (SortKey sortKey : SortKey.values()) {
+            List<String> fromCache = readPages(cursor -> repository.page(cursor, 2, sortKey, TodoFilter.all()));
+            List<String> fromStore = readPages(cursor -> repository.pageFromStore(cursor, 2, sortKey, TodoFilter.all()));
+            assertEquals(fromCache, fromStore, sortKey.toString());
+            assertEquals(texts.length, fromCache.size());
+        }
+    }
+
+    @Test
+    void subscribersSeeEveryChangeInOrder() {
+        TodoRepository repository = open();
+        List<TodoEvent> events = new ArrayList<>();
+        TodoSubscription subscription = repository.subscribe(repository.getVersion(), Runnable::run, events::addAll);
+
+        Todo saved = repository.saveTodo(new Todo("Water plants"));
+        Todo edited = repository.saveTodo(saved.withCategory("Home"));
+        repository.deleteTodo(saved.getId());
+        subscription.close();
+
+        assertEquals(List.of(TodoEvent.Type.CREATED, TodoEvent.Type.UPDATED, TodoEvent.Type.DELETED),
+                events.stream().map(TodoEvent::getType).toList());
+        assertEquals(saved.getVersion(), events.get(1).getPrevious().getVersion());
+        assertEquals(edited.getCategory(), events.get(1).getTodo().getCategory());
+        for (int i = 1; i < events.size(); i++) {
+            assertTrue(events.get(i).getSeq() > events.get(i - 1).getSeq());
+        }
+        assertEquals(repository.getVersion(), events.get(events.size() - 1).getSeq());
+    }
+
+    @Test
+    void lateSubscriberStartsWithEveryTodo() {
+        TodoRepository repository = open();
+        Todo first = repository.saveTodo(new Todo("First"));
+        Todo second = repository.saveTodo(new Todo("Second"));
+        List<TodoEvent> events = new ArrayList<>();
+        repository.subscribe(Runnable::run, events::addAll).close();
+
+        assertEquals(1, events.size());
+        assertEquals(TodoEvent.Type.BULK, events.get(0).getType());
+        assertEquals(List.of(first.getId(), second.getId()).stream().sorted().toList(),
+                ids(events.get(0).getTodos()).stream().sorted().toList());
+    }
+
+    @Test
+    void changesSinceVersionListSavesAndDeletes() {
+        TodoRepository repository = open();
+        Todo kept = repository.saveTodo(new Todo("Kept"));
+        Todo dropped = repository.saveTodo(new Todo("Dropped"));
+        long version = repository.getVersion();
+        repository.saveTodo(kept.withDone(true));
+        repository.deleteTodo(dropped.getId());
+
+        ChangeSet changes = repository.getChangesSince(version);
+        assertEquals(List.of(kept.getId()), ids(changes.getSaved()));
+        assertEquals(List.of(dropped.getId()), changes.getDeletedIds());
+        assertTrue(repository.getChangesSince(repository.getVersion()).isEmpty());
+    }
+
+    @Test
+    void bulkUpdateIsAllOrNothingAndDeliveredOnce() {
+        TodoRepository repository = open();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(repository.saveTodo(new Todo("Bulk " + i)).getId());
+        }
+        List<List<TodoEvent>> batches = new ArrayList<>();
+        TodoSubscription subscription = repository.subscribe(repository.getVersion(), Runnable::run, batches::add);
+
+        assertEquals(20, repository.updateTodos(ids, todo -> todo.withDone(true)).size());
+        assertEquals(1, batches.size());
+        assertEquals(20, batches.get(0).size());
+        assertEquals(20, repository.getCompletedTodoCount());
+
+        assertThrows(IllegalArgumentException.class, () -> repository.updateTodos(ids,
+                todo -> todo.getId().equals(ids.get(10)) ? new Todo("Other id") : todo.withDone(false)));
+        assertEquals(20, repository.getCompletedTodoCount());
+
+        assertEquals(20, repository.deleteTodos(ids));
+        assertEquals(2, batches.size());
+        assertEquals(0, repository.getTotalTodoCount());
+        subscription.close();
+    }
+
+    @Test
+    void reopenedRepositoryHoldsEveryWrite() {
+        assumeTrue(keepsDataAcrossReopen(), "backend keeps nothing once closed");
+        TodoRepository repository = open();
+        Todo kept = repository.saveTodo(new Todo("Kept").withCategory("Work").withTime(BASE));
+        Todo edited = repository.saveTodo(repository.saveTodo(new Todo("Edited")).withDone(true));
+        Todo deleted = repository.saveTodo(new Todo("Deleted"));
+        repository.deleteTodo(deleted.getId());
+        repository.flush();
+        close(repository);
+
+        TodoRepository reopened = open();
+        assertEquals(List.of(edited.getId(), kept.getId()).stream().sorted().toList(),
+                ids(reopened.getAllTodos()).stream().sorted().toList());
+        Todo keptAgain = reopened.getTodo(kept.getId()).orElseThrow();
+        assertEquals("Work", keptAgain.getCategory());
+        assertEquals(BASE, keptAgain.getTime());
+        Todo editedAgain = reopened.getTodo(edited.getId()).orElseThrow();
+        assertTrue(editedAgain.isDone());
+        assertEquals(edited.getVersion(), editedAgain.getVersion());
+        // Versions carry on from where they were, so stale copies still conflict
+        assertThrows(TodoConflictException.class, () -> reopened.saveTodo(kept.withVersion(0).withTitle("Again")));
+        assertEquals(3, reopened.saveTodo(editedAgain.withTitle("Edited twice")).getVersion());
+    }
+
+    private static List<String> ids(List<Todo> todos) {
+        return todos.stream().map(Todo::getId).toList();
+    }
+
+    private static List<String> readPages(Function<PageCursor, Page> read) {
+        List<String> ids = new ArrayList<>();
+        PageCursor cursor = null;
+        do {
+            Page page = read.apply(cursor);
+            ids.addAll(ids(page.getItems()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+}
@@ -0,0 +1,130 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+    private final TrigramIndex index = new TrigramIndex();
+
+    private Todo add(String title, String category) {
+        Todo todo = new Todo(title).withCategory(category);
+        index.put(todo);
+        return todo;
+    }
+
+    private TodoId best(String query) {
+        List<TodoId> found = index.search(query, 5);
+        assertFalse(found.isEmpty(), "Nothing found for " + query);
+        return found.get(0);
+    }
+
+    @Test
+    void typosStillFindTheTitle() {
+        Todo report = add("Write quarterly report", "Work");
+        add("Repair bike", null);
+        add("Report card pickup", "School");
+        assertEquals(report.getKey(), best("quartely "));
+        assertEquals(report.getKey(), best("quarterly reprot "));
+        // A swap of neighbouring letters counts as one edit
+        assertEquals(report.getKey(), best("wirte quarterly "));
+    }
+
+    @Test
+    void lastWordIsMatchedAsAPrefixWhileTyping() {
+        Todo milk = add("Buy milk", "Errands");
+        Todo mile = add("Mile run", "Health");
+        add("Repair bike", null);
+        assertTrue(index.search("mi", 5).containsAll(List.of(milk.getKey(), mile.getKey())));
+        assertEquals(milk.getKey(), best("buy mil"));
+        // A trailing space ends the word, so it no longer matches as a prefix
+        assertFalse(index.search("bu ", 5).contains(milk.getKey()));
+    }
+
+    @Test
+    void accentsAndCaseAreIgnored() {
+        Todo cafe = add("Meet at the Café", "Social");
+        Todo resume = add("update resume", null);
+        add("Call the bank", null);
+        assertEquals(cafe.getKey(), best("cafe"));
+        assertEquals(cafe.getKey(), best("CAFÉ"));
+        assertEquals(resume.getKey(), best("Résumé"));
+    }
+
+    @Test
+    void categoriesAreSearchedToo() {
+        Todo milk = add("Buy milk", "Errands");
+        add("Mile run", "Health");
+        assertEquals(milk.getKey(), best("errands"));
+    }
+
+    @Test
+    void blankOrUnmatchedQueriesFindNothing() {
+        add("Buy milk", "Errands");
+        assertTrue(index.search("zzzz", 5).isEmpty());
+        assertTrue(index.search("   ", 5).isEmpty());
+        assertTrue(index.search("!!", 5).isEmpty());
+        assertTrue(index.search("milk", 0).isEmpty());
+    }
+
+    @Test
+    void editsReplaceTheOldText() {
+        Todo milk = add("Buy milk", "Errands");
+        Todo renamed = milk.withTitle("Buy oat drink");
+        index.put(renamed);
+        assertFalse(index.search("milk ", 5).contains(milk.getKey()));
+        assertEquals(milk.getKey(), best("oat drink"));
+        // Saves that leave the text alone keep the document
+        index.put(renamed.withDone(true));
+        assertEquals(milk.getKey(), best("oat drink"));
+
+        index.remove(milk.getKey());
+        assertTrue(index.search("oat", 5).isEmpty());
+    }
+
+    @Test
+    void manyEditsRebuildTheIndexWithoutLosingTodos() {
+        Random random = new Random(1);
+        List<Todo> live = new ArrayList<>();
+        for (int i = 0; i < 200; i++) live.add(add("churn item " + i, null));
+        // Far more retired documents than live ones, so the index is rebuilt several times
+        for (int k = 0; k < 20_000; k++) {
+            int i = random.nextInt(live.size());
+            Todo todo = live.get(i).withTitle("churn item " + i + " rev" + k);
+            index.put(todo);
+            live.set(i, todo);
+        }
+        for (Todo todo : live) {
+            assertEquals(todo.getKey(), index.search(todo.getTitle() + " ", 1).get(0), todo.getTitle());
+        }
+        for (int i = 0; i < live.size(); i += 2) index.remove(live.get(i).getKey());
+        for (int i = 0; i < live.size(); i++) {
+            boolean found = index.search(live.get(i).getTitle() + " ", 1).contains(live.get(i).getKey());
+            assertEquals(i % 2 == 1, found, live.get(i).getTitle());
+        }
+    }
+
+    @Test
+    void fillSkipsTodosWrittenOrRemovedSinceItStarted() {
+        Todo kept = new Todo("alpha kept");
+        Todo removed = new Todo("alpha removed");
+        Todo renamed = new Todo("alpha renamed");
+        // Writes that reach the index before fill gets to the snapshot of existing rows
+        index.remove(removed.getKey());
+        index.put(renamed.withTitle("zulu renamed"));
+        index.fill(List.of(kept, removed, renamed));
+
+        List<TodoId> alpha = index.search("alpha ", 5);
+        assertEquals(List.of(kept.getKey()), alpha);
+        assertEquals(renamed.getKey(), best("zulu renamed"));
+        // Once filled, removed ids are no longer remembered
+        index.put(removed);
+        assertEquals(removed.getKey(), best("alpha removed"));
+    }
+}
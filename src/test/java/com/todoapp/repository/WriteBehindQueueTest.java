@@ -0,0 +1,103 @@
+package com.todoapp.repository;
+
+import com.todoapp.model.Todo;
+import com.todoapp.model.TodoId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindQueueTest {
+    private final List<TodoId> written = new CopyOnWriteArrayList<>();
+    private final List<TodoId> lost = new CopyOnWriteArrayList<>();
+    private final List<WriteBehindQueue> queues = new ArrayList<>();
+
+    // Writes every batch, except that batches holding a todo with the given title fail as the writer says
+    private WriteBehindQueue queue(String failOn, Throwable failure) {
+        WriteBehindQueue queue = new WriteBehindQueue(batch -> {
+            for (WriteBehindQueue.PendingWrite write : batch) {
+                if (write.todo() != null && write.todo().getTitle().equals(failOn)) throw sneaky(failure);
+            }
+            batch.forEach(write -> written.add(write.todoId()));
+        }, batch -> batch.forEach(write -> lost.add(write.todoId())), 20, 100);
+        queues.add(queue);
+        return queue;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> RuntimeException sneaky(Throwable failure) throws T {
+        throw (T) failure;
+    }
+
+    @AfterEach
+    void shutdown() {
+        for (WriteBehindQueue queue : queues) {
+            try {
+                queue.shutdown();
+            } catch (RuntimeException ignored) {
+                // Tests here leave failures behind on purpose
+            }
+        }
+    }
+
+    private static Todo saved(String title) {
+        return new Todo(title).withVersion(1);
+    }
+
+    @Test
+    void sqlFailureIsThrownByTheNextFlushOnly() {
+        WriteBehindQueue queue = queue("Bad", new SQLException("disk full", "", 13));
+        Todo bad = saved("Bad");
+        queue.enqueueSave(bad);
+        RuntimeException e = assertThrows(RuntimeException.class, queue::flush);
+        assertInstanceOf(SQLException.class, e.getCause());
+        assertEquals(List.of(bad.getKey()), lost);
+
+        queue.flush();
+        Todo good = saved("Good");
+        queue.enqueueSave(good);
+        queue.flush();
+        assertEquals(List.of(good.getKey()), written);
+    }
+
+    @Test
+    void failureIsThrownByTheNextEnqueueToo() throws InterruptedException {
+        WriteBehindQueue queue = queue("Bad", new SQLException("I/O error", "", 10));
+        queue.enqueueSave(saved("Bad"));
+        assertTrue(queue.drain());
+        // drain leaves the failure for the next caller
+        assertThrows(RuntimeException.class, () -> queue.enqueueSave(saved("Next")));
+        queue.enqueueSave(saved("After"));
+        queue.flush();
+    }
+
+    @Test
+    void writerRuntimeExceptionIsAFailureAndTheWriterCarriesOn() {
+        WriteBehindQueue queue = queue("Bad", new IllegalStateException("bug in the writer"));
+        Todo bad = saved("Bad");
+        queue.enqueueSave(bad);
+        RuntimeException e = assertThrows(RuntimeException.class, queue::flush);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(List.of(bad.getKey()), lost);
+
+        Todo good = saved("Good");
+        queue.enqueueSave(good);
+        queue.flush();
+        assertEquals(List.of(good.getKey()), written);
+    }
+
+    @Test
+    void deadWriterMakesFlushAndEnqueueThrow() throws InterruptedException {
+        WriteBehindQueue queue = queue("Fatal", new AssertionError("writer thread dies"));
+        queue.enqueueSave(saved("Fatal"));
+        assertThrows(IllegalStateException.class, queue::flush);
+        assertThrows(IllegalStateException.class, () -> queue.enqueueSave(saved("Lost")));
+        assertThrows(IllegalStateException.class, queue::flush);
+        assertThrows(IllegalStateException.class, queue::shutdown);
+    }
+}
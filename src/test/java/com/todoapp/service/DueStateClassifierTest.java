@@ -0,0 +1,148 @@
+package com.todoapp.service;
+
+import com.todoapp.model.Todo;
+import com.todoapp.repository.RepositoryConfig;
+import com.todoapp.service.DueStateClassifier.Change;
+import com.todoapp.service.DueStateClassifier.DueState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DueStateClassifierTest {
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 9, 0);
+
+    private final MutableClock clock = new MutableClock(START);
+    private final List<Change> changes = new CopyOnWriteArrayList<>();
+    private TodoService service;
+    private DueStateClassifier classifier;
+
+    @BeforeEach
+    void openService() {
+        service = new TodoService(RepositoryConfig.defaults().withBackend(RepositoryConfig.Backend.MEMORY));
+        service.whenLoaded().join();
+    }
+
+    @AfterEach
+    void close() {
+        if (classifier != null) classifier.close();
+        service.close();
+    }
+
+    private void classify(Duration maxSleep) {
+        classifier = new DueStateClassifier(service, clock, maxSleep, Runnable::run, changes::addAll);
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("Timed out waiting for " + what);
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitCounts(int overdue, int today, int upcoming) throws InterruptedException {
+        await(() -> classifier.getCount(DueState.OVERDUE) == overdue && classifier.getCount(DueState.TODAY) == today
+                && classifier.getCount(DueState.UPCOMING) == upcoming,
+                overdue + " overdue, " + today + " today, " + upcoming + " upcoming");
+    }
+
+    private DueState lastState(Todo todo) {
+        DueState state = DueState.NONE;
+        for (Change change : changes) {
+            if (change.todo().getId().equals(todo.getId())) state = change.to();
+        }
+        return state;
+    }
+
+    @Test
+    void loadedTodosAreSortedIntoBuckets() throws InterruptedException {
+        Todo overdue = service.createTodo("Overdue", null, START.minusHours(1));
+        Todo dueNow = service.createTodo("Due now", null, START);
+        Todo today = service.createTodo("Tonight", null, START.withHour(23));
+        Todo upcoming = service.createTodo("Tomorrow", null, START.plusDays(1));
+        service.createTodo("No due time");
+        Todo done = service.createTodo("Done", null, START.minusHours(1));
+        service.toggleTodoDone(done.getId());
+
+        classify(Duration.ofMinutes(15));
+        awaitCounts(2, 1, 1);
+        assertEquals(4, changes.size());
+        assertEquals(DueState.OVERDUE, lastState(overdue));
+        assertEquals(DueState.OVERDUE, lastState(dueNow));
+        assertEquals(DueState.TODAY, lastState(today));
+        assertEquals(DueState.UPCOMING, lastState(upcoming));
+        assertEquals(List.of(overdue.getId(), dueNow.getId()),
+                classifier.getTodos(DueState.OVERDUE).stream().map(Todo::getId).toList());
+    }
+
+    @Test
+    void todoBecomesOverdueWhenTheClockPassesItsDueTime() throws InterruptedException {
+        classify(Duration.ofMinutes(15));
+        LocalDateTime dueAt = START.plusNanos(200_000_000);
+        Todo todo = service.createTodo("Soon", null, dueAt);
+        awaitCounts(0, 1, 0);
+
+        // The timer comes round after 200 ms, but the clock says it isn't time yet
+        Thread.sleep(500);
+        assertEquals(DueState.TODAY, lastState(todo));
+        clock.set(dueAt);
+        awaitCounts(1, 0, 0);
+        Change last = changes.get(changes.size() - 1);
+        assertEquals(todo.getId(), last.todo().getId());
+        assertEquals(DueState.TODAY, last.from());
+        assertEquals(DueState.OVERDUE, last.to());
+    }
+
+    @Test
+    void upcomingTodosBecomeDueTodayAtMidnight() throws InterruptedException {
+        LocalDateTime midnight = START.toLocalDate().plusDays(1).atStartOfDay();
+        clock.set(midnight.minusNanos(200_000_000));
+        classify(Duration.ofMinutes(15));
+        Todo nextDay = service.createTodo("Next day", null, midnight.plusHours(10));
+        Todo dayAfter = service.createTodo("Day after", null, midnight.plusDays(1).plusHours(10));
+        awaitCounts(0, 0, 2);
+
+        clock.set(midnight);
+        awaitCounts(0, 1, 1);
+        assertEquals(DueState.TODAY, lastState(nextDay));
+        assertEquals(DueState.UPCOMING, lastState(dayAfter));
+    }
+
+    @Test
+    void clockJumpIsPickedUpWithinTheCap() throws InterruptedException {
+        classify(Duration.ofMillis(50));
+        Todo tonight = service.createTodo("Tonight", null, START.withHour(20));
+        Todo tomorrow = service.createTodo("Tomorrow", null, START.plusDays(1).withHour(8));
+        awaitCounts(0, 1, 1);
+
+        // As after a suspend: the timer's own sleep hasn't run out, but the wall clock has moved on past midnight
+        clock.set(START.plusDays(1).withHour(7));
+        awaitCounts(1, 1, 0);
+        assertEquals(DueState.OVERDUE, lastState(tonight));
+        assertEquals(DueState.TODAY, lastState(tomorrow));
+    }
+
+    @Test
+    void editsAndDeletesMoveTodosBetweenBuckets() throws InterruptedException {
+        classify(Duration.ofMinutes(15));
+        Todo todo = service.createTodo("Movable", null, START.plusDays(3));
+        awaitCounts(0, 0, 1);
+        service.updateTodo(todo.getId(), null, null, START.minusDays(1));
+        awaitCounts(1, 0, 0);
+        service.toggleTodoDone(todo.getId());
+        awaitCounts(0, 0, 0);
+        assertEquals(DueState.NONE, lastState(todo));
+        service.toggleTodoDone(todo.getId());
+        awaitCounts(1, 0, 0);
+        service.deleteTodo(todo.getId());
+        awaitCounts(0, 0, 0);
+    }
+}
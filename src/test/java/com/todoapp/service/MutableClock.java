@@ -0,0 +1,35 @@
+package com.todoapp.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+// A clock that only moves when a test sets it
+final class MutableClock extends Clock {
+    private volatile Instant instant;
+
+    MutableClock(LocalDateTime start) {
+        set(start);
+    }
+
+    void set(LocalDateTime time) {
+        instant = time.toInstant(ZoneOffset.UTC);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
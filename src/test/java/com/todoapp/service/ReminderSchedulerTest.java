@@ -0,0 +1,97 @@
+package com.todoapp.service;
+
+import com.todoapp.model.Todo;
+import com.todoapp.repository.RepositoryConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReminderSchedulerTest {
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 9, 0);
+
+    private final MutableClock clock = new MutableClock(START);
+    private final BlockingQueue<Todo> reminded = new LinkedBlockingQueue<>();
+    private TodoService service;
+    private ReminderScheduler scheduler;
+
+    @BeforeEach
+    void openService() {
+        service = new TodoService(RepositoryConfig.defaults().withBackend(RepositoryConfig.Backend.MEMORY));
+        service.whenLoaded().join();
+    }
+
+    @AfterEach
+    void close() {
+        if (scheduler != null) scheduler.close();
+        service.close();
+    }
+
+    @Test
+    void firesOnceTheClockReachesTheDueTime() throws InterruptedException {
+        scheduler = new ReminderScheduler(service, clock, Runnable::run, reminded::add);
+        Todo todo = service.createTodo("Call back", null, START.plusNanos(200_000_000));
+        assertEquals(1, scheduler.getScheduledCount());
+
+        // The timer comes round after 200 ms, but the clock says it isn't time yet
+        assertNull(reminded.poll(500, TimeUnit.MILLISECONDS));
+        clock.set(START.plusNanos(200_000_000));
+        Todo due = reminded.poll(5, TimeUnit.SECONDS);
+        assertNotNull(due);
+        assertEquals(todo.getId(), due.getId());
+        assertEquals(0, scheduler.getScheduledCount());
+        assertNull(reminded.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void wakesWithinTheCapWhenTheClockJumpsAhead() throws InterruptedException {
+        scheduler = new ReminderScheduler(service, clock, Duration.ofMillis(50), Runnable::run, reminded::add);
+        Todo todo = service.createTodo("Dentist", null, START.plusHours(1));
+        assertNull(reminded.poll(200, TimeUnit.MILLISECONDS));
+
+        // As after a suspend: the timer's own sleep hasn't run out, but the wall clock has moved on
+        clock.set(START.plusHours(2));
+        Todo due = reminded.poll(5, TimeUnit.SECONDS);
+        assertNotNull(due);
+        assertEquals(todo.getId(), due.getId());
+    }
+
+    @Test
+    void onlyOpenTodosDueLaterAreScheduled() {
+        scheduler = new ReminderScheduler(service, clock, Runnable::run, reminded::add);
+        service.createTodo("Already due", null, START.minusMinutes(1));
+        service.createTodo("Due now", null, START);
+        service.createTodo("No due time");
+        Todo done = service.createTodo("Done", null, START.plusHours(1));
+        service.toggleTodoDone(done.getId());
+        assertEquals(0, scheduler.getScheduledCount());
+
+        Todo later = service.createTodo("Later", null, START.plusHours(1));
+        assertEquals(1, scheduler.getScheduledCount());
+        service.updateTodo(later.getId(), null, null, START.minusHours(1));
+        assertEquals(0, scheduler.getScheduledCount());
+        service.updateTodo(later.getId(), null, null, START.plusDays(1));
+        assertEquals(1, scheduler.getScheduledCount());
+        service.deleteTodo(later.getId());
+        assertEquals(0, scheduler.getScheduledCount());
+    }
+
+    @Test
+    void rescheduledTodoFiresAtItsNewTime() throws InterruptedException {
+        scheduler = new ReminderScheduler(service, clock, Runnable::run, reminded::add);
+        Todo todo = service.createTodo("Moved", null, START.plusNanos(100_000_000));
+        service.updateTodo(todo.getId(), null, null, START.plusNanos(300_000_000));
+
+        clock.set(START.plusNanos(200_000_000));
+        assertNull(reminded.poll(500, TimeUnit.MILLISECONDS));
+        clock.set(START.plusNanos(300_000_000));
+        assertNotNull(reminded.poll(5, TimeUnit.SECONDS));
+    }
+}